@@ -76,6 +76,7 @@ import org.rascalmpl.vscode.lsp.terminal.RemoteIDEServicesThread;
 import org.rascalmpl.vscode.lsp.uri.jsonrpc.messages.PathConfigParameter;
 import org.rascalmpl.vscode.lsp.util.Sets;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
 import io.usethesource.vallang.IList;
@@ -89,10 +90,13 @@ public abstract class BaseLanguageServer {
     private static final PrintStream capturedOut;
     private static final InputStream capturedIn;
     private static final boolean DEPLOY_MODE;
+    private static final boolean VIRTUAL_THREADS;
     private static final String LOG_CONFIGURATION_KEY = "log4j2.configurationFactory";
 
     static {
         DEPLOY_MODE = System.getProperty("rascal.lsp.deploy", "false").equalsIgnoreCase("true");
+        // run the worker pool on virtual threads (requires a Java 21+ runtime)
+        VIRTUAL_THREADS = System.getProperty("rascal.lsp.virtualThreads", "false").equalsIgnoreCase("true");
         if (DEPLOY_MODE){
             // we redirect system.out & system.in so that we can use them exclusively for lsp
             capturedIn = System.in;
@@ -152,7 +156,7 @@ public abstract class BaseLanguageServer {
 
         if (DEPLOY_MODE) {
             var requestPool = NamedThreadPool.single(requestPoolName);
-            var workerPool = NamedThreadPool.cached(workerPoolName);
+            var workerPool = new PriorityScheduler(workerPoolName, VIRTUAL_THREADS);
 
             try {
                 var docService = docServiceProvider.apply(workerPool);
@@ -170,7 +174,7 @@ public abstract class BaseLanguageServer {
                 logger.info("Rascal LSP server listens on port number: {}", portNumber);
                 while (true) {
                     var requestPool = NamedThreadPool.single(requestPoolName);
-                    var workerPool = NamedThreadPool.cached(workerPoolName);
+                    var workerPool = new PriorityScheduler(workerPoolName, VIRTUAL_THREADS);
 
                     try (Socket clientSocket = serverSocket.accept()) {
                         logger.info("New client connected to Rascal LSP server (listening on port number: {})", portNumber);
@@ -233,10 +237,10 @@ public abstract class BaseLanguageServer {
         private final IBaseTextDocumentService lspDocumentService;
         private final BaseWorkspaceService lspWorkspaceService;
         private final Runnable onExit;
-        private final ExecutorService executor;
+        private final PriorityScheduler executor;
         private @MonotonicNonNull IDEServicesConfiguration remoteIDEServicesConfiguration;
 
-        private ActualLanguageServer(Runnable onExit, ExecutorService executor, IBaseTextDocumentService lspDocumentService, BaseWorkspaceService lspWorkspaceService) {
+        private ActualLanguageServer(Runnable onExit, PriorityScheduler executor, IBaseTextDocumentService lspDocumentService, BaseWorkspaceService lspWorkspaceService) {
             this.onExit = onExit;
             this.executor = executor;
             this.lspDocumentService = lspDocumentService;
@@ -308,6 +312,8 @@ public abstract class BaseLanguageServer {
 
         @Override
         public CompletableFuture<Object> shutdown() {
+            // no-one is waiting for the results of builds and analyses anymore
+            executor.preemptBackground();
             return CompletableFuture.completedFuture(new Object());
         }
 
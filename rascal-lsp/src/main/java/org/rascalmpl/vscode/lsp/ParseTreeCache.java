@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp;
+
+import java.util.Arrays;
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
+import org.rascalmpl.vscode.lsp.util.Digests;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Remembers the parse trees (and their parse error diagnostics) of recent contents of files,
+ * such that undo, revert, or reopening a file with unchanged contents does not parse again.
+ *
+ * Entries are keyed by the location of the file and a digest of its contents. The location
+ * also determines the language, and it is part of the tree (in its source locations), so the
+ * same contents in a different file never share a tree.
+ *
+ * The cache is bounded by the estimated memory taken by the cached trees. A parse tree has a node
+ * for every character of its contents, next to the nodes of the productions and their argument
+ * lists, so we estimate {@link #BYTES_PER_CHARACTER} bytes per character of the contents: a file of
+ * a megabyte takes about 150 megabytes as a tree. By default the cache takes at most an eighth of the
+ * maximum heap; the bound can be configured (in megabytes) with {@link #SIZE_PROPERTY}.
+ */
+public class ParseTreeCache {
+    public static final String SIZE_PROPERTY = "rascal.lsp.parseTreeCache";
+    private static final int BYTES_PER_CHARACTER = 150;
+
+    private final Cache<Key, Entry> entries;
+
+    public ParseTreeCache() {
+        this(configuredBytes());
+    }
+
+    public ParseTreeCache(long maximumBytes) {
+        this.entries = Caffeine.newBuilder()
+            .maximumWeight(maximumBytes)
+            .weigher((Key k, Entry e) -> e.weight)
+            .build();
+    }
+
+    private static long configuredBytes() {
+        var megabytes = Long.getLong(SIZE_PROPERTY);
+        if (megabytes != null) {
+            return megabytes * 1024 * 1024;
+        }
+        return Runtime.getRuntime().maxMemory() / 8;
+    }
+
+    /**
+     * @return the tree and diagnostics of an earlier parse of exactly `contents`, or null if we do not have it
+     */
+    public @Nullable Entry get(ISourceLocation file, String contents) {
+        return entries.getIfPresent(new Key(file, contents));
+    }
+
+    public void put(ISourceLocation file, String contents, ITree tree, List<Diagnostics.Template> diagnostics) {
+        entries.put(new Key(file, contents), new Entry(tree, List.copyOf(diagnostics), estimateBytes(contents)));
+    }
+
+    private static int estimateBytes(String contents) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) contents.length() * BYTES_PER_CHARACTER);
+    }
+
+    /**
+     * Forget all trees of `file`, for example because its parser changed.
+     */
+    public void invalidate(ISourceLocation file) {
+        var top = file.top();
+        entries.asMap().keySet().removeIf(k -> k.file.equals(top));
+    }
+
+    /**
+     * Forget all trees, for example because a language (and with that its parser) was (re)registered.
+     */
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public static final class Entry {
+        private final ITree tree;
+        private final List<Diagnostics.Template> diagnostics;
+        private final int weight;
+
+        private Entry(ITree tree, List<Diagnostics.Template> diagnostics, int weight) {
+            this.tree = tree;
+            this.diagnostics = diagnostics;
+            this.weight = weight;
+        }
+
+        public ITree getTree() {
+            return tree;
+        }
+
+        public List<Diagnostics.Template> getDiagnostics() {
+            return diagnostics;
+        }
+    }
+
+    private static final class Key {
+        private final ISourceLocation file;
+        private final byte[] digest;
+        private final int hash;
+
+        Key(ISourceLocation file, String contents) {
+            this.file = file.top();
+            this.digest = Digests.sha256(contents);
+            this.hash = 31 * this.file.hashCode() + Arrays.hashCode(digest);
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            var other = (Key) obj;
+            return hash == other.hash && file.equals(other.file) && Arrays.equals(digest, other.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -28,25 +28,36 @@ package org.rascalmpl.vscode.lsp;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.Nullable;
-import org.rascalmpl.library.util.ParseErrorRecovery;
+import org.eclipse.lsp4j.TextDocumentContentChangeEvent;
 import org.rascalmpl.uri.FileAttributes;
+import org.rascalmpl.util.locations.LineColumnOffsetMap;
 import org.rascalmpl.values.IRascalValueFactory;
 import org.rascalmpl.values.parsetrees.ITree;
 import org.rascalmpl.vscode.lsp.parametric.NoContributions.NoContributionException;
 import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
+import org.rascalmpl.vscode.lsp.util.IncrementalParsing;
+import org.rascalmpl.vscode.lsp.util.IncrementalParsing.NonTerminalParser;
+import org.rascalmpl.vscode.lsp.util.ParseErrors;
+import org.rascalmpl.vscode.lsp.util.PieceTable;
 import org.rascalmpl.vscode.lsp.util.Versioned;
+import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
+import org.rascalmpl.vscode.lsp.util.locations.impl.IncrementalLineOffsetMap;
 
 import io.usethesource.vallang.ISourceLocation;
-import io.usethesource.vallang.IValue;
 
 /**
  * TextDocumentState encapsulates the current contents of every open file editor,
@@ -54,44 +65,74 @@ import io.usethesource.vallang.IValue;
  * It is parametrized by the parser that must be used to map the string
  * contents to a tree. All other TextDocumentServices depend on this information.
  *
+ * The contents are kept in a {@link PieceTable}, such that incremental changes
+ * sent by the client are applied without copying the whole file for every edit.
+ * The column map of the contents is patched with the same changes, and is versioned
+ * together with the contents.
+ *
+ * Parse trees of earlier contents are looked up in a {@link ParseTreeCache} before parsing,
+ * such that undo or revert does not parse again. If there is an earlier tree without errors,
+ * only the part affected by the changes since is parsed again (see {@link IncrementalParsing}).
+ *
+ * Parsing a new version is delayed a little, relative to how long the last parse took, such that
+ * bursts of changes are parsed once. A version that is superseded before its parse starts is
+ * never parsed, and a parse that has not finished yet is cancelled. The futures of superseded
+ * versions complete with the result of the newest version.
+ *
  * Objects of this class are used by the implementations of RascalTextDocumentService
  * and ParametricTextDocumentService.
  */
 public class TextDocumentState {
     @SuppressWarnings("unused")
     private static final Logger logger = LogManager.getLogger(TextDocumentState.class);
-    private static final ParseErrorRecovery RECOVERY = new ParseErrorRecovery(IRascalValueFactory.getInstance());
+    private static final long MAX_PARSE_DELAY_MILLIS = 250;
+    /** the number of parse errors that is reported at most */
+    public static final String MAX_PARSE_ERRORS_PROPERTY = "rascal.lsp.maxParseErrors";
+    private static final int MAX_PARSE_ERRORS = Math.max(1, Integer.getInteger(MAX_PARSE_ERRORS_PROPERTY, 100));
 
     private final BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parser;
+    private final IncrementalParsing incremental;
     private final ISourceLocation location;
     private final ExecutorService exec;
     private final FileAttributes attributesOnDisk;
+    private final ParseTreeCache parseTrees;
 
     private final AtomicReference<Versioned<Update>> current;
     private final AtomicReference<@Nullable Versioned<ITree>> lastWithoutErrors;
     private final AtomicReference<@Nullable Versioned<ITree>> last;
+    private final AtomicReference<@Nullable Versioned<ParsedContent>> lastParsedWithoutErrors;
+    private final AtomicLong lastParseMillis = new AtomicLong();
 
     public TextDocumentState(
             BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parser,
+            NonTerminalParser nonTerminalParser,
             ISourceLocation location,
             int initialVersion, String initialContent, long initialTimestamp,
-            ExecutorService exec, FileAttributes attributesOnDisk) {
+            ExecutorService exec, FileAttributes attributesOnDisk, ParseTreeCache parseTrees) {
 
         this.parser = parser;
+        this.incremental = new IncrementalParsing(nonTerminalParser, exec);
         this.location = location;
         this.attributesOnDisk = attributesOnDisk;
+        this.parseTrees = parseTrees;
         this.lastWithoutErrors = new AtomicReference<>();
         this.last = new AtomicReference<>();
+        this.lastParsedWithoutErrors = new AtomicReference<>();
         this.exec = exec;
 
-        var u = new Update(initialVersion, initialContent, initialTimestamp);
+        var u = new Update(initialVersion, new PieceTable(initialContent), IncrementalLineOffsetMap.build(initialContent), initialTimestamp);
         this.current = new AtomicReference<>(new Versioned<>(initialVersion, u));
+        u.parse();
     }
 
     public ISourceLocation getLocation() {
         return location;
     }
 
+    ExecutorService getExecutor() {
+        return exec;
+    }
+
     /**
      * The file attributes (aka stat) of the location on disk, before it was opened by VS Code
      */
@@ -99,9 +140,39 @@ public class TextDocumentState {
         return attributesOnDisk;
     }
 
-    public CompletableFuture<Versioned<List<Diagnostics.Template>>> update(int version, String content, long timestamp) {
-        var u = new Update(version, content, timestamp);
-        Versioned.replaceIfNewer(current, new Versioned<>(version, u));
+    /**
+     * Apply the changes of a `didChange` notification to the current content.
+     * Changes without a range replace the whole content, changes with a range
+     * are applied incrementally, in order.
+     */
+    public CompletableFuture<Versioned<List<Diagnostics.Template>>> update(int version, List<TextDocumentContentChangeEvent> changes, long timestamp) {
+        var previous = unpackCurrent();
+        var content = previous.content;
+        var columns = previous.columns;
+        for (var change : changes) {
+            var range = change.getRange();
+            if (range == null) {
+                content = new PieceTable(change.getText());
+                columns = IncrementalLineOffsetMap.build(change.getText());
+            } else {
+                var start = range.getStart();
+                var end = range.getEnd();
+                content = content.replace(start.getLine(), start.getCharacter(), end.getLine(), end.getCharacter(), change.getText());
+                columns = columns.replace(start.getLine(), start.getCharacter(), end.getLine(), end.getCharacter(), change.getText());
+            }
+        }
+        return update(version, content, columns, timestamp, previous);
+    }
+
+    private CompletableFuture<Versioned<List<Diagnostics.Template>>> update(int version, PieceTable content, IncrementalLineOffsetMap columns, long timestamp, Update previous) {
+        var u = new Update(version, content, columns, timestamp);
+        if (Versioned.replaceIfNewer(current, new Versioned<>(version, u))) {
+            previous.supersededBy(u);
+            u.scheduleParse();
+        } else {
+            // an even newer version came in first
+            u.supersededBy(unpackCurrent());
+        }
         return u.getDiagnosticsAsync();
     }
 
@@ -109,6 +180,13 @@ public class TextDocumentState {
         return unpackCurrent().getContent();
     }
 
+    /**
+     * The column map that belongs to the current content.
+     */
+    public Versioned<LineColumnOffsetMap> getCurrentColumns() {
+        return unpackCurrent().getColumns();
+    }
+
     private CompletableFuture<Versioned<ITree>> getCurrentTreeAsync() {
         return unpackCurrent().getTreeAsync();
     }
@@ -177,26 +255,32 @@ public class TextDocumentState {
      * An update of a text document, characterized in terms of its
      * {@link #version} (typically provied by the client), its {@link #content}
      * (typically provided by the client), and a {@link #timestamp} (typically
-     * provided by the server).
+     * provided by the server). The {@link #columns} are derived from the content.
      */
     private final class Update {
         private final int version;
-        private final String content;
+        private final PieceTable content;
+        private final IncrementalLineOffsetMap columns;
         private final long timestamp;
         private final CompletableFuture<Versioned<ITree>> treeAsync;
         private final CompletableFuture<Versioned<List<Diagnostics.Template>>> diagnosticsAsync;
+        private volatile @Nullable CompletableFuture<ITree> parsing = null;
 
-        public Update(int version, String content, long timestamp) {
+        public Update(int version, PieceTable content, IncrementalLineOffsetMap columns, long timestamp) {
             this.version = version;
             this.content = content;
+            this.columns = columns;
             this.timestamp = timestamp;
             this.treeAsync = new CompletableFuture<>();
             this.diagnosticsAsync = new CompletableFuture<>();
-            parse();
         }
 
         public Versioned<String> getContent() {
-            return new Versioned<>(version, content, timestamp);
+            return new Versioned<>(version, content.toString(), timestamp);
+        }
+
+        public Versioned<LineColumnOffsetMap> getColumns() {
+            return new Versioned<>(version, columns, timestamp);
         }
 
         public long getTimestamp() {
@@ -211,44 +295,117 @@ public class TextDocumentState {
             return diagnosticsAsync;
         }
 
+        /**
+         * Parse after a delay of half the duration of the last parse (but at most {@link #MAX_PARSE_DELAY_MILLIS}),
+         * unless a newer version comes in during that time.
+         */
+        private void scheduleParse() {
+            long delay = Math.min(MAX_PARSE_DELAY_MILLIS, lastParseMillis.get() / 2);
+            if (delay == 0) {
+                parse();
+                return;
+            }
+            CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, PriorityScheduler.lane(exec, Lane.EDIT)).execute(() -> {
+                if (unpackCurrent() == this) {
+                    parse();
+                }
+            });
+        }
+
+        /**
+         * Stop parsing this version, and complete its futures with the results of `newer` instead.
+         */
+        private void supersededBy(Update newer) {
+            var inFlight = parsing;
+            if (inFlight != null) {
+                inFlight.cancel(false);
+            }
+            newer.treeAsync.whenComplete((t, e) -> {
+                if (t == null) {
+                    treeAsync.completeExceptionally(e);
+                } else {
+                    treeAsync.complete(t);
+                }
+            });
+            newer.diagnosticsAsync.thenAccept(diagnosticsAsync::complete);
+        }
+
         private void parse() {
+            var text = content.toString();
+            var cached = parseTrees.get(location, text);
+            if (cached != null) {
+                logger.trace("Reusing parse tree of earlier contents of {}", location);
+                complete(cached.getTree(), null, cached.getDiagnostics());
+                return;
+            }
             try {
-                parser.apply(location, content)
+                var start = System.nanoTime();
+                var base = lastParsedWithoutErrors.get();
+                var parsed = base == null
+                    ? parser.apply(location, text)
+                    : reparse(base.get(), text).thenCompose(t -> t == null ? parser.apply(location, text) : CompletableFutureUtils.completedFuture(t, exec));
+                parsing = parsed;
+                if (unpackCurrent() != this) {
+                    // superseded while we were starting
+                    parsed.cancel(false);
+                }
+                parsed
                     .whenCompleteAsync((ITree t, Throwable e) -> {
                         try {
                             if (e instanceof CompletionException && e.getCause() != null) {
                                 e = e.getCause();
                             }
+                            if (e instanceof CancellationException) {
+                                // a newer version completes our futures
+                                return;
+                            }
+                            lastParseMillis.set(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
                             var diagnosticsList = toDiagnosticsList(t, e); // `t` and `e` are nullable
-
-                            // Complete future to get the tree
-                            if (t == null) {
-                                treeAsync.completeExceptionally(e);
-                            } else {
-                                var tree = new Versioned<>(version, t, timestamp);
-                                Versioned.replaceIfNewer(last, tree);
-                                if (diagnosticsList.isEmpty()) {
-                                    Versioned.replaceIfNewer(lastWithoutErrors, tree);
-                                }
-                                treeAsync.complete(tree);
+                            if (t != null) {
+                                parseTrees.put(location, text, t, diagnosticsList);
                             }
-
-                            // Complete future to get diagnostics
-                            var diagnostics = new Versioned<>(version, diagnosticsList);
-                            diagnosticsAsync.complete(diagnostics);
+                            complete(t, e, diagnosticsList);
                         } catch (Exception exc) {
                             // The action of `whenCompleteAsync` shouldn't throw an exception (see JavaDoc): if it
                             // unexpectedly does, then it is almost surely a bug, but the exception is swallowed, so it
                             // is very hard to debug. The try/catch block and logger call aim to make it easier.
                             logger.error("Unexpected exception after parsing", exc);
                         }
-                    }, exec);
+                    }, PriorityScheduler.lane(exec, Lane.EDIT));
             } catch (NoContributionException e) {
                 logger.debug("Ignoring missing parser for {}", location);
                 treeAsync.completeOnTimeout(new Versioned<>(version, IRascalValueFactory.getInstance().character(0), timestamp), 60, TimeUnit.SECONDS);
             }
         }
 
+        /**
+         * Derive the tree of `text` from the last tree without errors.
+         * @return a future of the tree, which is null if reparsing failed
+         */
+        private CompletableFuture<@Nullable ITree> reparse(ParsedContent base, String text) {
+            return CompletableFuture.supplyAsync(() -> incremental.reparse(location, base.tree, base.content.toString(), text), PriorityScheduler.lane(exec, Lane.EDIT))
+                .thenCompose(Function.identity());
+        }
+
+        private void complete(@Nullable ITree t, @Nullable Throwable e, List<Diagnostics.Template> diagnosticsList) {
+            // Complete future to get the tree
+            if (t == null) {
+                treeAsync.completeExceptionally(e);
+            } else {
+                var tree = new Versioned<>(version, t, timestamp);
+                Versioned.replaceIfNewer(last, tree);
+                if (diagnosticsList.isEmpty()) {
+                    Versioned.replaceIfNewer(lastWithoutErrors, tree);
+                    Versioned.replaceIfNewer(lastParsedWithoutErrors, new Versioned<>(version, new ParsedContent(content, t)));
+                }
+                treeAsync.complete(tree);
+            }
+
+            // Complete future to get diagnostics
+            var diagnostics = new Versioned<>(version, diagnosticsList);
+            diagnosticsAsync.complete(diagnostics);
+        }
+
         private List<Diagnostics.Template> toDiagnosticsList(@Nullable ITree tree, @Nullable Throwable excp) {
             List<Diagnostics.Template> diagnostics = new ArrayList<>();
 
@@ -261,8 +418,12 @@ public class TextDocumentState {
             }
 
             if (tree != null) {
-                for (IValue error : RECOVERY.findAllParseErrors(tree)) {
-                    diagnostics.addAll(Diagnostics.generateParseErrorDiagnostics((ITree) error));
+                var errors = ParseErrors.find(tree, MAX_PARSE_ERRORS);
+                if (errors.size() == MAX_PARSE_ERRORS) {
+                    logger.debug("Reporting only the first {} parse errors of {}", MAX_PARSE_ERRORS, location);
+                }
+                for (ITree error : errors) {
+                    diagnostics.addAll(Diagnostics.generateParseErrorDiagnostics(error));
                 }
             }
 
@@ -270,12 +431,26 @@ public class TextDocumentState {
         }
     }
 
+    /**
+     * A tree together with the contents it was parsed from.
+     */
+    private static final class ParsedContent {
+        private final PieceTable content;
+        private final ITree tree;
+
+        ParsedContent(PieceTable content, ITree tree) {
+            this.content = content;
+            this.tree = tree;
+        }
+    }
+
     public long getLastModified() {
         return unpackCurrent().getTimestamp();
     }
 
-    public TextDocumentState changeParser(BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parsing) {
+    public TextDocumentState changeParser(BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parsing, NonTerminalParser nonTerminalParsing) {
         var c = getCurrentContent();
-        return new TextDocumentState(parsing, this.location, c.version(), c.get(), getLastModified(), exec, getAttributesOnDisk());
+        parseTrees.invalidate(location);
+        return new TextDocumentState(parsing, nonTerminalParsing, this.location, c.version(), c.get(), getLastModified(), exec, getAttributesOnDisk(), parseTrees);
     }
 }
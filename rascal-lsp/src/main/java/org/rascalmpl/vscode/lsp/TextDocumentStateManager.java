@@ -37,7 +37,6 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.function.BiFunction;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.apache.commons.io.IOUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -56,7 +55,7 @@ import org.rascalmpl.util.locations.LineColumnOffsetMap;
 import org.rascalmpl.values.parsetrees.ITree;
 import org.rascalmpl.vscode.lsp.model.DiagnosticsReporter;
 import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
-import org.rascalmpl.vscode.lsp.util.Lists;
+import org.rascalmpl.vscode.lsp.util.IncrementalParsing.NonTerminalParser;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 import io.usethesource.vallang.ISourceLocation;
@@ -65,6 +64,8 @@ import io.usethesource.vallang.ISourceLocation;
  * Manages open files and their contents.
  *
  * This class maintains a set of open files, their state, and information derived from their contents, like column maps.
+ * The column maps of open files are maintained incrementally by their {@link TextDocumentState}, only those of other
+ * files are computed from their contents (and cached).
  * This functionality is shared by implementations of {@link IBaseTextDocumentService}.
  */
 public abstract class TextDocumentStateManager implements ITextDocumentStateManager {
@@ -73,10 +74,10 @@ public abstract class TextDocumentStateManager implements ITextDocumentStateMana
 
     private final Map<ISourceLocation, TextDocumentState> files = new ConcurrentHashMap<>();
     private final ColumnMaps columns;
+    private final ParseTreeCache parseTrees = new ParseTreeCache();
 
-    @SuppressWarnings({"methodref.receiver.bound"}) // this::getContents
     protected TextDocumentStateManager() {
-        this.columns = new ColumnMaps(this::getContents);
+        this.columns = new OpenFileColumnMaps();
     }
 
     protected static ResponseError unknownFileError(ISourceLocation loc, @Nullable Object data) {
@@ -171,8 +172,16 @@ public abstract class TextDocumentStateManager implements ITextDocumentStateMana
 
     }
 
-    protected TextDocumentState openFile(TextDocumentItem doc, Function<ISourceLocation, BiFunction<ISourceLocation, String, CompletableFuture<ITree>>> parserGetter, long timestamp, ExecutorService exec)  {
-        return files.computeIfAbsent(Locations.toLoc(doc), l -> new TextDocumentState(parserGetter.apply(l), l, doc.getVersion(), doc.getText(), timestamp, exec, safeStat(l, timestamp)));
+    protected TextDocumentState openFile(TextDocumentItem doc, Function<ISourceLocation, BiFunction<ISourceLocation, String, CompletableFuture<ITree>>> parserGetter,
+            Function<ISourceLocation, NonTerminalParser> nonTerminalParserGetter, long timestamp, ExecutorService exec)  {
+        return files.computeIfAbsent(Locations.toLoc(doc), l -> new TextDocumentState(parserGetter.apply(l), nonTerminalParserGetter.apply(l), l, doc.getVersion(), doc.getText(), timestamp, exec, safeStat(l, timestamp), parseTrees));
+    }
+
+    /**
+     * Forget the parse trees of all earlier contents, for example since the parser of a language changed.
+     */
+    protected void invalidateParseTrees() {
+        parseTrees.invalidateAll();
     }
 
     private void invalidateColumnMaps(ISourceLocation loc) {
@@ -191,13 +200,13 @@ public abstract class TextDocumentStateManager implements ITextDocumentStateMana
         }
     }
 
-    protected @Nullable TextDocumentState changeParser(ISourceLocation f, BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parser) {
+    protected @Nullable TextDocumentState changeParser(ISourceLocation f, BiFunction<ISourceLocation, String, CompletableFuture<ITree>> parser, NonTerminalParser nonTerminalParser) {
         f = f.top();
         logger.trace("Updating state: {}", f);
 
         // Since we cannot know what happened to this file before we were called, we need to be careful about races.
         // It might have been closed in the meantime, so we compute the new value if the key still exists, based on the current value.
-        var state = files.computeIfPresent(f, (loc, currentState) -> currentState.changeParser(parser));
+        var state = files.computeIfPresent(f, (loc, currentState) -> currentState.changeParser(parser, nonTerminalParser));
         if (state == null) {
             logger.debug("Updating the parser of {} failed, since it was closed.", f);
         }
@@ -212,23 +221,37 @@ public abstract class TextDocumentStateManager implements ITextDocumentStateMana
         var doc = change.getTextDocument();
         logger.trace("New contents for {}", doc);
         TextDocumentState file = getFile(Locations.toLoc(doc));
-        invalidateColumnMaps(file.getLocation());
-        handleParsingErrors(file, file.update(doc.getVersion(), Lists.last(change.getContentChanges()).getText(), timestamp));
+        handleParsingErrors(file, file.update(doc.getVersion(), change.getContentChanges(), timestamp));
         return file;
     }
 
     protected void handleParsingErrors(TextDocumentState file, CompletableFuture<Versioned<List<Diagnostics.Template>>> diagnosticsAsync) {
-        diagnosticsAsync.thenAccept(diagnostics -> {
-            var parseErrors = diagnostics.map(d -> d.stream()
-                .map(diagnostic -> diagnostic.instantiate(getColumnMaps()))
-                .collect(Collectors.toList()));
-
-            var loc = file.getLocation();
-            logger.trace("Finished parsing tree, reporting new parse errors: {} for: {}", parseErrors, loc);
-            getDiagnosticsReporter(loc).reportParseErrors(loc, parseErrors);
-        });
+        diagnosticsAsync
+            .thenCompose(diagnostics -> Diagnostics.instantiate(diagnostics.get(), getColumnMaps(), file.getExecutor())
+                .thenApply(instantiated -> diagnostics.map(d -> instantiated)))
+            .thenAccept(parseErrors -> {
+                var loc = file.getLocation();
+                logger.trace("Finished parsing tree, reporting new parse errors: {} for: {}", parseErrors, loc);
+                getDiagnosticsReporter(loc).reportParseErrors(loc, parseErrors);
+            });
     }
 
     protected abstract DiagnosticsReporter getDiagnosticsReporter(ISourceLocation file);
 
+    private class OpenFileColumnMaps extends ColumnMaps {
+        @SuppressWarnings({"methodref.receiver.bound"}) // TextDocumentStateManager.this::getContents
+        OpenFileColumnMaps() {
+            super(TextDocumentStateManager.this::getContents);
+        }
+
+        @Override
+        public LineColumnOffsetMap get(ISourceLocation loc) {
+            var state = files.get(loc.top());
+            if (state != null) {
+                return state.getCurrentColumns().get();
+            }
+            return super.get(loc);
+        }
+    }
+
 }
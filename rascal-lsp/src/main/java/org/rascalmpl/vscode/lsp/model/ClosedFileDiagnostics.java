@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.lsp4j.Diagnostic;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Remembers the diagnostics of files that were closed, instead of all their facts (summaries,
+ * trees, running calculations). When a file is opened again, its facts start from these
+ * diagnostics, such that diagnostics that are only recalculated on save do not disappear.
+ *
+ * The store is bounded by the total number of diagnostics, which can be configured with
+ * {@link #SIZE_PROPERTY}. Beyond that, files are evicted (roughly least recently used first); their
+ * diagnostics stay visible in the client, but are forgotten here.
+ */
+public class ClosedFileDiagnostics {
+    private static final Logger logger = LogManager.getLogger(ClosedFileDiagnostics.class);
+    public static final String SIZE_PROPERTY = "rascal.lsp.closedFileDiagnostics";
+    private static final long DEFAULT_SIZE = 100_000;
+
+    private final Cache<ISourceLocation, List<Diagnostic>> closed;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ClosedFileDiagnostics() {
+        this(Long.getLong(SIZE_PROPERTY, DEFAULT_SIZE));
+    }
+
+    public ClosedFileDiagnostics(long maximumDiagnostics) {
+        this.closed = Caffeine.newBuilder()
+            .maximumWeight(maximumDiagnostics)
+            // every file counts, also if it has few diagnostics
+            .weigher((ISourceLocation f, List<Diagnostic> ds) -> ds.size() + 1)
+            // evict on the closing thread, which keeps the eviction counter up to date
+            .executor(Runnable::run)
+            .removalListener((ISourceLocation f, List<Diagnostic> ds, RemovalCause cause) -> {
+                if (cause.wasEvicted()) {
+                    evictions.incrementAndGet();
+                    logger.debug("Forgetting the diagnostics of closed file {}", f);
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Remember the diagnostics of a file that was closed.
+     */
+    public void close(ISourceLocation file, List<Diagnostic> diagnostics) {
+        if (diagnostics.isEmpty()) {
+            closed.invalidate(file);
+        } else {
+            closed.put(file, List.copyOf(diagnostics));
+        }
+    }
+
+    /**
+     * @return the diagnostics of `file` when it was closed (or an empty list), which are forgotten here
+     */
+    public List<Diagnostic> reopen(ISourceLocation file) {
+        var diagnostics = closed.asMap().remove(file);
+        return diagnostics == null ? List.of() : diagnostics;
+    }
+
+    /**
+     * @return true iff there were diagnostics for `file`
+     */
+    public boolean remove(ISourceLocation file) {
+        return closed.asMap().remove(file) != null;
+    }
+
+    /**
+     * @return the number of closed files of which the diagnostics were evicted so far
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long size() {
+        return closed.estimatedSize();
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.parametric;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.interpreter.Evaluator;
+import org.rascalmpl.values.functions.IFunction;
+import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
+
+import io.usethesource.vallang.ISet;
+
+/**
+ * A pool of evaluators that all loaded the same main module and contributions of a language.
+ *
+ * An evaluator runs only one job at a time, so with a single evaluator a slow builder blocks
+ * interactive requests like hover. If the pool is larger than one, background work stays on the
+ * first evaluator, and interactive requests are spread over the other evaluators, which are
+ * only loaded once they are needed.
+ *
+ * The size of the pool is read from the `rascal.lsp.evaluators` system property, and defaults to a
+ * single evaluator, since every additional evaluator costs the memory and the time to load the language.
+ */
+final class EvaluatorPool {
+    static final String SIZE_PROPERTY = "rascal.lsp.evaluators";
+
+    enum Affinity {
+        /** requests the user is waiting for, like hover and completion */
+        INTERACTIVE,
+        /** summarizers and commands */
+        BACKGROUND
+    }
+
+    private final int size;
+    private final Supplier<Instance> loader;
+    private final Instance primary;
+    private final List<Instance> interactive = new ArrayList<>();
+
+    EvaluatorPool(int size, Supplier<Instance> loader) {
+        this(size, loader, loader);
+    }
+
+    /**
+     * @param primaryLoader loads the primary evaluator, which might be one that was loaded before
+     * @param loader loads the additional evaluators
+     */
+    EvaluatorPool(int size, Supplier<Instance> primaryLoader, Supplier<Instance> loader) {
+        this.size = Math.max(1, size);
+        this.loader = loader;
+        this.primary = primaryLoader.get();
+    }
+
+    static int configuredSize() {
+        return Math.max(1, Integer.getInteger(SIZE_PROPERTY, 1));
+    }
+
+    /**
+     * The evaluator that is loaded eagerly, and that runs all background work.
+     */
+    Instance primary() {
+        return primary;
+    }
+
+    /**
+     * Select the evaluator for a request. An interactive request gets the least busy interactive
+     * evaluator; if all of them are busy and the pool is not full yet, a new evaluator is loaded.
+     */
+    Instance select(Affinity affinity) {
+        if (affinity == Affinity.BACKGROUND || size == 1) {
+            return primary;
+        }
+        synchronized (interactive) {
+            @Nullable Instance best = null;
+            for (var candidate : interactive) {
+                if (best == null || candidate.running.get() < best.running.get()) {
+                    best = candidate;
+                }
+            }
+            if (best == null || (best.running.get() > 0 && interactive.size() < size - 1)) {
+                best = loader.get();
+                interactive.add(best);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * An evaluator in the pool, together with the contributions it loaded.
+     */
+    static final class Instance {
+        private final CompletableFuture<Evaluator> eval;
+        private final CompletableFuture<ISet> contributions;
+        private final AtomicInteger running = new AtomicInteger(0);
+
+        Instance(CompletableFuture<Evaluator> eval, CompletableFuture<ISet> contributions) {
+            this.eval = eval;
+            this.contributions = contributions;
+        }
+
+        CompletableFuture<Evaluator> getEvaluator() {
+            return eval;
+        }
+
+        CompletableFuture<ISet> getContributions() {
+            return contributions;
+        }
+
+        /**
+         * Count the job as running on this evaluator until it completes.
+         */
+        <T> InterruptibleFuture<T> track(InterruptibleFuture<T> job) {
+            running.incrementAndGet();
+            job.get().whenComplete((r, e) -> running.decrementAndGet());
+            return job;
+        }
+    }
+
+    /**
+     * A function from the contributions. Closures are bound to the evaluator that created them,
+     * so every evaluator in the pool looks it up in its own contributions.
+     */
+    static final class Contribution {
+        private final Function<CompletableFuture<ISet>, CompletableFuture<@Nullable IFunction>> lookup;
+        private final Map<Instance, CompletableFuture<@Nullable IFunction>> resolved = new ConcurrentHashMap<>();
+
+        Contribution(Function<CompletableFuture<ISet>, CompletableFuture<@Nullable IFunction>> lookup) {
+            this.lookup = lookup;
+        }
+
+        CompletableFuture<@Nullable IFunction> in(Instance instance) {
+            return resolved.computeIfAbsent(instance, i -> lookup.apply(i.getContributions()));
+        }
+    }
+}
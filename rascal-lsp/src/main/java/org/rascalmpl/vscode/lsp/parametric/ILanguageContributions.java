@@ -48,6 +48,8 @@ public interface ILanguageContributions {
     public String getName();
 
     public CompletableFuture<ITree> parsing(ISourceLocation loc, String input);
+    /** parse a part of a file as `symbol`, for incremental parsing */
+    public CompletableFuture<ITree> parsing(ISourceLocation loc, String input, IConstructor symbol);
     public InterruptibleFuture<IConstructor> analysis(ISourceLocation loc, ITree input);
     public InterruptibleFuture<IConstructor> build(ISourceLocation loc, ITree input);
     public InterruptibleFuture<IList> documentSymbol(ITree input);
@@ -72,6 +74,8 @@ public interface ILanguageContributions {
     public CompletableFuture<IList> parseCodeActions(String command);
     public CompletableFuture<IConstructor> parseCallHierarchyData(String data);
 
+    /** whether {@link #parsing(ISourceLocation, String, IConstructor)} can be used at all */
+    public CompletableFuture<Boolean> providesNonTerminalParsing();
     public CompletableFuture<Boolean> providesAnalysis();
     public CompletableFuture<Boolean> providesBuild();
     public CompletableFuture<Boolean> providesDocumentSymbol();
@@ -95,6 +99,12 @@ public interface ILanguageContributions {
     public CompletableFuture<SummaryConfig> getBuilderSummaryConfig();
     public CompletableFuture<SummaryConfig> getOndemandSummaryConfig();
 
+    /**
+     * Identifies the implementation of the contributions, such that results of one implementation
+     * that are stored on disk, are not used with another.
+     */
+    public CompletableFuture<String> getFingerprint();
+
     public static class SummaryConfig {
         public final boolean providesHovers;
         public final boolean providesDefinitions;
@@ -31,6 +31,7 @@ import java.io.StringReader;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -49,12 +50,17 @@ import org.rascalmpl.vscode.lsp.BaseWorkspaceService;
 import org.rascalmpl.vscode.lsp.IBaseLanguageClient;
 import org.rascalmpl.vscode.lsp.IBaseTextDocumentService;
 import org.rascalmpl.vscode.lsp.RascalLSPMonitor;
+import org.rascalmpl.vscode.lsp.parametric.EvaluatorPool.Affinity;
 import org.rascalmpl.vscode.lsp.parametric.LanguageRegistry.LanguageParameter;
 import org.rascalmpl.vscode.lsp.parametric.model.RascalADTs.LanguageContributions;
 import org.rascalmpl.vscode.lsp.rascal.conversion.KeywordParameter;
+import org.rascalmpl.vscode.lsp.util.Digests;
 import org.rascalmpl.vscode.lsp.util.EvaluatorUtil;
 import org.rascalmpl.vscode.lsp.util.EvaluatorUtil.LSPContext;
+import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
 import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 
 import io.usethesource.vallang.IBool;
 import io.usethesource.vallang.IConstructor;
@@ -79,28 +85,28 @@ public class InterpretedLanguageContributions implements ILanguageContributions
     private final String name;
     private final String mainModule;
 
-    private final CompletableFuture<Evaluator> eval;
+    private final EvaluatorPool pool;
     private final CompletableFuture<TypeStore> store;
 
     private final CompletableFuture<IFunction> parsing;
-    private final CompletableFuture<@Nullable IFunction> analysis;
-    private final CompletableFuture<@Nullable IFunction> build;
-    private final CompletableFuture<@Nullable IFunction> documentSymbol;
-    private final CompletableFuture<@Nullable IFunction> codeLens;
-    private final CompletableFuture<@Nullable IFunction> inlayHint;
-    private final CompletableFuture<@Nullable IFunction> execution;
-    private final CompletableFuture<@Nullable IFunction> hover;
-    private final CompletableFuture<@Nullable IFunction> definition;
-    private final CompletableFuture<@Nullable IFunction> references;
-    private final CompletableFuture<@Nullable IFunction> implementation;
-    private final CompletableFuture<@Nullable IFunction> codeAction;
-    private final CompletableFuture<@Nullable IFunction> prepareRename;
-    private final CompletableFuture<@Nullable IFunction> rename;
-    private final CompletableFuture<@Nullable IFunction> didRenameFiles;
-    private final CompletableFuture<@Nullable IFunction> selectionRange;
-    private final CompletableFuture<@Nullable IFunction> prepareCallHierarchy;
-    private final CompletableFuture<@Nullable IFunction> callHierarchyService;
-    private final CompletableFuture<@Nullable IFunction> completion;
+    private final EvaluatorPool.Contribution analysis;
+    private final EvaluatorPool.Contribution build;
+    private final EvaluatorPool.Contribution documentSymbol;
+    private final EvaluatorPool.Contribution codeLens;
+    private final EvaluatorPool.Contribution inlayHint;
+    private final EvaluatorPool.Contribution execution;
+    private final EvaluatorPool.Contribution hover;
+    private final EvaluatorPool.Contribution definition;
+    private final EvaluatorPool.Contribution references;
+    private final EvaluatorPool.Contribution implementation;
+    private final EvaluatorPool.Contribution codeAction;
+    private final EvaluatorPool.Contribution prepareRename;
+    private final EvaluatorPool.Contribution rename;
+    private final EvaluatorPool.Contribution didRenameFiles;
+    private final EvaluatorPool.Contribution selectionRange;
+    private final EvaluatorPool.Contribution prepareCallHierarchy;
+    private final EvaluatorPool.Contribution callHierarchyService;
+    private final EvaluatorPool.Contribution completion;
     private final CompletableFuture<IList> completionTriggerCharacters;
 
     private final CompletableFuture<Boolean> providesAnalysis;
@@ -125,10 +131,18 @@ public class InterpretedLanguageContributions implements ILanguageContributions
     private final CompletableFuture<SummaryConfig> analyzerSummaryConfig;
     private final CompletableFuture<SummaryConfig> builderSummaryConfig;
     private final CompletableFuture<SummaryConfig> ondemandSummaryConfig;
+    private final CompletableFuture<byte[]> fingerprint;
     private final IBaseLanguageClient client;
     private final RascalLSPMonitor monitor;
 
     public InterpretedLanguageContributions(LanguageParameter lang, IBaseTextDocumentService docService, BaseWorkspaceService workspaceService, IBaseLanguageClient client, ExecutorService exec) {
+        this(lang, docService, workspaceService, client, exec, new WarmEvaluators());
+    }
+
+    /**
+     * @param warm evaluators of earlier registrations, of which the primary evaluator is reused if the sources of the language did not change
+     */
+    InterpretedLanguageContributions(LanguageParameter lang, IBaseTextDocumentService docService, BaseWorkspaceService workspaceService, IBaseLanguageClient client, ExecutorService exec, WarmEvaluators warm) {
         this.client = client;
         this.name = lang.getName();
         this.mainModule = lang.getMainModule();
@@ -138,55 +152,58 @@ public class InterpretedLanguageContributions implements ILanguageContributions
             var pcfg = PathConfig.parse(lang.getPathConfig());
             pcfg = EvaluatorUtil.addLSPSources(pcfg, false);
 
-            monitor = new RascalLSPMonitor(client, LogManager.getLogger(logger.getName() + "[" + lang.getName() + "]"), lang.getName() + ": ");
+            // shared with earlier registrations of this contributor, of which the evaluator might be reused
+            monitor = warm.monitor(lang, () -> new RascalLSPMonitor(client, LogManager.getLogger(logger.getName() + "[" + lang.getName() + "]"), lang.getName() + ": "));
 
-            this.eval = EvaluatorUtil.makeFutureEvaluator(new LSPContext(exec, docService, workspaceService, client),
-                "evaluator for " + lang.getName(), monitor, pcfg, lang.getMainModule());
-            var contributions = EvaluatorUtil.runEvaluator(name + ": loading contributions", eval,
-                e -> loadContributions(e, lang),
-                ValueFactoryFactory.getValueFactory().set(),
-                exec, true, client).get();
+            var context = new LSPContext(exec, docService, workspaceService, client);
+            var langPcfg = pcfg;
+            var langMonitor = monitor;
+            Supplier<EvaluatorPool.Instance> loader = () -> loadEvaluator(context, langMonitor, langPcfg, lang, exec, client);
+            // fingerprinting lists all sources, so it should not hold up the registration of the language
+            this.fingerprint = CompletableFuture.supplyAsync(() -> WarmEvaluators.fingerprint(lang, langPcfg), PriorityScheduler.lane(exec, Lane.BACKGROUND));
+            this.pool = new EvaluatorPool(EvaluatorPool.configuredSize(), () -> warm.get(lang, fingerprint, loader, exec), loader);
+            var contributions = pool.primary().getContributions();
 
-            this.store = eval.thenApply(e -> ((ModuleEnvironment)e.getModule(mainModule)).getStore());
+            this.store = pool.primary().getEvaluator().thenApply(e -> ((ModuleEnvironment)e.getModule(mainModule)).getStore());
 
             this.parsing = requireFunction(contributions, LanguageContributions.PARSING);
-            this.analysis = getFunctionFor(contributions, LanguageContributions.ANALYSIS);
-            this.build = getFunctionFor(contributions, LanguageContributions.BUILD);
-            this.documentSymbol = getFunctionFor(contributions, LanguageContributions.DOCUMENT_SYMBOL);
-            this.codeLens = getFunctionFor(contributions, LanguageContributions.CODE_LENS);
-            this.inlayHint = getFunctionFor(contributions, LanguageContributions.INLAY_HINT);
-            this.execution = getFunctionFor(contributions, LanguageContributions.EXECUTION);
-            this.hover = getFunctionFor(contributions, LanguageContributions.HOVER);
-            this.definition = getFunctionFor(contributions, LanguageContributions.DEFINITION);
-            this.references = getFunctionFor(contributions, LanguageContributions.REFERENCES);
-            this.implementation = getFunctionFor(contributions, LanguageContributions.IMPLEMENTATION);
-            this.codeAction = getFunctionFor(contributions, LanguageContributions.CODE_ACTION);
-            this.prepareRename = getKeywordParamFunctionFor(contributions, LanguageContributions.RENAME, LanguageContributions.PREPARE_RENAME_SERVICE);
-            this.rename = getFunctionFor(contributions, LanguageContributions.RENAME);
-            this.didRenameFiles = getFunctionFor(contributions, LanguageContributions.DID_RENAME_FILES);
-            this.selectionRange = getFunctionFor(contributions, LanguageContributions.SELECTION_RANGE);
-            this.prepareCallHierarchy = getFunctionFor(contributions, LanguageContributions.CALL_HIERARCHY, 0);
-            this.callHierarchyService = getFunctionFor(contributions, LanguageContributions.CALL_HIERARCHY, 1);
-            this.completion = getFunctionFor(contributions, LanguageContributions.COMPLETION);
+            this.analysis = functionFor(LanguageContributions.ANALYSIS);
+            this.build = functionFor(LanguageContributions.BUILD);
+            this.documentSymbol = functionFor(LanguageContributions.DOCUMENT_SYMBOL);
+            this.codeLens = functionFor(LanguageContributions.CODE_LENS);
+            this.inlayHint = functionFor(LanguageContributions.INLAY_HINT);
+            this.execution = functionFor(LanguageContributions.EXECUTION);
+            this.hover = functionFor(LanguageContributions.HOVER);
+            this.definition = functionFor(LanguageContributions.DEFINITION);
+            this.references = functionFor(LanguageContributions.REFERENCES);
+            this.implementation = functionFor(LanguageContributions.IMPLEMENTATION);
+            this.codeAction = functionFor(LanguageContributions.CODE_ACTION);
+            this.prepareRename = keywordParamFunctionFor(LanguageContributions.RENAME, LanguageContributions.PREPARE_RENAME_SERVICE);
+            this.rename = functionFor(LanguageContributions.RENAME);
+            this.didRenameFiles = functionFor(LanguageContributions.DID_RENAME_FILES);
+            this.selectionRange = functionFor(LanguageContributions.SELECTION_RANGE);
+            this.prepareCallHierarchy = functionFor(LanguageContributions.CALL_HIERARCHY, 0);
+            this.callHierarchyService = functionFor(LanguageContributions.CALL_HIERARCHY, 1);
+            this.completion = functionFor(LanguageContributions.COMPLETION);
             this.completionTriggerCharacters = getContributionParameter(contributions, LanguageContributions.COMPLETION, LanguageContributions.COMPLETION_TRIGGER_CHARACTERS, VF.list(), IList.class);
 
             // assign boolean properties once instead of wasting futures all the time
-            this.providesAnalysis = nonNull(this.analysis);
-            this.providesBuild = nonNull(this.build);
-            this.providesDocumentSymbol = nonNull(this.documentSymbol);
-            this.providesCodeLens = nonNull(this.codeLens);
-            this.providesInlayHint = nonNull(this.inlayHint);
-            this.providesExecution = nonNull(this.execution);
-            this.providesHover = nonNull(this.hover);
-            this.providesDefinition = nonNull(this.definition);
-            this.providesReferences = nonNull(this.references);
-            this.providesImplementation = nonNull(this.implementation);
-            this.providesCodeAction = nonNull(this.codeAction);
-            this.providesRename = nonNull(this.rename);
-            this.providesDidRenameFiles = nonNull(this.didRenameFiles);
-            this.providesSelectionRange = nonNull(this.selectionRange);
-            this.providesCallHierarchy = nonNull(this.prepareCallHierarchy);
-            this.providesCompletion = nonNull(this.completion);
+            this.providesAnalysis = nonNull(pool, this.analysis);
+            this.providesBuild = nonNull(pool, this.build);
+            this.providesDocumentSymbol = nonNull(pool, this.documentSymbol);
+            this.providesCodeLens = nonNull(pool, this.codeLens);
+            this.providesInlayHint = nonNull(pool, this.inlayHint);
+            this.providesExecution = nonNull(pool, this.execution);
+            this.providesHover = nonNull(pool, this.hover);
+            this.providesDefinition = nonNull(pool, this.definition);
+            this.providesReferences = nonNull(pool, this.references);
+            this.providesImplementation = nonNull(pool, this.implementation);
+            this.providesCodeAction = nonNull(pool, this.codeAction);
+            this.providesRename = nonNull(pool, this.rename);
+            this.providesDidRenameFiles = nonNull(pool, this.didRenameFiles);
+            this.providesSelectionRange = nonNull(pool, this.selectionRange);
+            this.providesCallHierarchy = nonNull(pool, this.prepareCallHierarchy);
+            this.providesCompletion = nonNull(pool, this.completion);
 
             this.specialCaseHighlighting = getContributionParameter(contributions,
                 LanguageContributions.PARSING,
@@ -202,8 +219,17 @@ public class InterpretedLanguageContributions implements ILanguageContributions
         }
     }
 
-    private static CompletableFuture<Boolean> nonNull(CompletableFuture<?> x) {
-        return x.thenApply(Objects::nonNull);
+    private static EvaluatorPool.Instance loadEvaluator(LSPContext context, RascalLSPMonitor monitor, PathConfig pcfg, LanguageParameter lang, ExecutorService exec, IBaseLanguageClient client) {
+        var eval = EvaluatorUtil.makeFutureEvaluator(context, "evaluator for " + lang.getName(), monitor, pcfg, lang.getMainModule());
+        var contributions = EvaluatorUtil.runEvaluator(lang.getName() + ": loading contributions", eval,
+            e -> loadContributions(e, lang),
+            ValueFactoryFactory.getValueFactory().set(),
+            exec, true, client).get();
+        return new EvaluatorPool.Instance(eval, contributions);
+    }
+
+    private static CompletableFuture<Boolean> nonNull(EvaluatorPool pool, EvaluatorPool.Contribution x) {
+        return x.in(pool.primary()).thenApply(Objects::nonNull);
     }
 
     private static CompletableFuture<SummaryConfig> scheduledSummaryConfig(CompletableFuture<ISet> contributions, String summarizer) {
@@ -355,18 +381,20 @@ public class InterpretedLanguageContributions implements ILanguageContributions
         });
     }
 
-    private static CompletableFuture<@Nullable IFunction> getFunctionFor(CompletableFuture<ISet> contributions, String cons) {
-        return getFunctionFor(contributions, cons, 0);
+    private static EvaluatorPool.Contribution functionFor(String cons) {
+        return functionFor(cons, 0);
     }
 
-    private static CompletableFuture<@Nullable IFunction> getFunctionFor(CompletableFuture<ISet> contributions, String cons, int argumentPos) {
-        return getContribution(contributions, cons).thenApply(contribution -> contribution != null ? (IFunction) contribution.get(argumentPos) : null);
+    private static EvaluatorPool.Contribution functionFor(String cons, int argumentPos) {
+        return new EvaluatorPool.Contribution(contributions -> getContribution(contributions, cons).thenApply(contribution ->
+            contribution != null ? (IFunction) contribution.get(argumentPos) : null
+        ));
     }
 
-    private static CompletableFuture<@Nullable IFunction> getKeywordParamFunctionFor(CompletableFuture<ISet> contributions, String cons, String kwParam) {
-        return getContribution(contributions, cons).thenApply(contribution ->
+    private static EvaluatorPool.Contribution keywordParamFunctionFor(String cons, String kwParam) {
+        return new EvaluatorPool.Contribution(contributions -> getContribution(contributions, cons).thenApply(contribution ->
             contribution != null ? (IFunction) contribution.asWithKeywordParameters().getParameter(kwParam) : null
-        );
+        ));
     }
 
     @Override
@@ -377,108 +405,114 @@ public class InterpretedLanguageContributions implements ILanguageContributions
     @Override
     public CompletableFuture<ITree> parsing(ISourceLocation loc, String input) {
         debug(LanguageContributions.PARSING, loc, input);
-        return parsing.thenApplyAsync(p -> p.call(VF.string(input), loc), exec);
+        return parsing.thenApplyAsync(p -> p.call(VF.string(input), loc), PriorityScheduler.lane(exec, Lane.EDIT));
+    }
+
+    @Override
+    public CompletableFuture<ITree> parsing(ISourceLocation loc, String input, IConstructor symbol) {
+        // the parser contribution only parses complete files (see `providesNonTerminalParsing`)
+        return CompletableFuture.failedFuture(new UnsupportedOperationException("parsing " + symbol));
     }
 
     @Override
     public InterruptibleFuture<IList> documentSymbol(ITree input) {
         debug(LanguageContributions.DOCUMENT_SYMBOL, TreeAdapter.getLocation(input));
-        return execFunction(LanguageContributions.DOCUMENT_SYMBOL, documentSymbol, VF.list(), input);
+        return execFunction(LanguageContributions.DOCUMENT_SYMBOL, Affinity.INTERACTIVE, documentSymbol, VF.list(), input);
     }
 
     @Override
     public InterruptibleFuture<IConstructor> analysis(ISourceLocation src, ITree input) {
         debug(LanguageContributions.ANALYSIS, src);
-        return execFunction(LanguageContributions.ANALYSIS, analysis, EmptySummary.newInstance(src), src, input);
+        return execFunction(LanguageContributions.ANALYSIS, Affinity.BACKGROUND, analysis, EmptySummary.newInstance(src), src, input);
     }
 
     @Override
     public InterruptibleFuture<IConstructor> build(ISourceLocation src, ITree input) {
         debug(LanguageContributions.BUILD, src);
-        return execFunction(LanguageContributions.BUILD, build, EmptySummary.newInstance(src), src, input);
+        return execFunction(LanguageContributions.BUILD, Affinity.BACKGROUND, build, EmptySummary.newInstance(src), src, input);
     }
 
     @Override
     public InterruptibleFuture<IList> codeLens(ITree input) {
         debug(LanguageContributions.CODE_LENS, TreeAdapter.getLocation(input));
-        return execFunction(LanguageContributions.CODE_LENS, codeLens, VF.list(), input);
+        return execFunction(LanguageContributions.CODE_LENS, Affinity.INTERACTIVE, codeLens, VF.list(), input);
     }
 
     @Override
     public InterruptibleFuture<IList> inlayHint(ITree input) {
         debug(LanguageContributions.INLAY_HINT, TreeAdapter.getLocation(input));
-        return execFunction(LanguageContributions.INLAY_HINT, inlayHint, VF.list(), input);
+        return execFunction(LanguageContributions.INLAY_HINT, Affinity.INTERACTIVE, inlayHint, VF.list(), input);
     }
 
     @Override
     public InterruptibleFuture<ISourceLocation> prepareRename(IList focus) {
         debug(LanguageContributions.PREPARE_RENAME_SERVICE, focus.isEmpty() ? "" : focus.get(0));
-        return execFunction(LanguageContributions.PREPARE_RENAME_SERVICE, prepareRename, URIUtil.unknownLocation(), focus);
+        return execFunction(LanguageContributions.PREPARE_RENAME_SERVICE, Affinity.INTERACTIVE, prepareRename, URIUtil.unknownLocation(), focus);
     }
 
     @Override
     public InterruptibleFuture<ITuple> rename(IList focus, String newName) {
         debug(LanguageContributions.RENAME_SERVICE, newName, focus.isEmpty() ? "" : focus.get(0));
-        return execFunction(LanguageContributions.RENAME_SERVICE, rename, VF.tuple(VF.list(), VF.set()), focus, VF.string(newName));
+        return execFunction(LanguageContributions.RENAME_SERVICE, Affinity.INTERACTIVE, rename, VF.tuple(VF.list(), VF.set()), focus, VF.string(newName));
     }
 
     @Override
     public InterruptibleFuture<ITuple> didRenameFiles(IList fileRenames) {
         debug(LanguageContributions.DID_RENAME_FILES, fileRenames);
-        return execFunction(LanguageContributions.DID_RENAME_FILES, didRenameFiles, VF.tuple(VF.list(), VF.set()), fileRenames);
+        return execFunction(LanguageContributions.DID_RENAME_FILES, Affinity.BACKGROUND, didRenameFiles, VF.tuple(VF.list(), VF.set()), fileRenames);
     }
 
     @Override
     public InterruptibleFuture<ISet> hover(IList focus) {
         debug(LanguageContributions.HOVER, focus.length());
-        return execFunction(LanguageContributions.HOVER, hover, VF.set(), focus);
+        return execFunction(LanguageContributions.HOVER, Affinity.INTERACTIVE, hover, VF.set(), focus);
     }
 
     @Override
     public InterruptibleFuture<ISet> definition(IList focus) {
         debug(LanguageContributions.DEFINITION, focus.length());
-        return execFunction(LanguageContributions.DEFINITION, definition, VF.set(), focus);
+        return execFunction(LanguageContributions.DEFINITION, Affinity.INTERACTIVE, definition, VF.set(), focus);
     }
 
     @Override
     public InterruptibleFuture<ISet> implementation(IList focus) {
         debug(LanguageContributions.IMPLEMENTATION, focus.length());
-        return execFunction(LanguageContributions.IMPLEMENTATION, implementation, VF.set(), focus);
+        return execFunction(LanguageContributions.IMPLEMENTATION, Affinity.INTERACTIVE, implementation, VF.set(), focus);
     }
 
     @Override
     public InterruptibleFuture<ISet> references(IList focus) {
         debug(LanguageContributions.REFERENCES, focus.length());
-        return execFunction(LanguageContributions.REFERENCES, references, VF.set(), focus);
+        return execFunction(LanguageContributions.REFERENCES, Affinity.INTERACTIVE, references, VF.set(), focus);
     }
 
     @Override
     public InterruptibleFuture<IList> codeAction(IList focus) {
         debug(LanguageContributions.CODE_ACTION, focus.length());
-        return execFunction(LanguageContributions.CODE_ACTION, codeAction, VF.list(), focus);
+        return execFunction(LanguageContributions.CODE_ACTION, Affinity.INTERACTIVE, codeAction, VF.list(), focus);
     }
 
     @Override
     public InterruptibleFuture<IList> selectionRange(IList focus) {
         debug(LanguageContributions.SELECTION_RANGE, focus.length());
-        return execFunction(LanguageContributions.SELECTION_RANGE, selectionRange, VF.list(), focus);
+        return execFunction(LanguageContributions.SELECTION_RANGE, Affinity.INTERACTIVE, selectionRange, VF.list(), focus);
     }
 
     public InterruptibleFuture<IList> prepareCallHierarchy(IList focus) {
         debug(LanguageContributions.CALL_HIERARCHY, "prepare", focus.length());
-        return execFunction(LanguageContributions.CALL_HIERARCHY, prepareCallHierarchy, VF.list(), focus);
+        return execFunction(LanguageContributions.CALL_HIERARCHY, Affinity.INTERACTIVE, prepareCallHierarchy, VF.list(), focus);
     }
 
     @Override
     public InterruptibleFuture<IList> incomingOutgoingCalls(IConstructor hierarchyItem, IConstructor direction) {
         debug(LanguageContributions.CALL_HIERARCHY, hierarchyItem.has("name") ? hierarchyItem.get("name") : "?", direction.getName());
-        return execFunction(LanguageContributions.CALL_HIERARCHY, callHierarchyService, VF.list(), hierarchyItem, direction);
+        return execFunction(LanguageContributions.CALL_HIERARCHY, Affinity.INTERACTIVE, callHierarchyService, VF.list(), hierarchyItem, direction);
     }
 
     @Override
     public InterruptibleFuture<IList> completion(IList focus, IInteger cursorOffset, IConstructor trigger) {
         debug(LanguageContributions.COMPLETION, focus.length());
-        return execFunction(LanguageContributions.COMPLETION, completion, VF.list(), focus, cursorOffset, trigger);
+        return execFunction(LanguageContributions.COMPLETION, Affinity.INTERACTIVE, completion, VF.list(), focus, cursorOffset, trigger);
     }
 
     @Override
@@ -573,6 +607,11 @@ public class InterpretedLanguageContributions implements ILanguageContributions
         return providesBuild;
     }
 
+    @Override
+    public CompletableFuture<Boolean> providesNonTerminalParsing() {
+        return CompletableFutureUtils.completedFuture(false, exec);
+    }
+
     @Override
     public CompletableFuture<Boolean> specialCaseHighlighting() {
         return specialCaseHighlighting;
@@ -593,13 +632,19 @@ public class InterpretedLanguageContributions implements ILanguageContributions
         return ondemandSummaryConfig;
     }
 
+    @Override
+    public CompletableFuture<String> getFingerprint() {
+        return fingerprint.thenApply(Digests::hex);
+    }
+
     @Override
     public InterruptibleFuture<IValue> execution(String command) {
         logger.debug("executeCommand({}...) (full command value in TRACE level)", () -> command.substring(0, Math.min(10, command.length())));
         logger.trace("Full command: {}", command);
 
+        var instance = pool.select(Affinity.BACKGROUND);
         return InterruptibleFuture.flatten(parseCommand(command).thenCombine(
-            execution,
+            execution.in(instance),
             (cons, func) -> {
 
                 if (func == null) {
@@ -608,30 +653,31 @@ public class InterpretedLanguageContributions implements ILanguageContributions
 
                 }
 
-                return EvaluatorUtil.runEvaluator(
+                return instance.track(EvaluatorUtil.runEvaluator(
                     "executeCommand",
-                    eval,
+                    instance.getEvaluator(),
                     ev -> func.call(cons),
                     VF.bool(false),
-                    exec,
+                    PriorityScheduler.lane(exec, Lane.BACKGROUND),
                     true,
                     client
-                );
+                ));
             }
         ), exec);
     }
 
-    private <T extends @NonNull Object> InterruptibleFuture<T> execFunction(String name, CompletableFuture<@Nullable IFunction> target, T defaultResult, IValue... args) {
-        if (target == null) {
-            return InterruptibleFuture.completedFuture(defaultResult, exec);
-        }
-        return InterruptibleFuture.flatten(target.thenApply(
+    private <T extends @NonNull Object> InterruptibleFuture<T> execFunction(String name, Affinity affinity, EvaluatorPool.Contribution target, T defaultResult, IValue... args) {
+        var instance = pool.select(affinity);
+        return InterruptibleFuture.flatten(target.in(instance).thenApply(
             s -> {
                 if (s == null) {
                     return InterruptibleFuture.completedFuture(defaultResult, exec);
                 }
 
-                return EvaluatorUtil.runEvaluator(name, eval, e -> s.call(args), defaultResult, exec, true, client);
+                if (affinity == Affinity.BACKGROUND) {
+                    return PriorityScheduler.preemptible(exec, instance.track(EvaluatorUtil.runEvaluator(name, instance.getEvaluator(), e -> s.call(args), defaultResult, PriorityScheduler.lane(exec, Lane.BACKGROUND), true, client)));
+                }
+                return instance.track(EvaluatorUtil.runEvaluator(name, instance.getEvaluator(), e -> s.call(args), defaultResult, PriorityScheduler.lane(exec, Lane.INTERACTIVE), true, client));
             }),
             exec);
     }
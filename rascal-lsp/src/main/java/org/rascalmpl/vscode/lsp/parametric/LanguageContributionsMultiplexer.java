@@ -96,10 +96,12 @@ public class LanguageContributionsMultiplexer implements ILanguageContributions
     private volatile CompletableFuture<Boolean> providesCompletion = failedInitialization();
 
     private volatile CompletableFuture<Boolean> specialCaseHighlighting = failedInitialization();
+    private volatile CompletableFuture<Boolean> providesNonTerminalParsing = failedInitialization();
 
     private volatile CompletableFuture<SummaryConfig> analyzerSummaryConfig;
     private volatile CompletableFuture<SummaryConfig> builderSummaryConfig;
     private volatile CompletableFuture<SummaryConfig> ondemandSummaryConfig;
+    private volatile CompletableFuture<String> fingerprint = failedInitialization();
 
     public LanguageContributionsMultiplexer(String name, ExecutorService ownService) {
         this.name = name;
@@ -194,10 +196,16 @@ public class LanguageContributionsMultiplexer implements ILanguageContributions
         // contribution (possibly using the default value in the Rascal ADT if
         // it's not explicitly set), just as for `parsing` itself
         specialCaseHighlighting = firstOrFail().specialCaseHighlighting();
+        // non-terminals are parsed by the same contribution as whole files
+        providesNonTerminalParsing = firstOrFail().providesNonTerminalParsing();
 
         analyzerSummaryConfig = anyTrue(ILanguageContributions::getAnalyzerSummaryConfig, SummaryConfig.FALSY, SummaryConfig::or);
         builderSummaryConfig = anyTrue(ILanguageContributions::getBuilderSummaryConfig, SummaryConfig.FALSY, SummaryConfig::or);
         ondemandSummaryConfig = anyTrue(ILanguageContributions::getOndemandSummaryConfig, SummaryConfig.FALSY, SummaryConfig::or);
+
+        // results depend on all contributions, in the order they are routed
+        fingerprint = CompletableFutureUtils.reduce(contributions.stream().map(c -> c.contrib.getFingerprint()),
+            CompletableFutureUtils.completedFuture("", exec), (l, r) -> l + "/" + r);
     }
 
     private ILanguageContributions firstOrFail() {
@@ -261,6 +269,15 @@ public class LanguageContributionsMultiplexer implements ILanguageContributions
         return p.parsing(loc, input);
     }
 
+    @Override
+    public CompletableFuture<ITree> parsing(ISourceLocation loc, String input, IConstructor symbol) {
+        var p = parsing;
+        if (p == null) {
+            return failedInitialization();
+        }
+        return p.parsing(loc, input, symbol);
+    }
+
     private <T> InterruptibleFuture<T> flatten(CompletableFuture<ILanguageContributions> target, Function<ILanguageContributions, InterruptibleFuture<T>> call) {
         return InterruptibleFuture.flatten(target.thenApply(call), exec);
     }
@@ -449,6 +466,11 @@ public class LanguageContributionsMultiplexer implements ILanguageContributions
         return providesCompletion;
     }
 
+    @Override
+    public CompletableFuture<Boolean> providesNonTerminalParsing() {
+        return providesNonTerminalParsing;
+    }
+
     @Override
     public CompletableFuture<Boolean> specialCaseHighlighting() {
         return specialCaseHighlighting;
@@ -469,6 +491,11 @@ public class LanguageContributionsMultiplexer implements ILanguageContributions
         return ondemandSummaryConfig;
     }
 
+    @Override
+    public CompletableFuture<String> getFingerprint() {
+        return fingerprint;
+    }
+
     @Override
     public void cancelProgress(String progressId) {
         contributions.forEach(klc -> klc.contrib.cancelProgress(progressId));
@@ -90,6 +90,11 @@ public class NoContributions implements ILanguageContributions {
         throw new NoContributionException("parsing");
     }
 
+    @Override
+    public CompletableFuture<ITree> parsing(ISourceLocation loc, String input, IConstructor symbol) {
+        throw new NoContributionException("parsing");
+    }
+
     @Override
     public InterruptibleFuture<IConstructor> analysis(ISourceLocation loc, ITree input) {
         return interruptible(EmptySummary.newInstance(loc));
@@ -279,6 +284,11 @@ public class NoContributions implements ILanguageContributions {
         return falsy;
     }
 
+    @Override
+    public CompletableFuture<Boolean> providesNonTerminalParsing() {
+        return falsy;
+    }
+
     @Override
     public CompletableFuture<Boolean> specialCaseHighlighting() {
         return falsy;
@@ -299,6 +309,11 @@ public class NoContributions implements ILanguageContributions {
         return completable(SummaryConfig.FALSY);
     }
 
+    @Override
+    public CompletableFuture<String> getFingerprint() {
+        return completable("");
+    }
+
     @Override
     public void cancelProgress(String progressId) {
         logger.trace("Cancelling progress {} not supported on dummy contributions.", progressId);
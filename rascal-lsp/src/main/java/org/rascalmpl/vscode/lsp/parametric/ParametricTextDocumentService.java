@@ -148,11 +148,15 @@ import org.rascalmpl.vscode.lsp.rascal.conversion.KeywordParameter;
 import org.rascalmpl.vscode.lsp.rascal.conversion.Message;
 import org.rascalmpl.vscode.lsp.rascal.conversion.SelectionRanges;
 import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokenizer;
+import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokensCache;
 import org.rascalmpl.vscode.lsp.uri.LSPOpenFileRedirector;
+import org.rascalmpl.vscode.lsp.util.IncrementalParsing.NonTerminalParser;
 import org.rascalmpl.vscode.lsp.util.Maps;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
-import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
+import org.rascalmpl.vscode.lsp.util.concurrent.RequestCancellation;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 import org.rascalmpl.vscode.lsp.util.locations.impl.TreeSearch;
 
@@ -177,6 +181,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
 
     private final String dedicatedLanguageName;
     private final SemanticTokenizer tokenizer = new SemanticTokenizer();
+    private final SemanticTokensCache previousTokens = new SemanticTokensCache();
     private final Set<String> extensionLessSchemes = new CopyOnWriteArraySet<>();
 
     private @MonotonicNonNull LanguageClient client;
@@ -189,6 +194,8 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
     private final Map<String, ParametricFileFacts> facts = new ConcurrentHashMap<>();
     /** language to contribution */
     private final Map<String, LanguageContributionsMultiplexer> contributions = new ConcurrentHashMap<>();
+    /** language to the evaluator of its latest registration */
+    private final WarmEvaluators warmEvaluators = new WarmEvaluators();
 
     private final @Nullable LanguageParameter dedicatedLanguage;
 
@@ -226,7 +233,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         dynamicCapabilities.registerStaticCapabilities(result);
 
         // Register document sync statically
-        result.setTextDocumentSync(TextDocumentSyncKind.Full);
+        result.setTextDocumentSync(TextDocumentSyncKind.Incremental);
     }
 
     private String getRascalMetaCommandName() {
@@ -284,6 +291,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         var timestamp = System.currentTimeMillis();
         logger.debug("Did Open file: {}", params.getTextDocument());
         TextDocumentState file = open(params.getTextDocument(), timestamp);
+        openFacts(file);
         handleParsingErrors(file, file.getCurrentDiagnosticsAsync());
         triggerAnalyzer(file, NORMAL_DEBOUNCE);
 
@@ -325,6 +333,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         logger.debug("Did Close file: {}", params.getTextDocument());
         var loc = Locations.toLoc(params.getTextDocument());
         closeFile(loc);
+        previousTokens.clear(loc);
         facts(loc).close(loc);
         // If the closed file no longer exists (e.g., if an untitled file is closed without ever having been saved),
         // we mimic a delete event to ensure all diagnostics are cleared.
@@ -352,6 +361,13 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         }
     }
 
+    private void openFacts(TextDocumentState state) {
+        var location = state.getLocation();
+        if (safeLanguage(location).isPresent()) {
+            facts(location).open(location);
+        }
+    }
+
     private void triggerAnalyzer(TextDocumentState state, Duration delay) {
         var location = state.getLocation();
         if (safeLanguage(state.getLocation()).isPresent()) {
@@ -378,15 +394,16 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         ISourceLocation loc = Locations.toLoc(params.getTextDocument());
         TextDocumentState file = getFile(loc);
         ILanguageContributions contrib = contributions(loc);
+        var cancellation = new RequestCancellation();
 
-        return recoverExceptions(file.getCurrentTreeAsync(true)
+        return cancellation.bind(recoverExceptions(file.getCurrentTreeAsync(true)
             .thenApply(Versioned::get)
             .thenApply(contrib::codeLens)
-            .thenCompose(InterruptibleFuture::get)
+            .thenCompose(cancellation::get)
             .thenApply(s -> s.stream()
                 .map(e -> locCommandTupleToCodeLense(contrib.getName(), e))
                 .collect(Collectors.toList())
-            ), () -> null);
+            ), () -> null));
     }
 
 
@@ -397,26 +414,27 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         ISourceLocation location = Locations.toLoc(params.getTextDocument());
         ILanguageContributions contribs = contributions(location);
         Position pos = params.getPosition();
-        return getFile(location)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(getFile(location)
             .getCurrentTreeAsync(true) // It is the responsibility of the language contribution to handle the case where the tree contains parse errors
             .thenApply(Versioned::get)
-            .thenCompose(tree -> computeRenameRange(contribs, pos.getLine(), pos.getCharacter(), tree))
+            .thenCompose(tree -> computeRenameRange(contribs, pos.getLine(), pos.getCharacter(), tree, cancellation))
             .thenApply(loc -> {
                 if (loc.equals(URIUtil.unknownLocation())) {
                     throw new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, "Rename not possible", pos));
                 }
                 return Either3.forFirst(Locations.toRange(loc, getColumnMaps()));
-            });
+            }));
     }
 
     private CompletableFuture<ISourceLocation> computeRenameRange(final ILanguageContributions contribs, final int startLine,
-            final int startColumn, ITree tree) {
+            final int startColumn, ITree tree, RequestCancellation cancellation) {
         IList focus = TreeSearch.computeFocusList(tree, startLine+1, startColumn);
         if (focus.isEmpty()) {
             throw new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, "No focus found at " + startLine + ":" + startColumn,
                     TreeAdapter.getLocation(tree)));
         }
-        return contribs.prepareRename(focus).get();
+        return cancellation.get(contribs.prepareRename(focus));
     }
 
     @Override
@@ -424,27 +442,27 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         logger.trace("rename for: {}, new name: {}", params.getTextDocument().getUri(), params.getNewName());
         ISourceLocation loc = Locations.setPosition(Locations.toLoc(params.getTextDocument()), params.getPosition(), getColumnMaps());
         ILanguageContributions contribs = contributions(loc);
-        return getFile(loc)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(getFile(loc)
                 .getCurrentTreeAsync(true)
                 .thenApply(Versioned::get)
                 .thenCompose(tree -> computeRename(contribs,
-                        loc.getBeginLine(), loc.getBeginColumn(), params.getNewName(), tree));
+                        loc.getBeginLine(), loc.getBeginColumn(), params.getNewName(), tree, cancellation)));
     }
 
     private CompletableFuture<WorkspaceEdit> computeRename(final ILanguageContributions contribs, final int startLine,
-            final int startColumn, String newName, ITree tree) {
+            final int startColumn, String newName, ITree tree, RequestCancellation cancellation) {
         IList focus = TreeSearch.computeFocusList(tree, startLine, startColumn);
         if (focus.isEmpty()) {
             throw new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, "No focus found at " + startLine + ":" + startColumn,
                     TreeAdapter.getLocation(tree)));
         }
-        return contribs.rename(focus, newName)
+        return cancellation.get(contribs.rename(focus, newName)
                 .thenApply(tuple -> {
                     IList documentEdits = (IList) tuple.get(0);
                     showMessages(availableClient(), (ISet) tuple.get(1));
                     return DocumentChanges.translateDocumentChanges(documentEdits, getColumnMaps());
-                })
-                .get();
+                }));
     }
 
     private static void showMessages(LanguageClient client, ISet messages) {
@@ -538,14 +556,15 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         ISourceLocation loc = Locations.toLoc(params.getTextDocument());
         TextDocumentState file = getFile(loc);
         ILanguageContributions contrib = contributions(loc);
-        return recoverExceptions(file.getLastTreeAsync(false)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(file.getLastTreeAsync(false)
                 .thenApply(Versioned::get)
                 .thenApply(contrib::inlayHint)
-                .thenCompose(InterruptibleFuture::get)
+                .thenCompose(cancellation::get)
                 .thenApply(s -> s.stream()
                     .map(this::rowToInlayHint)
                     .collect(Collectors.toList())
-            ), () -> null);
+            ), () -> null));
     }
 
 
@@ -635,15 +654,34 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
     }
 
     private TextDocumentState open(TextDocumentItem doc, long timestamp) {
-        return openFile(doc, l -> contributions(l)::parsing, timestamp, exec);
+        return openFile(doc, l -> contributions(l)::parsing, l -> nonTerminalParser(contributions(l)), timestamp, exec);
+    }
+
+    private static NonTerminalParser nonTerminalParser(ILanguageContributions contrib) {
+        return new NonTerminalParser() {
+            @Override
+            public CompletableFuture<ITree> parse(ISourceLocation loc, String input, IConstructor symbol) {
+                return contrib.parsing(loc, input, symbol);
+            }
+
+            @Override
+            public CompletableFuture<Boolean> supported() {
+                return contrib.providesNonTerminalParsing();
+            }
+        };
     }
 
     private CompletableFuture<SemanticTokens> getSemanticTokens(TextDocumentIdentifier doc) {
+        var sizeHint = previousTokens.sizeHint(Locations.toLoc(doc));
+        return getSemanticTokens(doc, (tree, specialCaseHighlighting) -> tokenizer.semanticTokensFull(tree, specialCaseHighlighting, sizeHint));
+    }
+
+    private CompletableFuture<SemanticTokens> getSemanticTokens(TextDocumentIdentifier doc, BiFunction<ITree, Boolean, SemanticTokens> tokenize) {
         var loc = Locations.toLoc(doc);
         var specialCaseHighlighting = contributions(loc).specialCaseHighlighting();
         return recoverExceptions(getFile(loc).getCurrentTreeAsync(true)
                 .thenApply(Versioned::get)
-                .thenCombineAsync(specialCaseHighlighting, tokenizer::semanticTokensFull, exec)
+                .thenCombineAsync(specialCaseHighlighting, tokenize, PriorityScheduler.lane(exec, Lane.INTERACTIVE))
                 .whenComplete((r, e) ->
                     logger.trace("Semantic tokens success, reporting {} tokens back", r == null ? 0 : r.getData().size() / 5)
                 )
@@ -653,20 +691,25 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
     @Override
     public CompletableFuture<SemanticTokens> semanticTokensFull(SemanticTokensParams params) {
         logger.debug("semanticTokensFull: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument());
+        var loc = Locations.toLoc(params.getTextDocument());
+        return getSemanticTokens(params.getTextDocument())
+            .thenApply(tokens -> previousTokens.full(loc, tokens));
     }
 
     @Override
     public CompletableFuture<Either<SemanticTokens, SemanticTokensDelta>> semanticTokensFullDelta(
             SemanticTokensDeltaParams params) {
         logger.debug("semanticTokensFullDelta: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument()).thenApply(Either::forLeft);
+        var loc = Locations.toLoc(params.getTextDocument());
+        return getSemanticTokens(params.getTextDocument())
+            .thenApply(tokens -> previousTokens.delta(loc, params.getPreviousResultId(), tokens));
     }
 
     @Override
     public CompletableFuture<SemanticTokens> semanticTokensRange(SemanticTokensRangeParams params) {
-        logger.debug("semanticTokensRange: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument());
+        logger.debug("semanticTokensRange: {} at {}", params.getTextDocument(), params.getRange());
+        return getSemanticTokens(params.getTextDocument(),
+            (tree, specialCaseHighlighting) -> tokenizer.semanticTokensRange(tree, specialCaseHighlighting, params.getRange()));
     }
 
     @Override
@@ -676,12 +719,13 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         ISourceLocation location = Locations.toLoc(params.getTextDocument());
         TextDocumentState file = getFile(location);
         ILanguageContributions contrib = contributions(location);
-        return recoverExceptions(file.getCurrentTreeAsync(true)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(file.getCurrentTreeAsync(true)
             .thenApply(Versioned::get)
             .thenApply(contrib::documentSymbol)
-            .thenCompose(InterruptibleFuture::get)
+            .thenCompose(cancellation::get)
             .thenApply(documentSymbols -> DocumentSymbols.toLSP(documentSymbols, getColumnMap(file.getLocation())))
-            , Collections::emptyList);
+            , Collections::emptyList));
     }
 
     @Override
@@ -690,6 +734,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
 
         var location = Locations.setPosition(Locations.toLoc(params.getTextDocument()), params.getRange().getStart(), getColumnMaps());
         final ILanguageContributions contribs = contributions(location);
+        var cancellation = new RequestCancellation();
 
         // first we make a future stream for filtering out the "fixes" that were optionally sent along with earlier diagnostics
         // and which came back with the codeAction's list of relevant (in scope) diagnostics:
@@ -702,20 +747,20 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
             getFile(location)
                 .getCurrentTreeAsync(true)
                 .thenApply(Versioned::get)
-                .thenCompose(tree -> computeCodeActions(contribs, location.getBeginLine(), location.getBeginColumn(), tree))
+                .thenCompose(tree -> computeCodeActions(contribs, location.getBeginLine(), location.getBeginColumn(), tree, cancellation))
                 .thenApply(IList::stream)
             , Stream::empty)
             ;
 
         // final merging the two streams of commmands, and their conversion to LSP Command data-type
-        return CodeActions.mergeAndConvertCodeActions(this, dedicatedLanguageName, contribs.getName(), quickfixes, codeActions);
+        return cancellation.bind(CodeActions.mergeAndConvertCodeActions(this, dedicatedLanguageName, contribs.getName(), quickfixes, codeActions));
     }
 
-    private CompletableFuture<IList> computeCodeActions(final ILanguageContributions contribs, final int startLine, final int startColumn, ITree tree) {
+    private CompletableFuture<IList> computeCodeActions(final ILanguageContributions contribs, final int startLine, final int startColumn, ITree tree, RequestCancellation cancellation) {
         IList focus = TreeSearch.computeFocusList(tree, startLine, startColumn);
 
         if (!focus.isEmpty()) {
-            return contribs.codeAction(focus).get();
+            return cancellation.get(contribs.codeAction(focus));
         }
         else {
             logger.log(Level.DEBUG, "no tree focus found at {}:{}", startLine, startColumn);
@@ -723,52 +768,56 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         }
     }
 
-    private <T> CompletableFuture<List<T>> lookup(SummaryLookup<T> lookup, TextDocumentIdentifier doc, Position cursor) {
+    private <T> CompletableFuture<List<T>> lookup(SummaryLookup<T> lookup, TextDocumentIdentifier doc, Position cursor, RequestCancellation cancellation) {
         var loc = Locations.toLoc(doc);
         return getFile(loc)
             .getCurrentTreeAsync(true)
             .thenApply(tree -> facts(loc).lookupInSummaries(lookup, loc, tree, cursor))
-            .thenCompose(Function.identity());
+            .thenCompose(cancellation::get);
     }
 
     @Override
     public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> definition(DefinitionParams params) {
         logger.debug("Definition: {} at {}", params.getTextDocument(), params.getPosition());
-        return recoverExceptions(
-            lookup(ParametricSummary::definitions, params.getTextDocument(), params.getPosition())
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(
+            lookup(ParametricSummary::definitions, params.getTextDocument(), params.getPosition(), cancellation)
             .thenApply(d -> {
                 logger.debug("Definitions: {}", d);
                 return d;
             })
             .thenApply(Either::forLeft)
-            , () -> Either.forLeft(Collections.emptyList()));
+            , () -> Either.forLeft(Collections.emptyList())));
     }
 
     @Override
     public CompletableFuture<Either<List<? extends Location>, List<? extends LocationLink>>> implementation(ImplementationParams params) {
         logger.debug("Implementation: {} at {}", params.getTextDocument(), params.getPosition());
-        return recoverExceptions(
-            lookup(ParametricSummary::implementations, params.getTextDocument(), params.getPosition())
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(
+            lookup(ParametricSummary::implementations, params.getTextDocument(), params.getPosition(), cancellation)
             .thenApply(Either::forLeft)
-            , () -> Either.forLeft(Collections.emptyList()));
+            , () -> Either.forLeft(Collections.emptyList())));
     }
 
     @Override
     public CompletableFuture<List<? extends Location>> references(ReferenceParams params) {
         logger.debug("References: {} at {}", params.getTextDocument(), params.getPosition());
-        return recoverExceptions(
-            lookup(ParametricSummary::references, params.getTextDocument(), params.getPosition())
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(
+            lookup(ParametricSummary::references, params.getTextDocument(), params.getPosition(), cancellation)
             .thenApply(l -> l) // hack to help compiler see type
-            , Collections::emptyList);
+            , Collections::emptyList));
     }
 
     @Override
     public CompletableFuture<@Nullable Hover> hover(HoverParams params) {
         logger.debug("Hover: {} at {}", params.getTextDocument(), params.getPosition());
-        return recoverExceptions(
-            lookup(ParametricSummary::hovers, params.getTextDocument(), params.getPosition())
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(
+            lookup(ParametricSummary::hovers, params.getTextDocument(), params.getPosition(), cancellation)
             .thenApply(Hover::new)
-            , () -> null);
+            , () -> null));
     }
 
     @Override
@@ -787,16 +836,17 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         ISourceLocation loc = Locations.toLoc(params.getTextDocument());
         ILanguageContributions contrib = contributions(loc);
         TextDocumentState file = getFile(loc);
+        var cancellation = new RequestCancellation();
 
         CompletableFuture<Function<IList, CompletableFuture<IList>>> computeSelection = contrib.providesSelectionRange().thenApply(hasDef -> {
             if (!hasDef.booleanValue()) {
                 logger.debug("Selection range not implemented; falling back to default implementation ({})", params.getTextDocument());
                 return focus -> CompletableFutureUtils.completedFuture(SelectionRanges.uniqueTreeLocations(focus), exec);
             }
-            return focus -> contrib.selectionRange(focus).get();
+            return focus -> cancellation.get(contrib.selectionRange(focus));
         });
 
-        return recoverExceptions(file.getCurrentTreeAsync(true)
+        return cancellation.bind(recoverExceptions(file.getCurrentTreeAsync(true)
                 .thenApply(Versioned::get)
                 .thenCompose(t -> CompletableFutureUtils.reduce(params.getPositions().stream()
                     .map(p -> Locations.setPosition(loc, p, getColumnMaps()))
@@ -804,7 +854,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
                         .thenCompose(compute -> compute.apply(TreeSearch.computeFocusList(t, p.getBeginLine(), p.getBeginColumn())))
                         .thenApply(selection -> SelectionRanges.toSelectionRange(p, selection, getColumnMaps())))
                     .collect(Collectors.toUnmodifiableList()), exec)),
-            Collections::emptyList);
+            Collections::emptyList));
     }
 
     @Override
@@ -812,26 +862,26 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         final var loc = Locations.setPosition(Locations.toLoc(params.getTextDocument()), params.getPosition(), getColumnMaps());
         final var contrib = contributions(loc);
         final var file = getFile(loc);
+        final var cancellation = new RequestCancellation();
 
-        return recoverExceptions(file.getCurrentTreeAsync(true)
+        return cancellation.bind(recoverExceptions(file.getCurrentTreeAsync(true)
             .thenApply(Versioned::get)
             .thenCompose(t ->
-                contrib.prepareCallHierarchy(TreeSearch.computeFocusList(t, loc.getBeginLine(), loc.getBeginColumn()))
-                    .get()
+                cancellation.get(contrib.prepareCallHierarchy(TreeSearch.computeFocusList(t, loc.getBeginLine(), loc.getBeginColumn())))
                     .thenApply(items -> {
                         var ch = new CallHierarchy(exec);
                         return items.stream()
                             .map(IConstructor.class::cast)
                             .map(ci -> ch.toLSP(ci, getColumnMaps()))
                             .collect(Collectors.toList());
-                    })), Collections::emptyList);
+                    })), Collections::emptyList));
     }
 
-    private <T> CompletableFuture<List<T>> incomingOutgoingCalls(BiFunction<CallHierarchyItem, List<Range>, T> constructor, CallHierarchyItem source, CallHierarchy.Direction direction) {
+    private <T> CompletableFuture<List<T>> incomingOutgoingCalls(BiFunction<CallHierarchyItem, List<Range>, T> constructor, CallHierarchyItem source, CallHierarchy.Direction direction, RequestCancellation cancellation) {
         final var contrib = contributions(Locations.toLoc(source.getUri()));
         var ch = new CallHierarchy(exec);
         return ch.toRascal(source, contrib::parseCallHierarchyData, getColumnMaps())
-            .thenCompose(sourceItem -> contrib.incomingOutgoingCalls(sourceItem, ch.direction(direction)).get())
+            .thenCompose(sourceItem -> cancellation.get(contrib.incomingOutgoingCalls(sourceItem, ch.direction(direction))))
             .thenApply(callRel -> {
                 // we need to maintain the order
                 var orderedEdges = new LinkedHashMap<IConstructor, List<Range>>();
@@ -849,12 +899,14 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
 
     @Override
     public CompletableFuture<List<CallHierarchyIncomingCall>> callHierarchyIncomingCalls(CallHierarchyIncomingCallsParams params) {
-        return recoverExceptions(incomingOutgoingCalls(CallHierarchyIncomingCall::new, params.getItem(), CallHierarchy.Direction.INCOMING), Collections::emptyList);
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(incomingOutgoingCalls(CallHierarchyIncomingCall::new, params.getItem(), CallHierarchy.Direction.INCOMING, cancellation), Collections::emptyList));
     }
 
     @Override
     public CompletableFuture<List<CallHierarchyOutgoingCall>> callHierarchyOutgoingCalls(CallHierarchyOutgoingCallsParams params) {
-        return recoverExceptions(incomingOutgoingCalls(CallHierarchyOutgoingCall::new, params.getItem(), CallHierarchy.Direction.OUTGOING), Collections::emptyList);
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(incomingOutgoingCalls(CallHierarchyOutgoingCall::new, params.getItem(), CallHierarchy.Direction.OUTGOING, cancellation), Collections::emptyList));
     }
 
     @Override
@@ -864,17 +916,18 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         var loc = Locations.setPosition(Locations.toLoc(params.getTextDocument()), params.getPosition(), getColumnMaps());
         var contrib = contributions(loc);
         var file = getFile(loc);
+        var cancellation = new RequestCancellation();
 
-        return recoverExceptions(file.getCurrentTreeAsync(true)
+        return cancellation.bind(recoverExceptions(file.getCurrentTreeAsync(true)
             .thenApply(Versioned::get)
             .thenCompose(t -> {
                 var completion = new Completion();
                 var focus = TreeSearch.computeFocusList(t, loc.getBeginLine(), loc.getBeginColumn());
                 var cursorOffset = loc.getBeginColumn() - TreeAdapter.getLocation((ITree) focus.get(0)).getBeginColumn();
-                return contrib.completion(focus, VF.integer(cursorOffset), completion.triggerKindToRascal(params.getContext())).get()
+                return cancellation.get(contrib.completion(focus, VF.integer(cursorOffset), completion.triggerKindToRascal(params.getContext())))
                     .thenApply(ci -> completion.toLSP(this, ci, dedicatedLanguageName, contrib.getName(), loc.getBeginLine(), getColumnMaps().get(loc)));
             })
-            .thenApply(Either::forLeft), () -> Either.forLeft(Collections.emptyList()));
+            .thenApply(Either::forLeft), () -> Either.forLeft(Collections.emptyList())));
     }
 
     @Override
@@ -907,7 +960,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
 
         var clientCopy = availableClient();
         multiplexer.addContributor(buildContributionKey(lang),
-            new InterpretedLanguageContributions(lang, this, availableWorkspaceService(), (IBaseLanguageClient)clientCopy, exec));
+            new InterpretedLanguageContributions(lang, this, availableWorkspaceService(), (IBaseLanguageClient)clientCopy, exec, warmEvaluators));
 
         fact.reloadContributions();
         fact.setClient(clientCopy);
@@ -916,6 +969,9 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
             this.registeredExtensions.put(extension, lang.getName());
         }
 
+        // Trees of closed files might have been parsed by an earlier version of the parser
+        invalidateParseTrees();
+
         // If we opened any files with this extension before, now associate them with contributions
         var extensions = Arrays.asList(lang.getExtensions());
         for (var f : getOpenFiles()) {
@@ -986,12 +1042,14 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         f = f.top();
         // Since we cannot know what happened to this file before we were called, we need to be careful about races.
         // It might have been closed in the meantime, so we compute the new value if the key still exists, based on the current value.
-        var state = changeParser(f, contributions(f)::parsing);
+        var contrib = contributions(f);
+        var state = changeParser(f, contrib::parsing, nonTerminalParser(contrib));
         if (state == null) {
             logger.debug("Updating the parser of {} failed, since it was closed.", f);
             return;
         }
-        // Update open editor
+        // Update open editor, of which the facts might be new, if its language was (re)registered
+        openFacts(state);
         handleParsingErrors(state, state.getCurrentDiagnosticsAsync());
         triggerAnalyzer(state, NORMAL_DEBOUNCE);
     }
@@ -1006,6 +1064,7 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
         boolean removeAll = lang.getMainModule() == null || lang.getMainModule().isEmpty();
         if (!removeAll) {
             var contrib = contributions.get(lang.getName());
+            warmEvaluators.remove(lang);
             if (contrib != null && !contrib.removeContributor(buildContributionKey(lang))) {
                 logger.error("unregisterLanguage cleared everything, so removing all");
                 // ok, so it was a clear after all
@@ -1027,7 +1086,10 @@ public class ParametricTextDocumentService extends TextDocumentStateManager impl
             }
             facts.remove(lang.getName());
             contributions.remove(lang.getName());
+            warmEvaluators.removeLanguage(lang.getName());
         }
+        // the parser of the language might have been removed with its contributor
+        invalidateParseTrees();
 
         // Should be called from the main, single-threaded request pool
         updateCapabilities();
@@ -30,7 +30,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 
 import org.apache.logging.log4j.LogManager;
@@ -46,6 +48,8 @@ import org.rascalmpl.values.functions.IFunction;
 import org.rascalmpl.values.parsetrees.ITree;
 import org.rascalmpl.vscode.lsp.parametric.LanguageRegistry.ParserSpecification;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.ISourceLocation;
@@ -58,17 +62,25 @@ public class ParserOnlyContribution extends NoContributions {
     private final @Nullable Exception loadingParserError;
     private final @Nullable IFunction parser;
     private final CompletableFuture<Boolean> specialCaseHighlighting;
+    private final CompletableFuture<Boolean> providesNonTerminalParsing;
     private final ExecutorService exec;
+    private final ParserSpecification spec;
+    private final IRascalValueFactory parserFactory;
+    /** parsers for the other non-terminals of the grammar, used for incremental parsing */
+    private final Map<IConstructor, Either<IFunction, Exception>> nonTerminalParsers = new ConcurrentHashMap<>();
 
     public ParserOnlyContribution(String name, ParserSpecification spec, ExecutorService exec) {
         super(name, exec);
         this.exec = exec;
+        this.spec = spec;
+        this.parserFactory = makeParserFactory();
 
         // we use an entry and a single initialization function to make sure that parser and loadingParserError can be `final`:
-        Either<IFunction,Exception> result = loadParser(spec);
+        Either<IFunction,Exception> result = loadParser(spec, parserFactory, makeSymbol(spec, parserFactory), spec.getAllowAmbiguity(), spec.getAllowRecovery());
         this.parser = result.getLeft();
         this.loadingParserError = result.getRight();
         this.specialCaseHighlighting = CompletableFutureUtils.completedFuture(spec.getSpecialCaseHighlighting(), exec);
+        this.providesNonTerminalParsing = CompletableFutureUtils.completedFuture(true, exec);
     }
 
     @Override
@@ -78,21 +90,40 @@ public class ParserOnlyContribution extends NoContributions {
                 throw new IllegalStateException("Parser function did not load", loadingParserError);
             }
             return parser.call(VF.string(input), loc);
-        }, exec);
+        }, PriorityScheduler.lane(exec, Lane.EDIT));
     }
 
-    private static Either<IFunction, Exception> loadParser(ParserSpecification spec) {
+    /**
+     * Parse `input` as one of the other non-terminals of the grammar. Ambiguities and parse errors are
+     * not recovered, but fail the parse, such that the caller can fall back to parsing the whole file.
+     */
+    @Override
+    public CompletableFuture<ITree> parsing(ISourceLocation loc, String input, IConstructor symbol) {
+        return CompletableFuture.supplyAsync(() -> {
+            var result = nonTerminalParsers.computeIfAbsent(symbol, s -> loadParser(spec, parserFactory, s, false, false));
+            var nonTerminalParser = result.getLeft();
+            if (nonTerminalParser == null) {
+                throw new IllegalStateException("Parser function did not load", result.getRight());
+            }
+            return nonTerminalParser.call(VF.string(input), loc);
+        }, PriorityScheduler.lane(exec, Lane.EDIT));
+    }
+
+    private static IRascalValueFactory makeParserFactory() {
         // the next two object are scaffolding. we only need them temporarily, and they will not be used by the returned IFunction if the (internal) _call_ methods are not used from ICallableValue.
         var unusedEvaluator = ShellEvaluatorFactory.getBasicEvaluator(Reader.nullReader(), new PrintWriter(Writer.nullWriter()), new PrintWriter(Writer.nullWriter()), new NullRascalMonitor(), "***unused***");
         // this is what we are after: a factory that can load back parsers.
-        IRascalValueFactory vf = new RascalFunctionValueFactory(unusedEvaluator /*can not be null unfortunately*/);
-        IConstructor reifiedType = makeReifiedType(spec, vf);
+        return new RascalFunctionValueFactory(unusedEvaluator /*can not be null unfortunately*/);
+    }
+
+    private static Either<IFunction, Exception> loadParser(ParserSpecification spec, IRascalValueFactory vf, IConstructor symbol, boolean allowAmbiguity, boolean allowRecovery) {
+        IConstructor reifiedType = vf.reifiedType(symbol, vf.map());
 
         try {
             logger.debug("Loading parser {} at {}", reifiedType, spec.getParserLocation());
             // this hides all the loading and instantiation details of Rascal-generated parsers
-            var parser = vf.loadParser(reifiedType, spec.getParserLocation(), VF.bool(spec.getAllowAmbiguity()), VF.integer(spec.getMaxAmbDepth()),
-                VF.bool(spec.getAllowRecovery()), VF.integer(spec.getMaxRecoveryAttempts()), VF.integer(spec.getMaxRecoveryTokens()), VF.bool(false), VF.bool(false), vf.set());
+            var parser = vf.loadParser(reifiedType, spec.getParserLocation(), VF.bool(allowAmbiguity), VF.integer(spec.getMaxAmbDepth()),
+                VF.bool(allowRecovery), VF.integer(spec.getMaxRecoveryAttempts()), VF.integer(spec.getMaxRecoveryTokens()), VF.bool(false), VF.bool(false), vf.set());
             logger.debug("Got parser: {}", parser);
             return Either.forLeft(parser);
         }
@@ -103,12 +134,16 @@ public class ParserOnlyContribution extends NoContributions {
 
     }
 
-    /** convert a non-terminal name into a proper reified type */
-    private static IConstructor makeReifiedType(ParserSpecification spec, IRascalValueFactory vf) {
+    /** convert a non-terminal name into a proper symbol */
+    private static IConstructor makeSymbol(ParserSpecification spec, IRascalValueFactory vf) {
         String nt = spec.getNonTerminalName();
         IConstructor symbol = vf.constructor(RascalValueFactory.Symbol_Sort, VF.string(nt));
-        symbol = spec.getNonTerminalIsStart() ? vf.constructor(RascalValueFactory.Symbol_Start, symbol) : symbol;
-        return vf.reifiedType(symbol, vf.map());
+        return spec.getNonTerminalIsStart() ? vf.constructor(RascalValueFactory.Symbol_Start, symbol) : symbol;
+    }
+
+    @Override
+    public CompletableFuture<Boolean> providesNonTerminalParsing() {
+        return providesNonTerminalParsing;
     }
 
     @Override
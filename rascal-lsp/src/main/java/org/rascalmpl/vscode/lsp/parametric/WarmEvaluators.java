@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.parametric;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rascalmpl.library.util.PathConfig;
+import org.rascalmpl.uri.URIResolverRegistry;
+import org.rascalmpl.vscode.lsp.RascalLSPMonitor;
+import org.rascalmpl.vscode.lsp.parametric.LanguageRegistry.LanguageParameter;
+import org.rascalmpl.vscode.lsp.util.Digests;
+
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.IValue;
+
+/**
+ * Keeps the primary evaluator of every contributor of a language, with the modules and contributions it
+ * loaded, such that registering the same contributor again reuses it instead of parsing and interpreting
+ * all its modules again, as long as none of its sources and libraries changed.
+ *
+ * A reused evaluator is not reset: its modules keep their global variables and memoized results from the
+ * earlier registration. This is intended, since its sources did not change, so a fresh load would only
+ * differ in state that contributions changed while running. It also keeps the context of the registration
+ * that loaded it, which refers to the same services, and the same {@link #monitor} of the contributor,
+ * such that progress of the reused evaluator can be canceled through the new registration.
+ *
+ * Per contributor (language, main module and main function), only the evaluator of the latest
+ * registration is kept, until the contributor is unregistered.
+ */
+final class WarmEvaluators {
+    private static final Logger logger = LogManager.getLogger(WarmEvaluators.class);
+    private static final URIResolverRegistry reg = URIResolverRegistry.getInstance();
+
+    private final Map<String, Warm> warm = new ConcurrentHashMap<>();
+    private final Map<String, Named<RascalLSPMonitor>> monitors = new ConcurrentHashMap<>();
+
+    /**
+     * @return the monitor that all evaluators of this contributor report their progress to, across registrations
+     */
+    RascalLSPMonitor monitor(LanguageParameter lang, Supplier<RascalLSPMonitor> create) {
+        return monitors.computeIfAbsent(keyOf(lang), k -> new Named<>(lang.getName(), create.get())).value;
+    }
+
+    /**
+     * @param fingerprint the {@link #fingerprint} of the sources of the contributor, which is computed off the registration path
+     * @param exec runs `loader`, if the evaluator cannot be reused
+     * @return the evaluator that was loaded for the same sources before, or else a new one from `loader`, once the fingerprint is known
+     */
+    EvaluatorPool.Instance get(LanguageParameter lang, CompletableFuture<byte[]> fingerprint, Supplier<EvaluatorPool.Instance> loader, Executor exec) {
+        var key = keyOf(lang);
+        var decision = fingerprint.handle((fp, e) -> {
+            if (e != null) {
+                logger.debug("Could not fingerprint {}, so not reusing its evaluator", key, e);
+                return CompletableFuture.supplyAsync(loader, exec);
+            }
+            return reuseOrLoad(key, lang.getName(), fp, loader, exec);
+        }).thenCompose(Function.identity());
+        return new EvaluatorPool.Instance(
+            decision.thenCompose(EvaluatorPool.Instance::getEvaluator),
+            decision.thenCompose(EvaluatorPool.Instance::getContributions));
+    }
+
+    private CompletableFuture<EvaluatorPool.Instance> reuseOrLoad(String key, String language, byte[] fingerprint, Supplier<EvaluatorPool.Instance> loader, Executor exec) {
+        var fresh = new Warm(language, fingerprint, new CompletableFuture<>());
+        var chosen = warm.compute(key, (k, current) -> {
+            // an evaluator that is still loading is reused as well, such that only one is loaded at a time
+            if (current != null && Arrays.equals(current.fingerprint, fingerprint) && !failed(current.instance)) {
+                logger.debug("Reusing the evaluator of {}, since its sources did not change", k);
+                return current;
+            }
+            return fresh;
+        });
+        if (chosen == fresh) {
+            // load outside of `compute`, which holds a lock of the map, and off the thread that completed the fingerprint
+            CompletableFuture.supplyAsync(loader, exec).whenComplete((instance, e) -> {
+                if (e != null) {
+                    fresh.instance.completeExceptionally(e);
+                } else {
+                    fresh.instance.complete(instance);
+                }
+            });
+        }
+        return chosen.instance;
+    }
+
+    /**
+     * Forget the evaluator of a contributor, since it was unregistered.
+     */
+    void remove(LanguageParameter lang) {
+        warm.remove(keyOf(lang));
+        monitors.remove(keyOf(lang));
+    }
+
+    /**
+     * Forget the evaluators of all contributors of a language, since the whole language was unregistered.
+     */
+    void removeLanguage(String name) {
+        warm.values().removeIf(w -> w.language.equals(name));
+        monitors.values().removeIf(m -> m.language.equals(name));
+    }
+
+    private static String keyOf(LanguageParameter lang) {
+        return lang.getName() + "::" + lang.getMainModule() + "::" + lang.getMainFunction();
+    }
+
+    private static boolean failed(CompletableFuture<EvaluatorPool.Instance> loading) {
+        if (!loading.isDone()) {
+            return false;
+        }
+        if (loading.isCompletedExceptionally()) {
+            return true;
+        }
+        var instance = loading.join();
+        return instance.getEvaluator().isCompletedExceptionally() || instance.getContributions().isCompletedExceptionally();
+    }
+
+    /**
+     * A digest of the main module and function, the path config, and the modification times of the files
+     * in the source folders and of the libraries. Libraries are not listed, since they are jars or folders
+     * that are only replaced as a whole.
+     */
+    static byte[] fingerprint(LanguageParameter lang, PathConfig pcfg) {
+        var digest = Digests.sha256();
+        digest.update(lang.getMainModule().getBytes(StandardCharsets.UTF_8));
+        digest.update(lang.getMainFunction().getBytes(StandardCharsets.UTF_8));
+        digest.update(pcfg.toString().getBytes(StandardCharsets.UTF_8));
+        for (IValue src : pcfg.getSrcs()) {
+            update(digest, (ISourceLocation) src, true);
+        }
+        for (IValue lib : pcfg.getLibs()) {
+            update(digest, (ISourceLocation) lib, false);
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, ISourceLocation loc, boolean recurse) {
+        try {
+            if (recurse && reg.isDirectory(loc)) {
+                for (var entry : reg.list(loc)) {
+                    update(digest, entry, true);
+                }
+            } else if (reg.exists(loc)) {
+                digest.update(loc.getURI().toString().getBytes(StandardCharsets.UTF_8));
+                digest.update(Long.toString(reg.lastModified(loc)).getBytes(StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            // we cannot tell whether it changed, so it is different from anything before
+            logger.debug("Could not fingerprint {}", loc, e);
+            digest.update(Long.toString(System.nanoTime()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class Warm {
+        private final String language;
+        private final byte[] fingerprint;
+        private final CompletableFuture<EvaluatorPool.Instance> instance;
+
+        Warm(String language, byte[] fingerprint, CompletableFuture<EvaluatorPool.Instance> instance) {
+            this.language = language;
+            this.fingerprint = fingerprint;
+            this.instance = instance;
+        }
+    }
+
+    private static final class Named<T> {
+        private final String language;
+        private final T value;
+
+        Named(String language, T value) {
+            this.language = language;
+            this.value = value;
+        }
+    }
+}
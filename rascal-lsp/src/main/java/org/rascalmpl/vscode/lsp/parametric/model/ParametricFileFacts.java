@@ -33,6 +33,8 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
@@ -46,12 +48,14 @@ import org.eclipse.lsp4j.services.LanguageClient;
 import org.rascalmpl.uri.URIResolverRegistry;
 import org.rascalmpl.util.locations.ColumnMaps;
 import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.vscode.lsp.model.ClosedFileDiagnostics;
 import org.rascalmpl.vscode.lsp.model.DiagnosticsReporter;
 import org.rascalmpl.vscode.lsp.parametric.ILanguageContributions;
 import org.rascalmpl.vscode.lsp.parametric.model.ParametricSummary.SummaryLookup;
 import org.rascalmpl.vscode.lsp.util.Lists;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
 import io.usethesource.vallang.ISourceLocation;
@@ -65,6 +69,8 @@ public class ParametricFileFacts implements DiagnosticsReporter {
     private final ParametricSummary nullSummary;
 
     private final Map<ISourceLocation, FileFact> files = new ConcurrentHashMap<>();
+    // of closed files, we only keep the builder diagnostics, since the others are recalculated when they are opened again
+    private final ClosedFileDiagnostics closed = new ClosedFileDiagnostics();
 
     @SuppressWarnings("java:S3077") // Reads/writes happen sequentially
     private volatile @MonotonicNonNull LanguageClient client;
@@ -111,27 +117,35 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         getFile(file).reportParseErrors(msgs);
     }
 
+    /**
+     * Start keeping the facts of a file that was opened, starting from its builder diagnostics of when it was closed.
+     * Only open files have facts; the diagnostics of other files are kept in the bounded store of closed files.
+     */
+    public void open(ISourceLocation file) {
+        if (URIResolverRegistry.getInstance().exists(file)) {
+            // atomically, such that the diagnostics from when it was closed end up in the fact that wins
+            files.computeIfAbsent(file, f -> new ActualFileFact(f, closed.reopen(f)));
+        }
+    }
+
     private FileFact getFile(ISourceLocation file) {
         var fact = files.get(file);
-        if (fact == null) {
-            if (URIResolverRegistry.getInstance().exists(file)) {
-                fact = new ActualFileFact(file);
-                var existing = files.putIfAbsent(file, fact);
-                if (existing != null) {
-                    fact = existing;
-                }
-            } else {
-                fact = new NopFileFact();
-            }
-        }
-        return fact;
+        return fact != null ? fact : new NopFileFact();
     }
 
     public void reloadContributions() {
-        analyzerSummaryFactory = contrib.getAnalyzerSummaryConfig().thenApply(config ->
-            new ScheduledSummaryFactory(config, exec, columns, contrib::analysis));
-        builderSummaryFactory = contrib.getBuilderSummaryConfig().thenApply(config ->
-            new ScheduledSummaryFactory(config, exec, columns, contrib::build));
+        // summaries of other contributions are stored separately, such that a changed language never uses them
+        var persisted = contrib.getFingerprint().handle((fingerprint, e) -> {
+            if (e != null) {
+                logger.debug("Contributions of {} have no fingerprint, so their summaries are not stored", contrib.getName(), e);
+                return new PersistentSummaries(contrib.getName(), "", null);
+            }
+            return new PersistentSummaries(contrib.getName(), fingerprint);
+        });
+        analyzerSummaryFactory = contrib.getAnalyzerSummaryConfig().thenCombine(persisted, (config, p) ->
+            new ScheduledSummaryFactory(config, exec, columns, contrib::analysis, p, "analyzer"));
+        builderSummaryFactory = contrib.getBuilderSummaryConfig().thenCombine(persisted, (config, p) ->
+            new ScheduledSummaryFactory(config, exec, columns, contrib::build, p, "builder"));
         ondemandSummaryFactory = contrib.getOndemandSummaryConfig().thenApply(config ->
             new OndemandSummaryFactory(config, exec, columns, contrib));
     }
@@ -152,7 +166,11 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         getFile(file).calculateBuilder(tree);
     }
 
-    public <T> CompletableFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, ISourceLocation file, Versioned<ITree> tree, Position cursor) {
+    /**
+     * Look up information at the cursor. Interrupting the result only interrupts the on-demand
+     * computations of this lookup, never the shared analyzer and builder summaries.
+     */
+    public <T> InterruptibleFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, ISourceLocation file, Versioned<ITree> tree, Position cursor) {
         return getFile(file).lookupInSummaries(lookup, tree, cursor);
     }
 
@@ -164,9 +182,18 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         var fact = files.remove(file);
         if (fact != null) {
             fact.remove();
+        } else if (closed.remove(file) && client != null) {
+            client.publishDiagnostics(new PublishDiagnosticsParams(Locations.toUri(file).toString(), Collections.emptyList()));
         }
     }
 
+    /**
+     * @return the number of closed files of which the diagnostics were forgotten, to bound memory use
+     */
+    public long getClosedFileEvictions() {
+        return closed.getEvictions();
+    }
+
     private interface FileFact {
         void invalidateAnalyzer(boolean isClosing);
         void invalidateBuilder(boolean isClosing);
@@ -176,7 +203,7 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         void calculateBuilder(CompletableFuture<Versioned<ITree>> tree);
         void reportParseErrors(Versioned<List<Diagnostic>> messages);
         void clearDiagnostics();
-        <T> CompletableFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor);
+        <T> InterruptibleFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor);
     }
 
     @SuppressWarnings("java:S3077") // Reads/writes to fields of this class happen sequentially
@@ -192,7 +219,7 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         // fields.
         private final AtomicReference<Versioned<List<Diagnostic>>> parserDiagnostics = Versioned.atomic(-1, Collections.emptyList());
         private final AtomicReference<Versioned<List<Diagnostic>>> analyzerDiagnostics = Versioned.atomic(-1, Collections.emptyList());
-        private final AtomicReference<Versioned<List<Diagnostic>>> builderDiagnostics = Versioned.atomic(-1, Collections.emptyList());
+        private final AtomicReference<Versioned<List<Diagnostic>>> builderDiagnostics;
 
         private final AtomicReference<Versioned<String>> latestVersionCalculateAnalyzer = new AtomicReference<>();
 
@@ -202,9 +229,23 @@ public class ParametricFileFacts implements DiagnosticsReporter {
             CompletableFutureUtils.completedFuture(new Versioned<>(-1, nullSummary), exec);
         private volatile CompletableFuture<Versioned<ParametricSummary>> latestBuilderAnalysis =
             CompletableFutureUtils.completedFuture(new Versioned<>(-1, nullSummary), exec);
+        // completes once the diagnostics of the latest build have been reported (or were not, since it was interrupted)
+        private volatile CompletableFuture<Void> latestBuilderReport = CompletableFutureUtils.completedFuture(null, exec);
+
+        // Summaries from an earlier session, to answer lookups until the first
+        // analyzer and builder summaries of this session are available.
+        private final AtomicBoolean persistedLoaded = new AtomicBoolean(false);
+        private volatile CompletableFuture<Versioned<ParametricSummary>> persistedAnalyzerSummary =
+            CompletableFutureUtils.completedFuture(new Versioned<>(-1, nullSummary), exec);
+        private volatile CompletableFuture<Versioned<ParametricSummary>> persistedBuilderSummary =
+            CompletableFutureUtils.completedFuture(new Versioned<>(-1, nullSummary), exec);
 
-        public ActualFileFact(ISourceLocation file) {
+        /**
+         * @param builderDiagnostics the builder diagnostics from when the file was closed, if it was
+         */
+        public ActualFileFact(ISourceLocation file, List<Diagnostic> builderDiagnostics) {
             this.file = file;
+            this.builderDiagnostics = Versioned.atomic(-1, builderDiagnostics);
         }
 
         private <T> void reportDiagnostics(AtomicReference<Versioned<T>> current, Versioned<T> messages) {
@@ -237,15 +278,20 @@ public class ParametricFileFacts implements DiagnosticsReporter {
             invalidateAnalyzer(true);
             invalidateBuilder(true);
 
+            // the builder diagnostics are only reported after both the builder and its analysis finished,
+            // so we wait for that report, else the diagnostics of a save just before closing are lost
             var analyzerMessages = ParametricSummary.getMessages(latestAnalyzerAnalysis, exec).get();
-            var builderMessages = ParametricSummary.getMessages(latestBuilderBuild, exec).get();
-            analyzerMessages.thenAcceptBothAsync(builderMessages, (aMessages, bMessages) -> {
-                if ((aMessages.isEmpty() && bMessages.isEmpty()) || !URIResolverRegistry.getInstance().exists(file)) {
-                    // If there are no messages for this file or the file has been deleted, can we remove it
-                    // else VS Code comes back and we've dropped the messages in our internal data
+            CompletableFuture.allOf(analyzerMessages, latestBuilderReport).handleAsync((ignored, e) -> {
+                if (!URIResolverRegistry.getInstance().exists(file)) {
                     ParametricFileFacts.this.remove(file);
+                } else if (files.remove(file, this)) {
+                    // Drop the summaries and trees, but remember the builder diagnostics, else VS Code
+                    // comes back and we've dropped the messages in our internal data
+                    removed = true;
+                    closed.close(file, builderDiagnostics.get().get());
                 }
-            });
+                return null;
+            }, exec);
         }
 
         @Override
@@ -256,9 +302,16 @@ public class ParametricFileFacts implements DiagnosticsReporter {
 
         @Override
         public void calculateAnalyzer(CompletableFuture<Versioned<ITree>> tree, Versioned<String> contentVersion, Duration delay) {
+            // the first analysis is of the contents the file was opened with, which are on disk, so only
+            // its summary is stored, next to the summaries of saved contents (see `calculateBuilder`)
+            boolean opening = persistedLoaded.compareAndSet(false, true);
+            if (opening) {
+                persistedAnalyzerSummary = analyzerSummaryFactory.thenCompose(f -> f.loadPersistedSummary(file, tree));
+                persistedBuilderSummary = builderSummaryFactory.thenCompose(f -> f.loadPersistedSummary(file, tree));
+            }
             latestAnalyzerAnalysis= contentVersion.debounce(latestVersionCalculateAnalyzer, delay, ignored -> {
                 var summary = analyzerSummaryFactory
-                    .thenApply(f -> f.createFullSummary(file, tree))
+                    .thenApply(f -> f.createFullSummary(file, tree, opening))
                     .thenCompose(Function.identity());
                 ParametricSummary.getMessages(summary, exec)
                     .thenAcceptIfUninterrupted(ms -> reportDiagnostics(analyzerDiagnostics, new Versioned<>(contentVersion.version(), ms)));
@@ -283,7 +336,7 @@ public class ParametricFileFacts implements DiagnosticsReporter {
             // `calculateAnalyzer` has debouncing), or it may be interrupted due
             // to later change (which should not affect the builder).
             latestBuilderAnalysis = analyzerSummaryFactory
-                .thenApply(f -> f.createMessagesOnlySummary(file, tree))
+                .thenApply(f -> f.createMessagesOnlySummary(file, tree, true))
                 .thenCompose(Function.identity());
 
             // Schedule the builder and use exactly the same syntax tree as the
@@ -291,7 +344,7 @@ public class ParametricFileFacts implements DiagnosticsReporter {
             // diagnostics and the builder diagnostics can be computed (by
             // removing the former from the latter).
             latestBuilderBuild = builderSummaryFactory
-                .thenApply(f -> f.createFullSummary(file, tree))
+                .thenApply(f -> f.createFullSummary(file, tree, true))
                 .thenCompose(Function.identity());
 
             // Only if neither the analyzer nor the builder was interrupted,
@@ -299,9 +352,10 @@ public class ParametricFileFacts implements DiagnosticsReporter {
             // (instead of reporting an empty list of diagnostics).
             var analyzerMessages = ParametricSummary.getMessages(latestBuilderAnalysis, exec);
             var builderMessages = ParametricSummary.getMessages(latestBuilderBuild, exec);
-            analyzerMessages.thenAcceptBothIfUninterrupted(builderMessages, (aMessages, bMessages) -> {
+            latestBuilderReport = analyzerMessages.thenAcceptBothIfUninterrupted(builderMessages, (aMessages, bMessages) -> {
                 bMessages.removeAll(aMessages);
-                tree.thenAccept(t -> reportDiagnostics(builderDiagnostics, new Versioned<>(t.version(), bMessages)));
+                // the tree is available, since both summaries were calculated from it
+                reportDiagnostics(builderDiagnostics, new Versioned<>(tree.join().version(), bMessages));
             });
         }
 
@@ -360,56 +414,81 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         }
 
         /**
-         * Dynamically routes the lookup to the latest analyzer summary, to the
-         * latest builder summary, or to an on-the-fly created on-demand
+         * Dynamically routes the lookup to the latest builder summary, to the
+         * latest analyzer summary, or to an on-the-fly created on-demand
          * summary. Note: Static routing is less suitable here, because which
          * summary to use depends on the version of `tree`, which is known only
          * dynamically.
+         *
+         * The builder and analyzer summaries race: the first one that completes
+         * with the version of `tree` (and that provides) answers the lookup, so
+         * a hover does not wait for a long build when the analyzer already has
+         * the answer. The summaries stored in an earlier session race as well,
+         * but when several summaries are done already, the builder summary is
+         * preferred, then the analyzer summary, and the stored ones last. Only
+         * when none of them can answer, the on-demand summary is created.
          */
         @Override
-        public <T> CompletableFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor) {
-            return latestAnalyzerAnalysis
-                .thenCombine(latestBuilderBuild, (a, b) -> lookupInSummaries(lookup, tree, cursor, a, b))
-                .thenCompose(Function.identity());
+        public <T> InterruptibleFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor) {
+            var result = new CompletableFuture<InterruptibleFuture<List<T>>>();
+            var pending = new AtomicInteger(4);
+            race(latestBuilderBuild, "builder", lookup, tree, cursor, result, pending);
+            race(latestAnalyzerAnalysis, "analyzer", lookup, tree, cursor, result, pending);
+            race(persistedBuilderSummary, "stored builder", lookup, tree, cursor, result, pending);
+            race(persistedAnalyzerSummary, "stored analyzer", lookup, tree, cursor, result, pending);
+            return InterruptibleFuture.flatten(result, exec);
         }
 
-        private <T> CompletableFuture<List<T>> lookupInSummaries(
+        private <T> void race(CompletableFuture<Versioned<ParametricSummary>> summary, String kind,
                 SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor,
-                Versioned<ParametricSummary> analyzerSummary,
-                Versioned<ParametricSummary> builderSummary) {
-
-            // If a builder summary is available (i.e., a builder exists *and*
-            // provides), and if it's of the right version, use that.
-            if (builderSummary.version() == tree.version()) {
-                var result = lookup.apply(builderSummary.get(), cursor);
-                if (result != null) {
-                    logger.trace("Look-up in builder summary succeeded");
-                    return result.get();
+                CompletableFuture<InterruptibleFuture<List<T>>> result, AtomicInteger pending) {
+            summary.whenComplete((s, e) -> {
+                if (result.isDone()) {
+                    return;
                 }
-            }
-
-            // Else, if an analyzer summary is available (i.e., an analyzer
-            // exists *and* provides), and if it's of the right version, use
-            // that.
-            if (analyzerSummary.version() == tree.version()) {
-                var result = lookup.apply(analyzerSummary.get(), cursor);
-                if (result != null) {
-                    logger.trace("Look-up in analyzer summary succeeded");
-                    return result.get();
+                try {
+                    // If the summary is available (i.e., the analyzer or builder
+                    // exists *and* provides), and if it's of the right version, use that.
+                    if (s != null && s.version() == tree.version()) {
+                        var found = lookup.apply(s.get(), cursor);
+                        if (found != null) {
+                            if (result.complete(shared(found))) {
+                                logger.trace("Look-up in {} summary succeeded", kind);
+                            }
+                            return;
+                        }
+                    }
+                    // The last one to lose the race falls back to the on-demand summary
+                    if (pending.decrementAndGet() == 0) {
+                        result.complete(lookupOndemand(lookup, tree, cursor));
+                    }
+                } catch (RuntimeException exc) {
+                    // exceptions in `whenComplete` are swallowed, and the lookup would never complete
+                    result.completeExceptionally(exc);
                 }
-            }
+            });
+        }
 
-            // Else, if an on-demand summary is available, use that.
-            return ondemandSummaryFactory
-                .thenCompose(f -> {
+        private <T> InterruptibleFuture<List<T>> lookupOndemand(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor) {
+            // If an on-demand summary is available, use that.
+            return InterruptibleFuture.flatten(ondemandSummaryFactory
+                .thenApply(f -> {
                     var result = f.createSummaryThenLookup(file, tree, cursor, lookup);
                     if (result != null) {
                         logger.trace("Look-up in on-demand summary succeeded");
-                        return result.get();
+                        return result;
                     } else {
                         logger.trace("Look-up failed");
-                        return CompletableFutureUtils.completedFuture(Collections.<T>emptyList(), exec);
-                    }});
+                        return InterruptibleFuture.completedFuture(Collections.<T>emptyList(), exec);
+                    }}), exec);
+        }
+
+        /**
+         * Lookups in the analyzer and builder summaries share their computation with other requests,
+         * so a single lookup should not be able to interrupt them.
+         */
+        private <T> InterruptibleFuture<T> shared(InterruptibleFuture<T> lookup) {
+            return new InterruptibleFuture<>(lookup.get(), () -> {});
         }
     }
 
@@ -455,8 +534,8 @@ public class ParametricFileFacts implements DiagnosticsReporter {
         }
 
         @Override
-        public <T> CompletableFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor) {
-            return CompletableFutureUtils.completedFuture(List.of(), exec);
+        public <T> InterruptibleFuture<List<T>> lookupInSummaries(SummaryLookup<T> lookup, Versioned<ITree> tree, Position cursor) {
+            return InterruptibleFuture.completedFuture(List.of(), exec);
         }
     }
 }
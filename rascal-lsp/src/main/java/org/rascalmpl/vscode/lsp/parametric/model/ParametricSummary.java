@@ -57,9 +57,11 @@ import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
 import org.rascalmpl.vscode.lsp.rascal.conversion.KeywordParameter;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 import org.rascalmpl.vscode.lsp.util.locations.IRangeMap;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
-import org.rascalmpl.vscode.lsp.util.locations.impl.TreeMapLookup;
+import org.rascalmpl.vscode.lsp.util.locations.impl.IntervalTreeLookup;
 import org.rascalmpl.vscode.lsp.util.locations.impl.TreeSearch;
 
 import io.usethesource.vallang.IConstructor;
@@ -204,33 +206,71 @@ class ScheduledSummaryFactory extends ParametricSummaryFactory {
     private static final Logger logger = LogManager.getLogger(ScheduledSummaryFactory.class);
 
     private final ScheduledCalculator calculator;
-
-    public ScheduledSummaryFactory(SummaryConfig config, Executor exec, ColumnMaps columns, ScheduledCalculator calculator) {
+    private final PersistentSummaries persisted;
+    private final String kind;
+
+    /**
+     * @param kind which calculator this is (analyzer or builder), to store its summaries separately
+     */
+    public ScheduledSummaryFactory(SummaryConfig config, Executor exec, ColumnMaps columns, ScheduledCalculator calculator,
+            PersistentSummaries persisted, String kind) {
         super(config, exec, columns);
         this.calculator = calculator;
+        this.persisted = persisted;
+        this.kind = kind;
     }
 
+    /**
+     * @param persist whether to store the summary on disk, which should only be done for the contents
+     * of the file on disk, since storing the summary of every change writes a file per keystroke
+     */
     public CompletableFuture<Versioned<ParametricSummary>> createMessagesOnlySummary(
-            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree) {
-        return createSummary(file, tree, cons -> new MessagesOnlyScheduledSummary(cons, exec));
+            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree, boolean persist) {
+        return createSummary(file, tree, persist, cons -> new MessagesOnlyScheduledSummary(cons, exec));
     }
 
+    /**
+     * @param persist whether to store the summary on disk (see {@link #createMessagesOnlySummary})
+     */
     public CompletableFuture<Versioned<ParametricSummary>> createFullSummary(
-            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree) {
-        return createSummary(file, tree, FullScheduledSummary::new);
+            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree, boolean persist) {
+        return createSummary(file, tree, persist, FullScheduledSummary::new);
     }
 
     private CompletableFuture<Versioned<ParametricSummary>> createSummary(
-            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree,
+            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree, boolean persist,
             Function<InterruptibleFuture<IConstructor>, ParametricSummary> constructor) {
 
         return tree.thenApplyAsync(t -> {
             logger.trace("Requesting summary calculation for: {}", file);
             var calculation = calculator.apply(file, t.get());
+            if (persist) {
+                calculation.thenAcceptIfUninterrupted(s ->
+                    CompletableFuture.runAsync(() -> persisted.save(kind, file, t.get(), s), PriorityScheduler.lane(exec, Lane.BACKGROUND)));
+            }
             return new Versioned<>(t.version(), constructor.apply(calculation));
         }, exec);
     }
 
+    /**
+     * A summary of the same contents from an earlier session, if it was stored, without calculating
+     * anything. It might be outdated with respect to other files, so it should only be used until a
+     * fresh summary is available.
+     * @return the stored summary, or a summary of version -1 if there is none
+     */
+    public CompletableFuture<Versioned<ParametricSummary>> loadPersistedSummary(
+            ISourceLocation file, CompletableFuture<Versioned<ITree>> tree) {
+
+        return tree.thenApplyAsync(t -> {
+            var stored = persisted.load(kind, file, t.get());
+            if (stored == null) {
+                return new Versioned<>(-1, new NullSummary(exec));
+            }
+            logger.trace("Loaded stored {} summary for: {}", kind, file);
+            return new Versioned<>(t.version(), new FullScheduledSummary(InterruptibleFuture.completedFuture(stored, exec)));
+        }, exec);
+    }
+
     public class MessagesOnlyScheduledSummary extends NullSummary {
         private final InterruptibleFuture<Lazy<List<Diagnostic>>> messages;
 
@@ -338,7 +378,7 @@ class ScheduledSummaryFactory extends ParametricSummaryFactory {
                 IRelation<ISet> binaryRel, Function<IValue, T> mapValue) {
 
             logger.trace("{}: summary contain rel of size:{}", logName, binaryRel.asContainer().size());
-            TreeMapLookup<List<T>> result = new TreeMapLookup<>();
+            IntervalTreeLookup<List<T>> result = new IntervalTreeLookup<>();
             for (IValue v: binaryRel) {
                 ITuple row = (ITuple)v;
                 Range from = Locations.toRange((ISourceLocation)row.get(0), columns);
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.parametric.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.values.IRascalValueFactory;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.util.Digests;
+import org.rascalmpl.vscode.lsp.util.DiskStore;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.io.binary.message.IValueInputStream;
+import io.usethesource.vallang.io.binary.message.IValueOutputStream;
+import io.usethesource.vallang.io.binary.message.IValueOutputStream.CompressionRate;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Stores the summaries of the analyzer and builder of a language on disk, such that after a
+ * restart of the server, they are available before the first analysis finishes.
+ *
+ * There is a single file per language, implementation of its contributions, kind of summary and
+ * source file, which starts with a digest of the contents that the summary was calculated for,
+ * followed by the summary in vallang's binary format. A summary is only loaded for exactly the same contents. It might
+ * still be outdated, if it depends on other files, so it should only be used until a fresh
+ * summary is available.
+ *
+ * The directory can be configured with {@link #DIRECTORY_PROPERTY}; an empty value disables the store.
+ */
+public class PersistentSummaries {
+    private static final Logger logger = LogManager.getLogger(PersistentSummaries.class);
+    public static final String DIRECTORY_PROPERTY = "rascal.lsp.summaryCache";
+    private static final int MAX_FILES = 10_000;
+
+    private final String language;
+    private final String contributions;
+    private final DiskStore store;
+
+    /**
+     * @param contributions the fingerprint of the contributions that calculate the summaries
+     */
+    public PersistentSummaries(String language, String contributions) {
+        this(language, contributions, DiskStore.directory(DIRECTORY_PROPERTY, "summaries"));
+    }
+
+    public PersistentSummaries(String language, String contributions, @Nullable Path directory) {
+        this.language = language;
+        this.contributions = contributions;
+        this.store = new DiskStore(directory, ".summary", MAX_FILES);
+    }
+
+    /**
+     * @return the summary of `kind` for `file`, if it was stored for the contents of `tree`, or else null
+     */
+    public @Nullable IConstructor load(String kind, ISourceLocation file, ITree tree) {
+        try {
+            var contents = store.read(keyOf(kind, file));
+            if (contents == null || contents.length < Digests.LENGTH) {
+                return null;
+            }
+            if (!Arrays.equals(Arrays.copyOf(contents, Digests.LENGTH), Digests.sha256(TreeAdapter.yield(tree)))) {
+                logger.trace("Stored {} summary of {} is of different contents", kind, file);
+                return null;
+            }
+            var input = new ByteArrayInputStream(contents, Digests.LENGTH, contents.length - Digests.LENGTH);
+            try (var in = new IValueInputStream(input, IRascalValueFactory.getInstance(), TypeStore::new)) {
+                var result = in.read();
+                return result instanceof IConstructor ? (IConstructor) result : null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not load the stored {} summary of {}", kind, file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store the summary of `kind` for `file`, calculated for the contents of `tree`, replacing any earlier one.
+     */
+    public void save(String kind, ISourceLocation file, ITree tree, IConstructor summary) {
+        try {
+            store.write(keyOf(kind, file), out -> {
+                out.write(Digests.sha256(TreeAdapter.yield(tree)));
+                try (var values = new IValueOutputStream(out, IRascalValueFactory.getInstance(), CompressionRate.Normal)) {
+                    values.write(summary);
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not store the {} summary of {}", kind, file, e);
+        }
+    }
+
+    private String keyOf(String kind, ISourceLocation file) {
+        return language + "\0" + contributions + "\0" + kind + "\0" + file.top().getURI();
+    }
+}
@@ -75,6 +75,8 @@ import org.rascalmpl.vscode.lsp.util.EvaluatorUtil;
 import org.rascalmpl.vscode.lsp.util.EvaluatorUtil.LSPContext;
 import org.rascalmpl.vscode.lsp.util.RascalServices;
 import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
 import io.usethesource.vallang.IConstructor;
@@ -93,12 +95,27 @@ import io.usethesource.vallang.type.TypeFactory;
 import io.usethesource.vallang.type.TypeStore;
 
 public class RascalLanguageServices {
+    /**
+     * System property for the number of compiler evaluators that a whole-workspace check may use in parallel
+     */
+    public static final String COMPILER_EVALUATORS_PROPERTY = "rascal.lsp.compilerEvaluators";
+    /**
+     * System property for which of the evaluators share a single evaluator, which loads the modules they have in
+     * common only once, but runs their jobs one after the other: `none` (the default), `semantics` (the short running
+     * tasks and the semantic tasks), or `all` (also the type checker)
+     */
+    public static final String EVALUATOR_SHARING_PROPERTY = "rascal.lsp.evaluatorSharing";
+    private static final String[] TASK_MODULES = {"lang::rascal::lsp::DocumentSymbols", "lang::rascal::lsp::Templates", "lang::rascal::lsp::Analyzer"};
+    private static final String[] SEMANTIC_MODULES = {"lang::rascalcore::check::Summary", "lang::rascal::lsp::refactor::Rename", "lang::rascal::lsp::Actions"};
+    private static final String[] COMPILER_MODULES = {"lang::rascal::lsp::IDECheckerWrapper"};
     private static final IValueFactory VF = IRascalValueFactory.getInstance();
     private static final Logger logger = LogManager.getLogger(RascalLanguageServices.class);
 
     private final CompletableFuture<Evaluator> shortRunningTaskEvaluator;
     private final CompletableFuture<Evaluator> semanticEvaluator;
     private final CompletableFuture<Evaluator> compilerEvaluator;
+    // the first one is `compilerEvaluator`, the others are only loaded once a workspace check needs them
+    private final List<CompletableFuture<Evaluator>> compilerEvaluators = new ArrayList<>();
 
     private final CompletableFuture<TypeStore> actionStore;
 
@@ -115,6 +132,8 @@ public class RascalLanguageServices {
     private final RascalTextDocumentService rascalTextDocumentService;
     private final BaseWorkspaceService workspaceService;
     private final RascalLSPMonitor monitor;
+    private final LSPContext context;
+    private final PathConfig compilerPcfg;
 
     public RascalLanguageServices(RascalTextDocumentService docService, BaseWorkspaceService workspaceService, IBaseLanguageClient client, ExecutorService exec) {
         this.client = client;
@@ -123,18 +142,38 @@ public class RascalLanguageServices {
         monitor = new RascalLSPMonitor(client, logger);
 
         var pcfg = EvaluatorUtil.addLSPSources(new PathConfig(URIUtil.rootLocation("cwd")), true);
-        var compilerPcfg = EvaluatorUtil.addRascalCompilerSources(pcfg);
-
-        var context = new LSPContext(exec, docService, workspaceService, client);
-
-        shortRunningTaskEvaluator = makeFutureEvaluator(context, "Rascal tasks", monitor, pcfg,  "lang::rascal::lsp::DocumentSymbols", "lang::rascal::lsp::Templates", "lang::rascal::lsp::Analyzer");
-        semanticEvaluator = makeFutureEvaluator(context, "Rascal semantics", monitor, compilerPcfg, "lang::rascalcore::check::Summary", "lang::rascal::lsp::refactor::Rename", "lang::rascal::lsp::Actions");
-        compilerEvaluator = makeFutureEvaluator(context, "Rascal compiler", monitor, compilerPcfg, "lang::rascal::lsp::IDECheckerWrapper");
+        compilerPcfg = EvaluatorUtil.addRascalCompilerSources(pcfg);
+
+        context = new LSPContext(exec, docService, workspaceService, client);
+
+        var sharing = System.getProperty(EVALUATOR_SHARING_PROPERTY, "none");
+        if ("all".equals(sharing)) {
+            // the compiler path config is a superset of the plain one, so every module loads in it
+            shortRunningTaskEvaluator = makeFutureEvaluator(context, "Rascal", monitor, compilerPcfg, concat(TASK_MODULES, SEMANTIC_MODULES, COMPILER_MODULES));
+            semanticEvaluator = shortRunningTaskEvaluator;
+            compilerEvaluator = shortRunningTaskEvaluator;
+        } else if ("semantics".equals(sharing)) {
+            shortRunningTaskEvaluator = makeFutureEvaluator(context, "Rascal tasks and semantics", monitor, compilerPcfg, concat(TASK_MODULES, SEMANTIC_MODULES));
+            semanticEvaluator = shortRunningTaskEvaluator;
+            compilerEvaluator = makeFutureEvaluator(context, "Rascal compiler", monitor, compilerPcfg, COMPILER_MODULES);
+        } else {
+            if (!"none".equals(sharing)) {
+                logger.warn("Unknown value for {}: {}, not sharing evaluators", EVALUATOR_SHARING_PROPERTY, sharing);
+            }
+            shortRunningTaskEvaluator = makeFutureEvaluator(context, "Rascal tasks", monitor, pcfg, TASK_MODULES);
+            semanticEvaluator = makeFutureEvaluator(context, "Rascal semantics", monitor, compilerPcfg, SEMANTIC_MODULES);
+            compilerEvaluator = makeFutureEvaluator(context, "Rascal compiler", monitor, compilerPcfg, COMPILER_MODULES);
+        }
+        compilerEvaluators.add(compilerEvaluator);
         actionStore = semanticEvaluator.thenApply(e -> ((ModuleEnvironment) e.getModule("lang::rascal::lsp::Actions")).getStore());
         rascalTextDocumentService = docService;
         this.workspaceService = workspaceService;
     }
 
+    private static String[] concat(String[]... modules) {
+        return Arrays.stream(modules).flatMap(Arrays::stream).toArray(String[]::new);
+    }
+
     public boolean isOpenInWorkspace(ISourceLocation loc) {
         return workspaceService.workspaceFolders()
             .stream()
@@ -207,6 +246,27 @@ public class RascalLanguageServices {
         return path.substring(path.lastIndexOf('!') + 1);
     }
 
+    /**
+     * @return the TPL that {@link #getSummary} makes the summary of `occ` from, or null if we cannot tell
+     */
+    public @Nullable ISourceLocation getTplLocation(ISourceLocation occ, Function<ISourceLocation, PathConfig> computePathConfig) {
+        var tplLoc = libraryTplLocation(occ);
+        if (tplLoc != null) {
+            return tplLoc;
+        }
+        try {
+            var pcfg = computePathConfig.apply(occ);
+            var moduleName = pcfg.getModuleName(occ);
+            var separator = moduleName.lastIndexOf("::");
+            var modPrefix = separator < 0 ? "" : (moduleName.substring(0, separator).replace("::", "/") + "/");
+            var tplFileName = "$" + moduleName.substring(separator < 0 ? 0 : separator + 2) + ".tpl";
+            return URIUtil.getChildLocation(pcfg.getBin(), "rascal/" + modPrefix + tplFileName);
+        } catch (IOException e) {
+            logger.debug("Error looking up module name for source location {}", occ, e);
+            return null;
+        }
+    }
+
     public InterruptibleFuture<@Nullable IConstructor> getSummary(ISourceLocation occ, Function<ISourceLocation, PathConfig> computePathConfig) {
         Function<Evaluator, @Nullable IConstructor> computeSummary;
         var tplLoc = libraryTplLocation(occ);
@@ -228,7 +288,7 @@ public class RascalLanguageServices {
         return runEvaluator("Rascal makeSummary", semanticEvaluator, eval -> {
             var result = computeSummary.apply(eval);
             return result != null && result.asWithKeywordParameters().hasParameters() ? result : null;
-        }, null, exec, false, client);
+        }, null, PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
     private static Map<ISourceLocation, ISet> translateCheckResults(IMap messages) {
@@ -275,15 +335,50 @@ public class RascalLanguageServices {
     }
 
 
-    public InterruptibleFuture<Map<ISourceLocation, ISet>> compileFile(ISourceLocation file, PathConfig pcfg,
-        Executor exec) {
-        logger.debug("Running Rascal check for: {} with {}", file, pcfg);
+    /**
+     * Checks several modules in one run of the checker, which shares the work on their common dependencies.
+     */
+    public InterruptibleFuture<Map<ISourceLocation, ISet>> compileFiles(Set<ISourceLocation> files, Executor exec) {
+        logger.debug("Running Rascal check for: {}", files);
+        var workspaceFolders = workspaceService.workspaceFolders().stream().map(f -> Locations.toLoc(f.getUri())).collect(VF.setWriter());
+
+        var moduleNames = files.size() == 1
+            ? URIUtil.getLocationName(URIUtil.removeExtension(files.iterator().next()))
+            : (files.size() + " modules");
+        var interruptedResult = files.stream().collect(Collectors.toMap(f -> f, f -> VF.set()));
+        return PriorityScheduler.preemptible(exec, runEvaluator("Rascal check (" + moduleNames +")", compilerEvaluator,
+            e -> translateCheckResults((IMap) e.call("checkFiles", files.stream().collect(VF.listWriter()), workspaceFolders, makeParseTreeGetter(e), makePathConfigGetter(e))),
+            interruptedResult, PriorityScheduler.lane(exec, Lane.BACKGROUND), false, client));
+    }
+
+    /**
+     * @return the number of compiler evaluators that {@link #checkModule} can choose from
+     */
+    public int getCompilerEvaluatorCount() {
+        return Math.max(1, Integer.getInteger(COMPILER_EVALUATORS_PROPERTY, 1));
+    }
+
+    private synchronized CompletableFuture<Evaluator> compilerEvaluator(int index) {
+        while (compilerEvaluators.size() <= index) {
+            compilerEvaluators.add(makeFutureEvaluator(context, "Rascal compiler " + (compilerEvaluators.size() + 1), monitor, compilerPcfg, COMPILER_MODULES));
+        }
+        return compilerEvaluators.get(index);
+    }
+
+    /**
+     * Like {@link #compileFiles}, but for one module on a specific compiler evaluator, such that a whole-workspace check
+     * can spread its modules over the compiler evaluators.
+     *
+     * @param compiler which compiler evaluator to use, below {@link #getCompilerEvaluatorCount()}
+     */
+    public InterruptibleFuture<Map<ISourceLocation, ISet>> checkModule(ISourceLocation file, int compiler) {
+        logger.debug("Running Rascal check for: {} on compiler {}", file, compiler);
         var workspaceFolders = workspaceService.workspaceFolders().stream().map(f -> Locations.toLoc(f.getUri())).collect(VF.setWriter());
 
         var shortModuleName = URIUtil.getLocationName(URIUtil.removeExtension(file));
-        return runEvaluator("Rascal check (" + shortModuleName +")", compilerEvaluator,
+        return runEvaluator("Rascal check (" + shortModuleName +")", compilerEvaluator(compiler),
             e -> translateCheckResults((IMap) e.call("checkFile", file, workspaceFolders, makeParseTreeGetter(e), makePathConfigGetter(e))),
-            Map.of(file, VF.set()), exec, false, client);
+            Map.of(file, VF.set()), PriorityScheduler.lane(exec, Lane.BACKGROUND), false, client);
     }
 
     private @Nullable ISourceLocation getFileLoc(ITree moduleTree) {
@@ -310,7 +405,7 @@ public class RascalLanguageServices {
         }
 
         return runEvaluator("Rascal Document Symbols", shortRunningTaskEvaluator, eval -> (IList) eval.call("documentRascalSymbols", module),
-            VF.list(), exec, false, client);
+            VF.list(), PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
 
@@ -336,7 +431,7 @@ public class RascalLanguageServices {
                 }
                 throw e;
             }
-        }, VF.tuple(VF.list(), VF.map()), exec, false, client);
+        }, VF.tuple(VF.list(), VF.map()), PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
     public InterruptibleFuture<ITuple> getModuleRenames(IList fileRenames, Set<ISourceLocation> workspaceFolders) {
@@ -347,22 +442,26 @@ public class RascalLanguageServices {
 
         return runEvaluator("Rascal module rename", semanticEvaluator, eval ->
             (ITuple) eval.call("rascalRenameModule", fileRenames, workspaceFolders.stream().collect(VF.setWriter()), makePathConfigGetter(eval))
-        , emptyResult, exec, false, client);
+        , emptyResult, PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
     public InterruptibleFuture<IList> newModuleTemplates(IList newFiles) {
         return EvaluatorUtil.runEvaluator("Rascal new module", shortRunningTaskEvaluator, eval ->
-            (IList) eval.call("newModuleTemplates", newFiles, makePathConfigGetter(eval)), VF.list(), exec, false, client);
+            (IList) eval.call("newModuleTemplates", newFiles, makePathConfigGetter(eval)), VF.list(), PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
     public CompletableFuture<ITree> parseSourceFile(ISourceLocation loc, String input) {
-        return CompletableFuture.supplyAsync(() -> RascalServices.parseRascalModule(loc, input.toCharArray()), exec);
+        return CompletableFuture.supplyAsync(() -> RascalServices.parseRascalModule(loc, input.toCharArray()), PriorityScheduler.lane(exec, Lane.EDIT));
+    }
+
+    public CompletableFuture<ITree> parseSourceFile(ISourceLocation loc, String input, IConstructor symbol) {
+        return CompletableFuture.supplyAsync(() -> RascalServices.parseRascalNonTerminal(symbol, loc, input.toCharArray()), PriorityScheduler.lane(exec, Lane.EDIT));
     }
 
     public InterruptibleFuture<IList> analyze(ITree tree) {
         return runEvaluator("Rascal analyze", shortRunningTaskEvaluator, eval ->
                 (IList) eval.call("analyze", "lang::rascal::lsp::Analyzer", Collections.emptyMap(), tree, makePathConfigGetter(eval)),
-            VF.list(), exec, false, client);
+            VF.list(), PriorityScheduler.lane(exec, Lane.BACKGROUND), false, client);
     }
 
     public List<CodeLensSuggestion> locateCodeLenses(ITree tree) {
@@ -421,7 +520,7 @@ public class RascalLanguageServices {
                 semanticEvaluator,
                 ev -> ev.call("evaluateRascalCommand", cons),
                 defaultMap.done(),
-                exec,
+                PriorityScheduler.lane(exec, Lane.BACKGROUND),
                 true,
                 client
             )
@@ -481,7 +580,7 @@ public class RascalLanguageServices {
             Map<String,IValue> kws = Map.of("pcfg", pcfg.asConstructor());
             return (IList) eval.call("rascalCodeActions", "lang::rascal::lsp::Actions", kws, focus);
         },
-        VF.list(), exec, false, client);
+        VF.list(), PriorityScheduler.lane(exec, Lane.INTERACTIVE), false, client);
     }
 
     public void cancelProgress(String progressId) {
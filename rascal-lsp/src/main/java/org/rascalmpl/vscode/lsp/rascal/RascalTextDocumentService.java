@@ -35,6 +35,7 @@ import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -123,10 +124,14 @@ import org.rascalmpl.vscode.lsp.rascal.conversion.FoldingRanges;
 import org.rascalmpl.vscode.lsp.rascal.conversion.Message;
 import org.rascalmpl.vscode.lsp.rascal.conversion.SelectionRanges;
 import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokenizer;
+import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokensCache;
 import org.rascalmpl.vscode.lsp.rascal.model.FileFacts;
 import org.rascalmpl.vscode.lsp.uri.LSPOpenFileRedirector;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
+import org.rascalmpl.vscode.lsp.util.concurrent.RequestCancellation;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 import org.rascalmpl.vscode.lsp.util.locations.impl.TreeSearch;
 
@@ -145,6 +150,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
     private @MonotonicNonNull RascalLanguageServices rascalServices;
 
     private final SemanticTokenizer tokenizer = new SemanticTokenizer(true);
+    private final SemanticTokensCache previousTokens = new SemanticTokensCache();
     private @MonotonicNonNull LanguageClient client;
 
     private @MonotonicNonNull FileFacts facts;
@@ -186,7 +192,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
 
     public void initializeServerCapabilities(ClientCapabilities clientCapabilities, ServerCapabilities result) {
         result.setDefinitionProvider(true);
-        result.setTextDocumentSync(TextDocumentSyncKind.Full);
+        result.setTextDocumentSync(TextDocumentSyncKind.Incremental);
         result.setDocumentSymbolProvider(true);
         result.setHoverProvider(true);
         result.setSemanticTokensProvider(SemanticTokenizer.options());
@@ -194,7 +200,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
         result.setFoldingRangeProvider(true);
         result.setRenameProvider(new RenameOptions(true));
         result.setCodeActionProvider(true);
-        result.setExecuteCommandProvider(new ExecuteCommandOptions(Collections.singletonList(BaseWorkspaceService.RASCAL_COMMAND)));
+        result.setExecuteCommandProvider(new ExecuteCommandOptions(List.of(BaseWorkspaceService.RASCAL_COMMAND, RascalWorkspaceService.CHECK_WORKSPACE_COMMAND)));
         result.setSelectionRangeProvider(true);
     }
 
@@ -229,6 +235,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
         var timestamp = System.currentTimeMillis();
         logger.debug("Open: {}", params.getTextDocument());
         TextDocumentState file = open(params.getTextDocument(), timestamp);
+        availableFacts().open(file.getLocation());
         handleParsingErrors(file, file.getCurrentDiagnosticsAsync());
         triggerAnalyzer(file, NORMAL_DEBOUNCE);
     }
@@ -255,6 +262,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
         logger.debug("Close: {}", params.getTextDocument());
         var loc = Locations.toLoc(params.getTextDocument());
         closeFile(loc);
+        previousTokens.clear(loc);
         availableFacts().close(loc);
         // If the closed file no longer exists (e.g., if an untitled file is closed without ever having been saved),
         // we mimic a delete event to ensure all diagnostics are cleared.
@@ -301,11 +309,12 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
         documentSymbol(DocumentSymbolParams params) {
         logger.debug("textDocument/documentSymbol: {}", params.getTextDocument());
         TextDocumentState file = getFile(params.getTextDocument());
-        return recoverExceptions(file.getLastTreeAsync(true)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(recoverExceptions(file.getLastTreeAsync(true)
             .thenApply(Versioned::get)
-            .thenCompose(tr -> availableRascalServices().getDocumentSymbols(tr).get())
+            .thenCompose(tr -> cancellation.get(availableRascalServices().getDocumentSymbols(tr)))
             .thenApply(documentSymbols -> DocumentSymbols.toLSP(documentSymbols, getColumnMap(file.getLocation())))
-            );
+            ));
     }
 
     private ITree findQualifiedNameUnderCursor(IList focusList) {
@@ -364,7 +373,8 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
         logger.debug("textDocument/rename: {} at {} to {}", params.getTextDocument(), params.getPosition(), params.getNewName());
 
         TextDocumentState file = getFile(params.getTextDocument());
-        return file.getCurrentTreeAsync(false)
+        var cancellation = new RequestCancellation();
+        return cancellation.bind(file.getCurrentTreeAsync(false)
             .thenApply(Versioned::get)
             .handle((t, e) -> {
                 if (e != null) {
@@ -380,12 +390,12 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
                     .stream()
                     .map(f -> Locations.toLoc(f.getUri()))
                     .collect(Collectors.toSet());
-                return availableRascalServices().getRename(TreeAdapter.getLocation(cursorTree), focus, workspaceFolders, params.getNewName()).get();
+                return cancellation.get(availableRascalServices().getRename(TreeAdapter.getLocation(cursorTree), focus, workspaceFolders, params.getNewName()));
             })
             .thenApply(t -> {
                 showMessages((ISet) t.get(1));
                 return DocumentChanges.translateDocumentChanges((IList) t.get(0), getColumnMaps());
-            });
+            }));
     }
 
     private void showMessages(ISet messages) {
@@ -461,7 +471,7 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
     }
 
     private TextDocumentState open(TextDocumentItem doc, long timestamp) {
-        return openFile(doc, l -> availableRascalServices()::parseSourceFile, timestamp, exec);
+        return openFile(doc, l -> availableRascalServices()::parseSourceFile, l -> availableRascalServices()::parseSourceFile, timestamp, exec);
     }
 
     private TextDocumentState getFile(TextDocumentIdentifier doc) {
@@ -469,9 +479,14 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
     }
 
     private CompletableFuture<SemanticTokens> getSemanticTokens(TextDocumentIdentifier doc) {
+        var sizeHint = previousTokens.sizeHint(Locations.toLoc(doc));
+        return getSemanticTokens(doc, t -> tokenizer.semanticTokensFull(t, false, sizeHint));
+    }
+
+    private CompletableFuture<SemanticTokens> getSemanticTokens(TextDocumentIdentifier doc, Function<ITree, SemanticTokens> tokenize) {
         return recoverExceptions(getFile(doc).getCurrentTreeAsync(true)
                 .thenApply(Versioned::get)
-                .thenApply(t -> tokenizer.semanticTokensFull(t, false)), SemanticTokens::new)
+                .thenApplyAsync(tokenize, PriorityScheduler.lane(exec, Lane.INTERACTIVE)), () -> new SemanticTokens(Collections.emptyList()))
             .whenComplete((r, e) ->
                 logger.trace("Semantic tokens success, reporting {} tokens back", r == null ? 0 : r.getData().size())
             );
@@ -480,20 +495,24 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
     @Override
     public CompletableFuture<SemanticTokens> semanticTokensFull(SemanticTokensParams params) {
         logger.debug("semanticTokensFull: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument());
+        var loc = Locations.toLoc(params.getTextDocument());
+        return getSemanticTokens(params.getTextDocument())
+            .thenApply(tokens -> previousTokens.full(loc, tokens));
     }
 
     @Override
     public CompletableFuture<Either<SemanticTokens, SemanticTokensDelta>> semanticTokensFullDelta(
             SemanticTokensDeltaParams params) {
         logger.debug("semanticTokensFullDelta: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument()).thenApply(Either::forLeft);
+        var loc = Locations.toLoc(params.getTextDocument());
+        return getSemanticTokens(params.getTextDocument())
+            .thenApply(tokens -> previousTokens.delta(loc, params.getPreviousResultId(), tokens));
     }
 
     @Override
     public CompletableFuture<SemanticTokens> semanticTokensRange(SemanticTokensRangeParams params) {
-        logger.debug("semanticTokensRange: {}", params.getTextDocument());
-        return getSemanticTokens(params.getTextDocument());
+        logger.debug("semanticTokensRange: {} at {}", params.getTextDocument(), params.getRange());
+        return getSemanticTokens(params.getTextDocument(), t -> tokenizer.semanticTokensRange(t, false, params.getRange()));
     }
 
     @Override
@@ -564,6 +583,8 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
     public CompletableFuture<List<Either<Command, CodeAction>>> codeAction(CodeActionParams params) {
         logger.debug("textDocument/codeAction: {}", params);
 
+        var cancellation = new RequestCancellation();
+
         // first we make a future stream for filtering out the "fixes" that were optionally sent along with earlier diagnostics
         // and which came back with the codeAction's list of relevant (in scope) diagnostics:
         // CompletableFuture<Stream<IValue>>
@@ -578,21 +599,21 @@ public class RascalTextDocumentService extends TextDocumentStateManager implemen
                 .thenApply(Versioned::get)
                 .thenCompose((ITree tree) -> {
                     var loc = Locations.setPosition(Locations.toLoc(params.getTextDocument()), params.getRange().getStart(), getColumnMaps());
-                    return computeCodeActions(loc.getBeginLine(), loc.getBeginColumn(), tree, availableFacts().getPathConfig(loc));
+                    return computeCodeActions(loc.getBeginLine(), loc.getBeginColumn(), tree, availableFacts().getPathConfig(loc), cancellation);
                 })
                 .thenApply(IList::stream)
             , Stream::empty)
             ;
 
         // final merging the two streams of commmands, and their conversion to LSP Command data-type
-        return CodeActions.mergeAndConvertCodeActions(this, "", BaseWorkspaceService.RASCAL_LANGUAGE, quickfixes, codeActions);
+        return cancellation.bind(CodeActions.mergeAndConvertCodeActions(this, "", BaseWorkspaceService.RASCAL_LANGUAGE, quickfixes, codeActions));
     }
 
-    private CompletableFuture<IList> computeCodeActions(final int startLine, final int startColumn, ITree tree, PathConfig pcfg) {
+    private CompletableFuture<IList> computeCodeActions(final int startLine, final int startColumn, ITree tree, PathConfig pcfg, RequestCancellation cancellation) {
         return CompletableFuture.supplyAsync(() -> TreeSearch.computeFocusList(tree, startLine, startColumn), exec)
             .thenCompose(focus -> focus.isEmpty()
                 ? CompletableFutureUtils.completedFuture(focus /* an empty list */, exec)
-                : availableRascalServices().codeActions(focus, pcfg).get());
+                : cancellation.get(availableRascalServices().codeActions(focus, pcfg)));
     }
 
     private CodeLens makeRunCodeLens(CodeLensSuggestion detected) {
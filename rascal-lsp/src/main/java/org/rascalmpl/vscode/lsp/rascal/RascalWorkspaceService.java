@@ -39,6 +39,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.eclipse.lsp4j.ClientCapabilities;
+import org.eclipse.lsp4j.ExecuteCommandParams;
 import org.eclipse.lsp4j.FileOperationFilter;
 import org.eclipse.lsp4j.FileOperationOptions;
 import org.eclipse.lsp4j.FileOperationPattern;
@@ -66,6 +67,10 @@ import org.rascalmpl.vscode.lsp.util.locations.Locations;
 import io.usethesource.vallang.ISourceLocation;
 
 public class RascalWorkspaceService extends BaseWorkspaceService {
+    /**
+     * Type checks all Rascal modules in the workspace, which the client gets as a command without arguments
+     */
+    public static final String CHECK_WORKSPACE_COMMAND = "rascalmpl.checkWorkspace";
 
     private static final URIResolverRegistry REG = URIResolverRegistry.getInstance();
     private static final Logger logger = LogManager.getLogger(RascalWorkspaceService.class);
@@ -117,6 +122,20 @@ public class RascalWorkspaceService extends BaseWorkspaceService {
         ((RascalTextDocumentService) availableDocumentService()).projectRemoved(loc);
     }
 
+    @Override
+    public CompletableFuture<Object> executeCommand(ExecuteCommandParams commandParams) {
+        if (!CHECK_WORKSPACE_COMMAND.equals(commandParams.getCommand())) {
+            return super.executeCommand(commandParams);
+        }
+        logger.debug("Checking all modules in the workspace");
+        var projects = workspaceFolders().stream()
+            .map(f -> Locations.toLoc(f.getUri()))
+            .collect(Collectors.toList());
+        return ((RascalTextDocumentService) availableDocumentService()).getFileFacts()
+            .checkWorkspace(projects)
+            .thenApply(n -> "Checked " + n + " Rascal modules");
+    }
+
     private void registerAvailableSchemes() {
         var client = availableClient();
         for (var scheme : calculatePossibleSchemes()) {
@@ -31,6 +31,8 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
@@ -47,6 +49,7 @@ import org.rascalmpl.util.locations.ColumnMaps;
 import org.rascalmpl.values.ValueFactoryFactory;
 import org.rascalmpl.values.parsetrees.ITree;
 import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
 import io.usethesource.vallang.ICollection;
@@ -61,6 +64,7 @@ import io.usethesource.vallang.IValueFactory;
 public class Diagnostics {
     private static final String PARSER_DIAGNOSTICS_SOURCE = "parser";
     private static final String PARSE_ERROR_MESSAGE = "The parser couldn't fully understand this code.";
+    private static final int INSTANTIATE_CHUNK_SIZE = 32;
 
     private static final Logger logger = LogManager.getLogger(Diagnostics.class);
     private static final Map<String, DiagnosticSeverity> severityMap;
@@ -83,6 +87,23 @@ public class Diagnostics {
         public Diagnostic instantiate(ColumnMaps columns);
     }
 
+    /**
+     * Instantiate a list of templates. Long lists are split into chunks that are instantiated in parallel.
+     */
+    public static CompletableFuture<List<Diagnostic>> instantiate(List<Template> templates, ColumnMaps cm, Executor exec) {
+        var chunks = new ArrayList<CompletableFuture<List<Diagnostic>>>();
+        for (int start = 0; start < templates.size(); start += INSTANTIATE_CHUNK_SIZE) {
+            var chunk = templates.subList(start, Math.min(templates.size(), start + INSTANTIATE_CHUNK_SIZE));
+            chunks.add(CompletableFuture.supplyAsync(() -> chunk.stream()
+                .map(t -> t.instantiate(cm))
+                .collect(Collectors.toList()), exec));
+        }
+        return CompletableFutureUtils.reduce(chunks, exec)
+            .thenApply(done -> done.stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList()));
+    }
+
     public static Template generateParseErrorDiagnostic(Throwable t) {
         if (t instanceof ParseError) {
             return generateParseErrorDiagnostic((ParseError) t);
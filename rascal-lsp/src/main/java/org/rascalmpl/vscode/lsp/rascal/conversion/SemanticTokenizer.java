@@ -29,7 +29,6 @@ package org.rascalmpl.vscode.lsp.rascal.conversion;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -42,16 +41,19 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
+import org.eclipse.lsp4j.Range;
 import org.eclipse.lsp4j.SemanticTokenTypes;
 import org.eclipse.lsp4j.SemanticTokens;
 import org.eclipse.lsp4j.SemanticTokensCapabilities;
 import org.eclipse.lsp4j.SemanticTokensClientCapabilitiesRequests;
 import org.eclipse.lsp4j.SemanticTokensLegend;
+import org.eclipse.lsp4j.SemanticTokensServerFull;
 import org.eclipse.lsp4j.SemanticTokensWithRegistrationOptions;
 import org.rascalmpl.values.parsetrees.ITree;
 import org.rascalmpl.values.parsetrees.ProductionAdapter;
 import org.rascalmpl.values.parsetrees.SymbolAdapter;
 import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.util.IntList;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.IValue;
@@ -59,6 +61,7 @@ import io.usethesource.vallang.IValue;
 public class SemanticTokenizer {
 
     private static final Logger logger = LogManager.getLogger(SemanticTokenizer.class);
+    private static final int DEFAULT_SIZE_HINT = 500;
 
     private final CategoryPatch patch;
 
@@ -71,8 +74,27 @@ public class SemanticTokenizer {
     }
 
     public SemanticTokens semanticTokensFull(ITree tree, boolean specialCaseHighlighting) {
-        TokenList tokens = new TokenList();
-        new TokenCollector(tokens, specialCaseHighlighting, patch).collect(tree);
+        return semanticTokensFull(tree, specialCaseHighlighting, DEFAULT_SIZE_HINT);
+    }
+
+    /**
+     * @param sizeHint the expected length of the encoded token data, typically the length of the
+     * previous result for the same document, such that the buffer does not have to grow while tokenizing.
+     * Values below 1 mean there is no hint.
+     */
+    public SemanticTokens semanticTokensFull(ITree tree, boolean specialCaseHighlighting, int sizeHint) {
+        TokenList tokens = new TokenList(sizeHint > 0 ? sizeHint : DEFAULT_SIZE_HINT);
+        new TokenCollector(tokens, specialCaseHighlighting, patch, 0, Integer.MAX_VALUE).collect(tree);
+        return new SemanticTokens(tokens.getTheList());
+    }
+
+    /**
+     * Only produces the tokens on the lines of `range`. Subtrees that lie entirely
+     * outside of these lines are not visited.
+     */
+    public SemanticTokens semanticTokensRange(ITree tree, boolean specialCaseHighlighting, Range range) {
+        TokenList tokens = new TokenList(DEFAULT_SIZE_HINT);
+        new TokenCollector(tokens, specialCaseHighlighting, patch, range.getStart().getLine(), range.getEnd().getLine()).collect(tree);
         return new SemanticTokens(tokens.getTheList());
     }
 
@@ -80,7 +102,8 @@ public class SemanticTokenizer {
         SemanticTokensWithRegistrationOptions result = new SemanticTokensWithRegistrationOptions();
         SemanticTokensLegend legend = new SemanticTokensLegend(TokenTypes.getTokenTypes(), TokenTypes.getTokenModifiers());
 
-        result.setFull(true);
+        result.setFull(new SemanticTokensServerFull(true)); // see SemanticTokensCache for the delta support
+        result.setRange(true);
         result.setLegend(legend);
 
         return result;
@@ -100,12 +123,17 @@ public class SemanticTokenizer {
     }
 
     private static class TokenList {
-        private final List<Integer> theList = new ArrayList<>(500);
+        // primitive storage, since big files easily have hundreds of thousands of tokens (5 ints each)
+        private final IntList theList;
         private int previousLineAbsolute = 0;
         private int previousStartAbsolute = 0;
 
+        public TokenList(int sizeHint) {
+            this.theList = new IntList(sizeHint);
+        }
+
         public List<Integer> getTheList() {
-            return Collections.unmodifiableList(theList);
+            return theList; // read-only via the List interface
         }
 
         public void addToken(int lineAbsolute, int startAbsolute, int length, @Nullable String category) {
@@ -124,11 +152,11 @@ public class SemanticTokenizer {
                 growPreviousToken(length);
             } else {
                 // https://microsoft.github.io/language-server-protocol/specifications/specification-3-16/#textDocument_semanticTokens
-                theList.add(lineAbsolute - previousLineAbsolute);
-                theList.add(lineAbsolute == previousLineAbsolute ? startAbsolute - previousStartAbsolute : startAbsolute);
-                theList.add(length);
-                theList.add(type);
-                theList.add(0); // no support for modifiers yet
+                theList.addInt(lineAbsolute - previousLineAbsolute);
+                theList.addInt(lineAbsolute == previousLineAbsolute ? startAbsolute - previousStartAbsolute : startAbsolute);
+                theList.addInt(length);
+                theList.addInt(type);
+                theList.addInt(0); // no support for modifiers yet
                 previousLineAbsolute = lineAbsolute;
                 previousStartAbsolute = startAbsolute;
             }
@@ -145,12 +173,12 @@ public class SemanticTokenizer {
         }
 
         private int previous(TokenField field) {
-            return theList.get(previousIndexOf(field));
+            return theList.getInt(previousIndexOf(field));
         }
 
         private void growPreviousToken(int length) {
             int i = previousIndexOf(TokenField.LENGTH);
-            theList.set(i, theList.get(i) + length);
+            theList.setInt(i, theList.getInt(i) + length);
         }
     }
 
@@ -383,13 +411,22 @@ public class SemanticTokenizer {
         private final boolean specialCaseHighlighting;
         private final CategoryPatch patch;
 
-        public TokenCollector(TokenList tokens, boolean specialCaseHighlighting, CategoryPatch patch) {
+        /** the (0-based, inclusive) lines for which tokens are collected */
+        private final int firstLine;
+        private final int lastLine;
+        /** set once the collector has passed `lastLine` */
+        private boolean done;
+
+        public TokenCollector(TokenList tokens, boolean specialCaseHighlighting, CategoryPatch patch, int firstLine, int lastLine) {
             this.tokens = tokens;
             this.specialCaseHighlighting = specialCaseHighlighting;
             this.patch = patch;
+            this.firstLine = firstLine;
+            this.lastLine = lastLine;
 
             line = 0;
             column = 0;
+            done = false;
         }
 
         public void collect(ITree tree) {
@@ -397,6 +434,9 @@ public class SemanticTokenizer {
         }
 
         private void collect(ITree tree, @Nullable String parentCategory) {
+            if (done || skip(tree)) {
+                return;
+            }
             if (tree.isAppl()) {
                 collectAppl(tree, parentCategory);
             }
@@ -447,6 +487,34 @@ public class SemanticTokenizer {
             }
         }
 
+        /**
+         * Skips over trees that lie entirely outside the lines we collect for.
+         * Trees before the first line are stepped over using their location; since
+         * columns of Rascal locations count code points instead of UTF-16 code units,
+         * the column can be off afterwards, but only on a line that we do not emit
+         * tokens for.
+         * @return true iff the tree should not be visited
+         */
+        private boolean skip(ITree tree) {
+            if (firstLine == 0 && lastLine == Integer.MAX_VALUE) {
+                return false;
+            }
+            var loc = TreeAdapter.getLocation(tree);
+            if (loc == null || !loc.hasLineColumn()) {
+                return false;
+            }
+            if (loc.getBeginLine() - 1 > lastLine) {
+                done = true;
+                return true;
+            }
+            if (loc.getEndLine() - 1 < firstLine) {
+                line = loc.getEndLine() - 1;
+                column = loc.getEndColumn();
+                return true;
+            }
+            return false;
+        }
+
         private void collectAmb(ITree tree, @Nullable String parentCategory) {
             var category = showAmb ? TokenTypes.AMBIGUITY : parentCategory;
             var child = (ITree) TreeAdapter.getAlternatives(tree).iterator().next();
@@ -456,7 +524,13 @@ public class SemanticTokenizer {
         private void collectChar(ITree tree, @Nullable String parentCategory) {
             var ch = TreeAdapter.getCharacter(tree);
             var length = Character.isSupplementaryCodePoint(ch) ? 2 : 1; // LSP counts 16-bit code units instead of Unicode code points
-            tokens.addToken(line, column, length, parentCategory);
+            if (line > lastLine) {
+                done = true;
+                return;
+            }
+            if (line >= firstLine) {
+                tokens.addToken(line, column, length, parentCategory);
+            }
 
             if (ch == '\n') {
                 line++;
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.conversion;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.eclipse.lsp4j.SemanticTokens;
+import org.eclipse.lsp4j.SemanticTokensDelta;
+import org.eclipse.lsp4j.SemanticTokensEdit;
+import org.eclipse.lsp4j.jsonrpc.messages.Either;
+import org.rascalmpl.vscode.lsp.util.IntList;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Remembers the last semantic tokens that were sent for every document, such that
+ * `semanticTokens/full/delta` requests can be answered with the difference between
+ * the previous and the current tokens, instead of all tokens.
+ */
+public class SemanticTokensCache {
+    private final Map<ISourceLocation, SemanticTokens> previous = new ConcurrentHashMap<>();
+    private final AtomicLong resultIds = new AtomicLong();
+
+    /**
+     * Register a full result for `doc`, tagging it with a fresh result id.
+     */
+    public SemanticTokens full(ISourceLocation doc, SemanticTokens tokens) {
+        var result = new SemanticTokens(nextResultId(), tokens.getData());
+        previous.put(doc.top(), result);
+        return result;
+    }
+
+    /**
+     * Compute the edits that turn the tokens with `previousResultId` into `tokens`.
+     * If we no longer have the previous result (or never had it), the full result is returned instead.
+     */
+    public Either<SemanticTokens, SemanticTokensDelta> delta(ISourceLocation doc, String previousResultId, SemanticTokens tokens) {
+        var old = previous.get(doc.top());
+        if (old == null || !previousResultId.equals(old.getResultId())) {
+            return Either.forLeft(full(doc, tokens));
+        }
+
+        var result = full(doc, tokens);
+        return Either.forRight(new SemanticTokensDelta(diff(old.getData(), result.getData()), result.getResultId()));
+    }
+
+    /**
+     * @return the length of the token data that was last sent for `doc`, or 0 if nothing was sent yet
+     */
+    public int sizeHint(ISourceLocation doc) {
+        var old = previous.get(doc.top());
+        return old == null ? 0 : old.getData().size();
+    }
+
+    public void clear(ISourceLocation doc) {
+        previous.remove(doc.top());
+    }
+
+    private String nextResultId() {
+        return Long.toString(resultIds.incrementAndGet());
+    }
+
+    /**
+     * Typing changes a contiguous part of the token array, so a single edit
+     * that replaces everything between the common prefix and the common suffix
+     * is (nearly) minimal in practice.
+     */
+    private static List<SemanticTokensEdit> diff(List<Integer> old, List<Integer> current) {
+        int prefix = 0;
+        int maxPrefix = Math.min(old.size(), current.size());
+        while (prefix < maxPrefix && at(old, prefix) == at(current, prefix)) {
+            prefix++;
+        }
+
+        if (prefix == old.size() && prefix == current.size()) {
+            return Collections.emptyList();
+        }
+
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && at(old, old.size() - 1 - suffix) == at(current, current.size() - 1 - suffix)) {
+            suffix++;
+        }
+
+        var inserted = new IntList(current.size() - suffix - prefix);
+        for (int i = prefix; i < current.size() - suffix; i++) {
+            inserted.addInt(at(current, i));
+        }
+        return List.of(new SemanticTokensEdit(prefix, old.size() - suffix - prefix, inserted));
+    }
+
+    private static int at(List<Integer> data, int index) {
+        return data instanceof IntList ? ((IntList) data).getInt(index) : data.get(index);
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.eclipse.lsp4j.Diagnostic;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Coalesces the checks of files that are saved in quick succession, or while a check is running, into one
+ * run of the checker, which visits and checks their shared dependencies only once, and reports the messages
+ * of all checked files in one pass.
+ */
+class CheckQueue {
+    static final long COALESCE_DELAY_MILLIS = 100;
+
+    private final Function<Set<ISourceLocation>, CompletableFuture<Map<ISourceLocation, List<Diagnostic>>>> checker;
+    private final BiConsumer<ISourceLocation, List<Diagnostic>> report;
+    private final Executor exec;
+    private final long delayMillis;
+
+    private final Set<ISourceLocation> pending = new LinkedHashSet<>();
+    // the check that the pending files will be part of
+    private @Nullable CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> next = null;
+    private boolean running = false;
+
+    /**
+     * @param checker checks a set of files, and returns the messages per file
+     * @param report receives the messages of every checked file, once per check
+     */
+    CheckQueue(Function<Set<ISourceLocation>, CompletableFuture<Map<ISourceLocation, List<Diagnostic>>>> checker,
+        BiConsumer<ISourceLocation, List<Diagnostic>> report, Executor exec, long delayMillis) {
+        this.checker = checker;
+        this.report = report;
+        this.exec = exec;
+        this.delayMillis = delayMillis;
+    }
+
+    /**
+     * @return a future of the messages of the check that `file` is part of, which is shared with the other files of that check
+     */
+    synchronized CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> enqueue(ISourceLocation file) {
+        pending.add(file);
+        var result = next;
+        if (result == null) {
+            result = new CompletableFuture<>();
+            next = result;
+            if (!running) {
+                CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS, exec).execute(this::run);
+            }
+        }
+        return result;
+    }
+
+    private void run() {
+        Set<ISourceLocation> batch;
+        CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> result;
+        synchronized (this) {
+            result = next;
+            if (result == null || running) {
+                return;
+            }
+            batch = new LinkedHashSet<>(pending);
+            pending.clear();
+            next = null;
+            running = true;
+        }
+
+        CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> check;
+        try {
+            check = checker.apply(batch);
+        } catch (RuntimeException e) {
+            check = CompletableFuture.failedFuture(e);
+        }
+        check.whenComplete((m, e) -> {
+            try {
+                if (m != null) {
+                    m.forEach(report);
+                }
+            } finally {
+                synchronized (this) {
+                    running = false;
+                }
+                // the files that were saved during this check do not have to wait for the delay. We start their check
+                // before we complete our own result, such that nothing that waits on our result can keep it from starting.
+                run();
+                if (m != null) {
+                    result.completeAsync(() -> m, exec);
+                } else {
+                    exec.execute(() -> result.completeExceptionally(e));
+                }
+            }
+        });
+    }
+}
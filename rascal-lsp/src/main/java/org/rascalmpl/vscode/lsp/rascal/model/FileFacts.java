@@ -26,7 +26,9 @@
  */
 package org.rascalmpl.vscode.lsp.rascal.model;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -45,18 +47,20 @@ import org.rascalmpl.library.util.PathConfig;
 import org.rascalmpl.uri.URIResolverRegistry;
 import org.rascalmpl.util.locations.ColumnMaps;
 import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.vscode.lsp.model.ClosedFileDiagnostics;
 import org.rascalmpl.vscode.lsp.model.DiagnosticsReporter;
 import org.rascalmpl.vscode.lsp.rascal.RascalLanguageServices;
 import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
+import org.rascalmpl.vscode.lsp.util.Digests;
 import org.rascalmpl.vscode.lsp.util.Lists;
 import org.rascalmpl.vscode.lsp.util.Versioned;
 import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
 import org.rascalmpl.vscode.lsp.util.concurrent.InterruptibleFuture;
 import org.rascalmpl.vscode.lsp.util.concurrent.LazyUpdateableReference;
-import org.rascalmpl.vscode.lsp.util.concurrent.ReplaceableFuture;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
-import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.ISourceLocation;
 
 public class FileFacts implements DiagnosticsReporter {
@@ -65,9 +69,13 @@ public class FileFacts implements DiagnosticsReporter {
     private final RascalLanguageServices rascal;
     private final LanguageClient client;
     private final Map<ISourceLocation, FileFact> files = new ConcurrentHashMap<>();
+    // of closed files, we only keep the type checker messages, since the others are recalculated when they are opened again
+    private final ClosedFileDiagnostics closed = new ClosedFileDiagnostics();
+    private final SummaryIndex summaries = new SummaryIndex();
     private final ColumnMaps cm;
     private final PathConfigs confs;
     private final FileFact nopFact;
+    private final CheckQueue checks;
 
     public FileFacts(Executor exec, RascalLanguageServices rascal, LanguageClient client, ColumnMaps cm) {
         this.exec = exec;
@@ -75,6 +83,11 @@ public class FileFacts implements DiagnosticsReporter {
         this.client = client;
         this.cm = cm;
         this.confs = new PathConfigs(rascal, exec, new PathConfigDiagnostics(client, cm));
+        this.checks = new CheckQueue(
+            files -> rascal.compileFiles(files, exec).thenApply(m -> Diagnostics.translateMessages(m, Set.of("rsc"), cm)).get(),
+            // a batch also reports its (unopened) dependencies, which must not get facts of open files
+            this::reportCheckedModule,
+            exec, CheckQueue.COALESCE_DELAY_MILLIS);
         this.nopFact = new FileFact() {
             @Override public void reportParseErrors(Versioned<List<Diagnostic>> msgs) { /* NOP */}
             @Override public void reportAnalyzeMessages(Versioned<List<Diagnostic>> msgs) { /* NOP */}
@@ -104,6 +117,30 @@ public class FileFacts implements DiagnosticsReporter {
         getFile(file).triggerAnalyzer(currentTreeAsync, versioned, delay);
     }
 
+    /**
+     * Type check all modules of these projects, ordered by their dependencies, and report the messages per module
+     * as soon as they are available.
+     *
+     * @return a future of the number of modules that were checked
+     */
+    public CompletableFuture<Integer> checkWorkspace(List<ISourceLocation> projects) {
+        return new WorkspaceChecker(rascal, confs::lookupConfig, this::reportCheckedModule, cm, exec).check(projects);
+    }
+
+    private void reportCheckedModule(ISourceLocation file, List<Diagnostic> msgs) {
+        // `compute` keeps the file from being opened while we decide where its messages go
+        files.compute(Locations.toClientLocation(file.top()), (loc, fact) -> {
+            if (fact != null) {
+                fact.reportTypeCheckerMessages(msgs);
+                return fact;
+            }
+            // keep the messages of files that are not open in the bounded store of closed files, instead of in `files`
+            closed.close(loc, msgs);
+            client.publishDiagnostics(new PublishDiagnosticsParams(Locations.toUri(loc).toString(), msgs));
+            return null;
+        });
+    }
+
     public CompletableFuture<SummaryBridge> getSummary(ISourceLocation file) {
         return getFile(file).getSummary();
     }
@@ -113,22 +150,22 @@ public class FileFacts implements DiagnosticsReporter {
         getFile(file).reportParseErrors(msgs);
     }
 
-    private FileFact getFile(ISourceLocation l) {
-        l = l.top();
-        ISourceLocation resolved = Locations.toClientLocation(l);
-        var fact = files.get(resolved);
-        if (fact != null) {
-            return fact;
-        }
-
+    /**
+     * Start keeping the facts of a file that was opened, starting from its messages of when it was closed.
+     * Only open files have facts; the messages of other files are kept in the bounded store of closed files.
+     */
+    public void open(ISourceLocation file) {
+        var resolved = Locations.toClientLocation(file.top());
         if (URIResolverRegistry.getInstance().exists(resolved)) {
-            // The file exists, so there should be facts.
-            // Someone might have raced past us, so we atomically check(again)-and-update and return the result.
-            return files.computeIfAbsent(resolved, loc -> new ActualFileFact(loc, exec));
+            // Someone might have raced past us, so we atomically check(again)-and-update.
+            files.computeIfAbsent(resolved, loc -> new ActualFileFact(loc, closed.reopen(loc), exec));
         }
+    }
 
-        // Return dummy facts without modifying the map.
-        return nopFact;
+    private FileFact getFile(ISourceLocation l) {
+        var fact = files.get(Locations.toClientLocation(l.top()));
+        // Return dummy facts for files that are not open, without modifying the map.
+        return fact != null ? fact : nopFact;
     }
 
     public PathConfig getPathConfig(ISourceLocation file) {
@@ -147,6 +184,13 @@ public class FileFacts implements DiagnosticsReporter {
         return removed;
     }
 
+    /**
+     * @return the number of closed files of which the diagnostics were forgotten, to bound memory use
+     */
+    public long getClosedFileEvictions() {
+        return closed.getEvictions();
+    }
+
     private interface FileFact {
         void reportParseErrors(Versioned<List<Diagnostic>> msgs);
         void reportAnalyzeMessages(Versioned<List<Diagnostic>> msgs);
@@ -164,24 +208,81 @@ public class FileFacts implements DiagnosticsReporter {
         private final AtomicReference<Versioned<List<Diagnostic>>> parseMessages = Versioned.atomic(-1, Collections.emptyList());
         private final AtomicReference<Versioned<String>> analyzerLatestVersion = new AtomicReference<>();
         private final AtomicReference<Versioned<List<Diagnostic>>> analyzerMessages = Versioned.atomic(-1, Collections.emptyList());
-        private volatile List<Diagnostic> typeCheckerMessages = Collections.emptyList();
-        private final ReplaceableFuture<Map<ISourceLocation, List<Diagnostic>>> typeCheckResults;
-
-        public ActualFileFact(ISourceLocation file, Executor exec) {
+        private volatile List<Diagnostic> typeCheckerMessages;
+        // shared with the other files of the same check, so it is never interrupted or replaced in place
+        private volatile CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> typeCheckResults;
+
+        /**
+         * @param typeCheckerMessages the type checker messages from when the file was closed, if it was
+         */
+        public ActualFileFact(ISourceLocation file, List<Diagnostic> typeCheckerMessages, Executor exec) {
             this.file = file;
-            this.typeCheckResults = ReplaceableFuture.completedFuture(Collections.emptyMap(), exec);
+            this.typeCheckerMessages = new ArrayList<>(typeCheckerMessages); // `invalidate` clears it
+            this.typeCheckResults = CompletableFutureUtils.completedFuture(Collections.emptyMap(), exec);
             this.summary = new LazyUpdateableReference<>(
                 InterruptibleFuture.completedFuture(new SummaryBridge(), exec),
                 r -> {
                     r.interrupt();
                     // only run get summary after the typechecker for this file is done running, because it needs the TPL
                     // (we cannot now global running type checkers, that is a different subject)
-                    return InterruptibleFuture.flatten(typeCheckResults.get()
-                        .<InterruptibleFuture<@Nullable IConstructor>>thenApply(o -> rascal.getSummary(file, confs::lookupConfig)), exec)
-                        .thenApply(s -> s == null ? new SummaryBridge() : new SummaryBridge(file, s, cm));
+                    return InterruptibleFuture.flatten(typeCheckResults
+                        .handle((o, e) -> calculateSummary()), exec);
                 });
         }
 
+        /**
+         * Take the summary from the index if neither the TPL nor the saved source changed since it was
+         * stored, or else make it (and store it) using the evaluator.
+         */
+        private InterruptibleFuture<SummaryBridge> calculateSummary() {
+            long tplStamp = tplStamp();
+            byte @Nullable [] sourceDigest = tplStamp >= 0 ? sourceDigest() : null;
+            if (sourceDigest != null) {
+                var indexed = summaries.load(file, tplStamp, sourceDigest);
+                if (indexed != null) {
+                    return InterruptibleFuture.completedFuture(indexed, exec);
+                }
+            }
+            return rascal.getSummary(file, confs::lookupConfig)
+                .thenApply(s -> {
+                    if (s == null) {
+                        return new SummaryBridge();
+                    }
+                    var result = new SummaryBridge(file, s, cm);
+                    if (sourceDigest != null) {
+                        CompletableFuture.runAsync(() -> summaries.save(file, tplStamp, sourceDigest, result), PriorityScheduler.lane(exec, Lane.BACKGROUND));
+                    }
+                    return result;
+                });
+        }
+
+        /**
+         * @return the digest of the saved contents of this file, or null if it cannot be read
+         */
+        private byte @Nullable [] sourceDigest() {
+            try (var in = URIResolverRegistry.getInstance().getInputStream(file)) {
+                return Digests.sha256().digest(in.readAllBytes());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * @return the modification stamp of the TPL of this file, or -1 if it has none (yet)
+         */
+        private long tplStamp() {
+            var tpl = rascal.getTplLocation(file, confs::lookupConfig);
+            if (tpl == null) {
+                return -1;
+            }
+            try {
+                var reg = URIResolverRegistry.getInstance();
+                return reg.exists(tpl) ? reg.lastModified(tpl) : -1;
+            } catch (IOException e) {
+                return -1;
+            }
+        }
+
         @Override
         public void reportParseErrors(Versioned<List<Diagnostic>> msgs) {
             if (Versioned.replaceIfNewer(parseMessages, msgs)) {
@@ -223,10 +324,8 @@ public class FileFacts implements DiagnosticsReporter {
         public void invalidate() {
             summary.invalidate();
             typeCheckerMessages.clear();
-            this.typeCheckResults.replace(
-                rascal.compileFile(file, confs.lookupConfig(file), exec)
-                    .thenApply(m -> Diagnostics.translateMessages(m, Set.of("rsc"), cm))
-            ).thenAccept(m -> m.forEach((f, msgs) -> getFile(f).reportTypeCheckerMessages(msgs)));
+            // the queue reports the messages of all files that it checked, so we only have to wait for it
+            this.typeCheckResults = checks.enqueue(file);
         }
 
         @Override
@@ -252,8 +351,11 @@ public class FileFacts implements DiagnosticsReporter {
         public void close() {
             if (noMessages() || !URIResolverRegistry.getInstance().exists(file)) {
                 // If there are no messages for this file or the file has been deleted, can we remove it
-                // else VS Code comes back and we've dropped the messages in our internal data
                 files.remove(file);
+            } else if (files.remove(file, this)) {
+                // Drop the summary, but remember the type checker messages, else VS Code
+                // comes back and we've dropped the messages in our internal data
+                closed.close(file, typeCheckerMessages);
             }
         }
 
@@ -263,10 +365,8 @@ public class FileFacts implements DiagnosticsReporter {
             parseMessages.set(new Versioned<>(-1, Collections.emptyList()));
             analyzerMessages.set(new Versioned<>(-1, Collections.emptyList()));
             typeCheckerMessages.clear();
-            typeCheckResults.replace(CompletableFutureUtils.completedFuture(Map.of(), exec));
+            typeCheckResults = CompletableFutureUtils.completedFuture(Map.of(), exec);
             client.publishDiagnostics(new PublishDiagnosticsParams(Locations.toUri(file).toString(), List.of()));
         }
     }
-
-
 }
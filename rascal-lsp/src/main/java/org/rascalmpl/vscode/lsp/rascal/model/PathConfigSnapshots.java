@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.library.util.PathConfig;
+import org.rascalmpl.uri.URIResolverRegistry;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.values.IRascalValueFactory;
+import org.rascalmpl.vscode.lsp.util.Digests;
+import org.rascalmpl.vscode.lsp.util.DiskStore;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.io.binary.message.IValueInputStream;
+import io.usethesource.vallang.io.binary.message.IValueOutputStream;
+import io.usethesource.vallang.io.binary.message.IValueOutputStream.CompressionRate;
+import io.usethesource.vallang.type.TypeStore;
+
+/**
+ * Stores the path configs of projects on disk, such that after a restart of the server, a project has a path config
+ * without waiting for Maven.
+ *
+ * A snapshot is keyed by the contents of the files that the path config is built from: the `RASCAL.MF`, `pom.xml` and
+ * parent `pom.xml` of the project. It cannot see changes in the local Maven repository, so a loaded snapshot should be
+ * rebuilt in the background.
+ *
+ * The directory can be configured with {@link #DIRECTORY_PROPERTY}; an empty value disables the store.
+ */
+public class PathConfigSnapshots {
+    private static final Logger logger = LogManager.getLogger(PathConfigSnapshots.class);
+    public static final String DIRECTORY_PROPERTY = "rascal.lsp.pathConfigCache";
+    private static final int MAX_FILES = 1_000;
+    private static final URIResolverRegistry reg = URIResolverRegistry.getInstance();
+
+    private final DiskStore store;
+
+    public PathConfigSnapshots() {
+        this(DiskStore.directory(DIRECTORY_PROPERTY, "path-configs"));
+    }
+
+    public PathConfigSnapshots(@Nullable Path directory) {
+        this.store = new DiskStore(directory, ".pathconfig", MAX_FILES);
+    }
+
+    /**
+     * @return the path config of this project, if it was stored for the current contents of its meta files, or else null
+     */
+    public @Nullable PathConfig load(ISourceLocation projectRoot) {
+        try {
+            var contents = store.read(keyOf(projectRoot));
+            if (contents == null || contents.length < Digests.LENGTH) {
+                return null;
+            }
+            if (!Arrays.equals(Arrays.copyOf(contents, Digests.LENGTH), fingerprint(projectRoot))) {
+                logger.trace("Stored path config of {} is of different meta files", projectRoot);
+                return null;
+            }
+            var input = new ByteArrayInputStream(contents, Digests.LENGTH, contents.length - Digests.LENGTH);
+            try (var in = new IValueInputStream(input, IRascalValueFactory.getInstance(), TypeStore::new)) {
+                var result = in.read();
+                return result instanceof IConstructor ? new PathConfig((IConstructor) result) : null;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not load the stored path config of {}", projectRoot, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store the path config of this project, built from the current contents of its meta files, replacing any earlier one.
+     */
+    public void save(ISourceLocation projectRoot, PathConfig pcfg) {
+        try {
+            var fingerprint = fingerprint(projectRoot);
+            store.write(keyOf(projectRoot), out -> {
+                out.write(fingerprint);
+                try (var values = new IValueOutputStream(out, IRascalValueFactory.getInstance(), CompressionRate.Normal)) {
+                    values.write(pcfg.asConstructor());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not store the path config of {}", projectRoot, e);
+        }
+    }
+
+    /**
+     * A digest of the contents of the meta files of a project, where a missing file is different from an empty one.
+     */
+    private static byte[] fingerprint(ISourceLocation projectRoot) throws IOException {
+        var digest = Digests.sha256();
+        var metaFiles = List.of(
+            URIUtil.getChildLocation(projectRoot, "META-INF/RASCAL.MF"),
+            URIUtil.getChildLocation(projectRoot, "pom.xml"),
+            URIUtil.getChildLocation(URIUtil.getParentLocation(projectRoot), "pom.xml"));
+        for (var file : metaFiles) {
+            digest.update(file.getURI().toString().getBytes(StandardCharsets.UTF_8));
+            if (reg.exists(file)) {
+                digest.update((byte) 1);
+                try (var in = reg.getInputStream(file)) {
+                    digest.update(in.readAllBytes());
+                }
+            } else {
+                digest.update((byte) 0);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static String keyOf(ISourceLocation projectRoot) {
+        return projectRoot.getURI().toString();
+    }
+}
@@ -29,21 +29,19 @@ package org.rascalmpl.vscode.lsp.rascal.model;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import java.io.IOException;
-import java.nio.file.attribute.FileTime;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -55,6 +53,8 @@ import org.rascalmpl.uri.ISourceLocationWatcher.ISourceLocationChanged;
 import org.rascalmpl.uri.URIResolverRegistry;
 import org.rascalmpl.uri.URIUtil;
 import org.rascalmpl.vscode.lsp.rascal.RascalLanguageServices;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.ISourceLocation;
@@ -65,11 +65,14 @@ import io.usethesource.vallang.ISourceLocation;
  */
 public class PathConfigs {
     private static final Logger logger = LogManager.getLogger(PathConfigs.class);
+    // the settle window of changes to the meta files of a project
     private static final long UPDATE_DELAY = TimeUnit.SECONDS.toNanos(5);
 
     private static final URIResolverRegistry reg = URIResolverRegistry.getInstance();
     private final Map<ISourceLocation, Pair<PathConfig, Instant>> currentPathConfigs = new ConcurrentHashMap<>();
-    private final PathConfigUpdater updater = new PathConfigUpdater(currentPathConfigs);
+    private final Map<ISourceLocation, CompletableFuture<Pair<PathConfig, Instant>>> pendingBuilds = new ConcurrentHashMap<>();
+    private final PathConfigSnapshots snapshots = new PathConfigSnapshots();
+    private final PathConfigUpdater updater = new PathConfigUpdater();
     private final LoadingCache<ISourceLocation, ISourceLocation> translatedRoots =
         Caffeine.newBuilder()
             .expireAfterAccess(Duration.ofMinutes(20))
@@ -84,7 +87,6 @@ public class PathConfigs {
         this.rascal = rascal;
         this.diagnostics = diagnostics;
         this.executor = executor;
-        updater.start();
     }
 
     public void expungePathConfig(ISourceLocation project) {
@@ -94,23 +96,97 @@ public class PathConfigs {
         } catch (IOException e) {
             logger.warn("Unregistration of meta files for project {} failed.", project, e);
         }
-        currentPathConfigs.remove(projectRoot);
+        // a build that is still running must not store its config for the removed project when it completes
+        pendingBuilds.compute(projectRoot, (root, building) -> {
+            currentPathConfigs.remove(root);
+            return null;
+        });
     }
 
+    /**
+     * Look up the path config of the project of a file, which only waits for it to be built if we did not have one
+     * before. Concurrent lookups in the same project share a single build, and while a config is being rebuilt, the
+     * previous one is returned.
+     */
     public PathConfig lookupConfig(ISourceLocation forFile) {
-        forFile = forFile.top();
+        try {
+            return lookup(forFile.top()).join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
 
+    private CompletableFuture<PathConfig> lookup(ISourceLocation forFile) {
         if (!rascal.isOpenInWorkspace(forFile)) {
-            return new PathConfig();
+            return CompletableFuture.completedFuture(new PathConfig());
         }
 
         ISourceLocation projectRoot = translatedRoots.get(forFile);
-        var entry = currentPathConfigs.compute(projectRoot, (project, current) -> shouldBeRecomputed(current) ? buildPathConfig(project) : current);
-        if (entry == null) {
-            // This can only happen when the `compute` function throws an exception
-            throw new RuntimeException(String.format("Path config computation for %s failed", projectRoot));
+        var current = currentPathConfigs.get(projectRoot);
+        if (current == null && !pendingBuilds.containsKey(projectRoot)) {
+            current = loadSnapshot(projectRoot);
+        }
+        if (current != null && !shouldBeRecomputed(current)) {
+            return CompletableFuture.completedFuture(current.getKey());
+        }
+        var building = startBuild(projectRoot, executor);
+        if (current != null) {
+            // serve the stale config, until the build is done
+            return CompletableFuture.completedFuture(current.getKey());
+        }
+        return building.thenApply(Pair::getKey);
+    }
+
+    /**
+     * Take the path config of a project from the snapshot on disk, if its meta files did not change since, and
+     * rebuild it in the background, since its dependencies might have changed nonetheless.
+     */
+    private @Nullable Pair<PathConfig, Instant> loadSnapshot(ISourceLocation projectRoot) {
+        var snapshot = snapshots.load(projectRoot);
+        if (snapshot == null) {
+            return null;
         }
-        return entry.getKey();
+        logger.debug("Loaded stored path config for: {}", projectRoot);
+        var loaded = Pair.of(snapshot, Instant.now());
+        var result = currentPathConfigs.putIfAbsent(projectRoot, loaded);
+        if (result == null) {
+            startBuild(projectRoot, PriorityScheduler.lane(executor, Lane.BACKGROUND));
+            return loaded;
+        }
+        // someone else loaded or built it in the meantime
+        return result;
+    }
+
+    private CompletableFuture<Pair<PathConfig, Instant>> startBuild(ISourceLocation projectRoot, Executor exec) {
+        var fresh = new CompletableFuture<Pair<PathConfig, Instant>>();
+        var running = pendingBuilds.putIfAbsent(projectRoot, fresh);
+        if (running != null) {
+            return running;
+        }
+        // we build outside of any lock on the maps, since the build can take long (it might run Maven)
+        CompletableFuture.supplyAsync(() -> buildPathConfig(projectRoot), exec)
+            .whenComplete((result, error) -> {
+                pendingBuilds.computeIfPresent(projectRoot, (root, building) -> {
+                    if (building != fresh) {
+                        // the project was removed (and maybe built again) while we were building
+                        return building;
+                    }
+                    if (result != null) {
+                        currentPathConfigs.put(root, result);
+                    }
+                    return null;
+                });
+                if (error != null) {
+                    fresh.completeExceptionally(error);
+                } else {
+                    fresh.complete(result);
+                }
+            });
+        return fresh;
     }
 
     private static boolean shouldBeRecomputed(@Nullable Pair<PathConfig, Instant> entry) {
@@ -123,22 +199,16 @@ public class PathConfigs {
             return false;
         }
         // Previous config had errors
-        return entry.getLeft().getMessages().stream()
+        return hasErrors(entry.getLeft());
+    }
+
+    private static boolean hasErrors(PathConfig pcfg) {
+        return pcfg.getMessages().stream()
             .filter(IConstructor.class::isInstance)
             .map(IConstructor.class::cast)
             .anyMatch(e -> "error".equals(e.getName()));
     }
 
-    private static long safeLastModified(ISourceLocation uri) {
-        try {
-            return reg.lastModified(uri);
-        } catch (IOException e) {
-            logger.debug("Cannot get last modified time of {}", uri, e);
-            return Long.MAX_VALUE;
-        }
-    }
-
-
     private Pair<PathConfig, Instant> buildPathConfig(ISourceLocation projectRoot) {
         try {
             logger.debug("Building path config for: {}", projectRoot);
@@ -172,20 +242,10 @@ public class PathConfigs {
     }
 
     private class PathConfigUpdater {
-        private final Map<ISourceLocation, Pair<PathConfig, Instant>> currentPathConfigs;
-        private final Map<ISourceLocation, List<WatchRegistration>> projectWatches;
-
-        public PathConfigUpdater(Map<ISourceLocation, Pair<PathConfig, Instant>> currentPathConfigs) {
-            this.currentPathConfigs = currentPathConfigs;
-            this.projectWatches = new ConcurrentHashMap<>();
-        }
-
-        public void start() {
-            scheduleRun();
-        }
+        private final Map<ISourceLocation, List<WatchRegistration>> projectWatches = new ConcurrentHashMap<>();
 
-        // we detect changes to roots, and keep track of the last changed time
-        // the thread will clear them if the time is longer than the timeout
+        // we detect changes to roots, and keep track of the time of the last change, such that all changes to the
+        // meta files of a root that arrive within the settle window lead to a single rebuild
         private final Map<ISourceLocation, Long> changedRoots = new ConcurrentHashMap<>();
 
         /**
@@ -193,15 +253,20 @@ public class PathConfigs {
          * these files when the project is closed.
          */
         public void watchFile(ISourceLocation projectRoot, ISourceLocation sourceFile) throws IOException {
-            Consumer<ISourceLocationChanged> callback = ignored ->
-                changedRoots.put(projectRoot, safeLastModified(sourceFile));
-            reg.watch(sourceFile, false, callback);
-
             var watchList = projectWatches.computeIfAbsent(projectRoot, root -> new CopyOnWriteArrayList<>());
-            watchList.add(new WatchRegistration(sourceFile, callback));
+            synchronized (watchList) {
+                if (watchList.stream().anyMatch(w -> w.file.equals(sourceFile))) {
+                    // every rebuild asks for the watches again
+                    return;
+                }
+                Consumer<ISourceLocationChanged> callback = ignored -> changed(projectRoot);
+                reg.watch(sourceFile, false, callback);
+                watchList.add(new WatchRegistration(sourceFile, callback));
+            }
         }
 
         public void unregisterProject(ISourceLocation projectRoot) throws IOException {
+            changedRoots.remove(projectRoot);
             List<WatchRegistration> registrations = projectWatches.remove(projectRoot);
             if (registrations != null) {
                 for (WatchRegistration registration : registrations) {
@@ -211,39 +276,59 @@ public class PathConfigs {
             diagnostics.clearDiagnostics(projectRoot);
         }
 
-        private void scheduleRun() {
-            CompletableFuture.delayedExecutor(1, TimeUnit.SECONDS, executor)
-                .execute(this::run);
+        private void changed(ISourceLocation projectRoot) {
+            if (changedRoots.put(projectRoot, System.nanoTime()) == null) {
+                // there was no rebuild pending for this root yet
+                scheduleRebuild(projectRoot, UPDATE_DELAY);
+            }
         }
 
-        private void run() {
-            try {
-                List<ISourceLocation> stabilizedRoots = changedRoots.entrySet().stream()
-                    .filter(e -> FileTime.from(Instant.now()).to(TimeUnit.NANOSECONDS) - e.getValue() >= UPDATE_DELAY)
-                    .map(Entry::getKey)
-                    .collect(Collectors.toList());
-
-                try {
-                    for (var root : stabilizedRoots) {
-                        // right before we calculate the path config,
-                        // we clear it from the list, as the path config calculation
-                        // can take some time
-                        changedRoots.remove(root);
-                        currentPathConfigs.replace(root, actualBuild(root));
-                    }
-                } catch (Exception e) {
-                    logger.error("Unexpected error while building PathConfigs", e) ;
-                }
+        private void scheduleRebuild(ISourceLocation projectRoot, long delayNanos) {
+            CompletableFuture.delayedExecutor(delayNanos, TimeUnit.NANOSECONDS, PriorityScheduler.lane(executor, Lane.BACKGROUND))
+                .execute(() -> rebuild(projectRoot));
+        }
 
-            } finally {
-                scheduleRun();
+        private void rebuild(ISourceLocation projectRoot) {
+            var lastChange = changedRoots.get(projectRoot);
+            if (lastChange == null) {
+                // the project was closed in the meantime
+                return;
+            }
+            long settled = System.nanoTime() - lastChange;
+            if (settled < UPDATE_DELAY) {
+                // another change came in, so we wait for the rest of its settle window
+                scheduleRebuild(projectRoot, UPDATE_DELAY - settled);
+                return;
+            }
+            var running = pendingBuilds.get(projectRoot);
+            if (running != null) {
+                // that build might have started before the change, so we build again after it
+                running.whenComplete((r, e) -> scheduleRebuild(projectRoot, 0));
+                return;
             }
+            // right before we calculate the path config, we clear it from the pending roots, as the
+            // calculation can take some time, and changes during it should cause another rebuild
+            if (!changedRoots.remove(projectRoot, lastChange)) {
+                // a change raced past us, it will be picked up by the next call
+                scheduleRebuild(projectRoot, UPDATE_DELAY);
+                return;
+            }
+            // through the single-flight builds, such that an older build can never overwrite a newer config
+            startBuild(projectRoot, PriorityScheduler.lane(executor, Lane.BACKGROUND))
+                .exceptionally(e -> {
+                    logger.error("Unexpected error while building PathConfigs", e);
+                    return null;
+                });
         }
 
         private Pair<PathConfig, Instant> actualBuild(ISourceLocation projectRoot) {
             var time = Instant.now();
             var pathConfig = PathConfig.fromSourceProjectRascalManifest(projectRoot, RascalConfigMode.COMPILER, true);
             logger.debug("Path config for {}: {}", projectRoot, pathConfig);
+            if (!hasErrors(pathConfig)) {
+                // configs with errors are rebuilt on every lookup, so we do not want them to outlive the server
+                PriorityScheduler.lane(executor, Lane.BACKGROUND).execute(() -> snapshots.save(projectRoot, pathConfig));
+            }
             // Publish diagnostics in a background thread
             executor.execute(() -> diagnostics.publishDiagnostics(projectRoot, pathConfig.getMessages(), Set.of("rsc")));
             return Pair.of(pathConfig, time);
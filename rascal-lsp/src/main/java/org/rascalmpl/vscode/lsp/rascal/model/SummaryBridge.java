@@ -28,7 +28,9 @@ package org.rascalmpl.vscode.lsp.rascal.model;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -42,7 +44,7 @@ import org.rascalmpl.values.ValueFactoryFactory;
 import org.rascalmpl.vscode.lsp.rascal.conversion.KeywordParameter;
 import org.rascalmpl.vscode.lsp.util.locations.IRangeMap;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
-import org.rascalmpl.vscode.lsp.util.locations.impl.TreeMapLookup;
+import org.rascalmpl.vscode.lsp.util.locations.impl.IntervalTreeLookup;
 
 import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.IMap;
@@ -69,25 +71,45 @@ public class SummaryBridge {
     }
 
     private final IWithKeywordParameters<? extends IConstructor> data;
+    private final Lazy<Map<Range, List<Location>>> definitionEntries;
+    private final Lazy<Map<Range, String>> typeNameEntries;
     private final Lazy<IRangeMap<List<Location>>> definitions;
     private final Lazy<IRangeMap<String>> typeNames;
 
 
     public SummaryBridge() {
-        this.data = EMPTY_SUMMARY.asWithKeywordParameters();
-        this.definitions = TreeMapLookup::new;
-        this.typeNames = TreeMapLookup::new;
+        this(Collections.emptyMap(), Collections.emptyMap());
     }
 
     public SummaryBridge(ISourceLocation self, IConstructor summary, ColumnMaps cm) {
         this.data = summary.asWithKeywordParameters();
-        definitions = Lazy.defer(() -> translateRelation(KeywordParameter.get("useDef", data, EMPTY_SET), self, v -> Locations.toLocation((ISourceLocation) v, cm), cm));
-        typeNames = Lazy.defer(() -> translateMap(KeywordParameter.get("locationTypes", data, EMPTY_MAP), self, v -> ((IString) v).getValue(), cm));
+        definitionEntries = Lazy.defer(() -> translateRelation(KeywordParameter.get("useDef", data, EMPTY_SET), self, v -> Locations.toLocation((ISourceLocation) v, cm), cm));
+        typeNameEntries = Lazy.defer(() -> translateMap(KeywordParameter.get("locationTypes", data, EMPTY_MAP), self, v -> ((IString) v).getValue(), cm));
+        definitions = Lazy.defer(() -> new IntervalTreeLookup<>(definitionEntries.get()));
+        typeNames = Lazy.defer(() -> new IntervalTreeLookup<>(typeNameEntries.get()));
+    }
+
+    /**
+     * A summary of which the useDef and locationTypes were already translated, see {@link SummaryIndex}.
+     */
+    public SummaryBridge(Map<Range, List<Location>> definitions, Map<Range, String> typeNames) {
+        this.data = EMPTY_SUMMARY.asWithKeywordParameters();
+        this.definitionEntries = () -> definitions;
+        this.typeNameEntries = () -> typeNames;
+        this.definitions = Lazy.defer(() -> new IntervalTreeLookup<>(definitions));
+        this.typeNames = Lazy.defer(() -> new IntervalTreeLookup<>(typeNames));
+    }
+
+    /*package*/ Map<Range, List<Location>> getDefinitionEntries() {
+        return definitionEntries.get();
+    }
 
+    /*package*/ Map<Range, String> getTypeNameEntries() {
+        return typeNameEntries.get();
     }
 
-    private static <T> IRangeMap<List<T>> translateRelation(ISet binaryRel, ISourceLocation self, Function<IValue, T> valueMapper, ColumnMaps cm) {
-        TreeMapLookup<List<T>> result = new TreeMapLookup<>();
+    private static <T> Map<Range, List<T>> translateRelation(ISet binaryRel, ISourceLocation self, Function<IValue, T> valueMapper, ColumnMaps cm) {
+        Map<Range, List<T>> result = new HashMap<>();
         for (IValue v: binaryRel) {
             ITuple row = (ITuple)v;
             ISourceLocation fromLoc = (ISourceLocation)row.get(0);
@@ -97,7 +119,7 @@ public class SummaryBridge {
             }
             Range from = Locations.toRange(fromLoc, cm);
             T to = valueMapper.apply(row.get(1));
-            List<T> existing = result.getExact(from);
+            List<T> existing = result.get(from);
             if (existing == null) {
                 // most cases there is only a single entry, to so save a lot of memory, we store a singleton list to start with
                 result.put(from, Collections.singletonList(to));
@@ -115,8 +137,8 @@ public class SummaryBridge {
         return result;
     }
 
-    private static <T extends @NonNull Object> IRangeMap<T> translateMap(IMap binaryMap, ISourceLocation self, Function<IValue, T> valueMapper, ColumnMaps cm) {
-        TreeMapLookup<T> result = new TreeMapLookup<>();
+    private static <T extends @NonNull Object> Map<Range, T> translateMap(IMap binaryMap, ISourceLocation self, Function<IValue, T> valueMapper, ColumnMaps cm) {
+        Map<Range, T> result = new HashMap<>();
         binaryMap.entryIterator().forEachRemaining(e -> {
             var fromLoc = (ISourceLocation)e.getKey();
             if (fromLoc.top().equals(self)) {
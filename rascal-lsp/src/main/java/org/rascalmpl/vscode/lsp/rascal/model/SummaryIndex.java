@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.rascalmpl.vscode.lsp.util.Digests;
+import org.rascalmpl.vscode.lsp.util.DiskStore;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Stores the translated summaries of Rascal modules on disk, such that looking up definitions
+ * and types in a module of which neither the source nor the TPL changed, does not need an
+ * evaluator call and does not translate the summary again.
+ *
+ * Every module has a file that starts with the modification stamp of the TPL that the summary
+ * was made from and the digest of the saved source of the module, followed by a table of strings
+ * and the ranges of the useDef and locationTypes maps as plain integers, which are only decoded
+ * if the stamp and the digest match. The digest catches a source that was saved again without its
+ * TPL getting a new stamp, since the ranges in the summary would not match it anymore.
+ *
+ * The directory can be configured with {@link #DIRECTORY_PROPERTY}; an empty value disables the index.
+ */
+public class SummaryIndex {
+    private static final Logger logger = LogManager.getLogger(SummaryIndex.class);
+    public static final String DIRECTORY_PROPERTY = "rascal.lsp.summaryIndex";
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_FILES = 10_000;
+
+    private final DiskStore store;
+
+    public SummaryIndex() {
+        this(DiskStore.directory(DIRECTORY_PROPERTY, "summary-index"));
+    }
+
+    public SummaryIndex(@Nullable Path directory) {
+        this.store = new DiskStore(directory, ".idx", MAX_FILES);
+    }
+
+    /**
+     * @param tplStamp the modification stamp of the current TPL of `module`
+     * @param sourceDigest the {@link Digests#sha256} of the saved source of `module`
+     * @return the summary of `module`, if it was stored for the same TPL and source, or else null
+     */
+    public @Nullable SummaryBridge load(ISourceLocation module, long tplStamp, byte[] sourceDigest) {
+        try {
+            var contents = store.read(keyOf(module));
+            if (contents == null) {
+                return null;
+            }
+            var buffer = ByteBuffer.wrap(contents);
+            if (buffer.getInt() != FORMAT_VERSION || buffer.getLong() != tplStamp) {
+                return null;
+            }
+            var storedDigest = new byte[Digests.LENGTH];
+            buffer.get(storedDigest);
+            if (!Arrays.equals(storedDigest, sourceDigest)) {
+                return null;
+            }
+            var strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                var bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            int definitionCount = buffer.getInt();
+            Map<Range, List<Location>> definitions = new HashMap<>(definitionCount * 2);
+            for (int i = 0; i < definitionCount; i++) {
+                var from = readRange(buffer);
+                int targetCount = buffer.getInt();
+                var targets = new ArrayList<Location>(targetCount);
+                for (int t = 0; t < targetCount; t++) {
+                    targets.add(new Location(strings[buffer.getInt()], readRange(buffer)));
+                }
+                definitions.put(from, targets);
+            }
+
+            int typeCount = buffer.getInt();
+            Map<Range, String> typeNames = new HashMap<>(typeCount * 2);
+            for (int i = 0; i < typeCount; i++) {
+                typeNames.put(readRange(buffer), strings[buffer.getInt()]);
+            }
+
+            logger.trace("Loaded summary of {} from the index", module);
+            return new SummaryBridge(definitions, typeNames);
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not load the summary of {} from the index", module, e);
+            return null;
+        }
+    }
+
+    /**
+     * Store the summary of `module`, made from the TPL with modification stamp `tplStamp`, of the saved
+     * source with digest `sourceDigest`.
+     */
+    public void save(ISourceLocation module, long tplStamp, byte[] sourceDigest, SummaryBridge summary) {
+        if (!store.isEnabled()) {
+            return;
+        }
+        try {
+            var definitions = summary.getDefinitionEntries();
+            var typeNames = summary.getTypeNameEntries();
+            var strings = new StringTable();
+            definitions.values().forEach(ls -> ls.forEach(l -> strings.indexOf(l.getUri())));
+            typeNames.values().forEach(strings::indexOf);
+
+            store.write(keyOf(module), raw -> {
+                var out = new DataOutputStream(new BufferedOutputStream(raw));
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(tplStamp);
+                out.write(sourceDigest);
+                out.writeInt(strings.size());
+                for (var s : strings.strings) {
+                    var bytes = s.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                }
+
+                out.writeInt(definitions.size());
+                for (var e : definitions.entrySet()) {
+                    writeRange(out, e.getKey());
+                    out.writeInt(e.getValue().size());
+                    for (var target : e.getValue()) {
+                        out.writeInt(strings.indexOf(target.getUri()));
+                        writeRange(out, target.getRange());
+                    }
+                }
+
+                out.writeInt(typeNames.size());
+                for (var e : typeNames.entrySet()) {
+                    writeRange(out, e.getKey());
+                    out.writeInt(strings.indexOf(e.getValue()));
+                }
+                out.flush();
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Could not store the summary of {} in the index", module, e);
+        }
+    }
+
+    private static Range readRange(ByteBuffer buffer) {
+        var start = new Position(buffer.getInt(), buffer.getInt());
+        var end = new Position(buffer.getInt(), buffer.getInt());
+        return new Range(start, end);
+    }
+
+    private static void writeRange(DataOutputStream out, Range range) throws IOException {
+        out.writeInt(range.getStart().getLine());
+        out.writeInt(range.getStart().getCharacter());
+        out.writeInt(range.getEnd().getLine());
+        out.writeInt(range.getEnd().getCharacter());
+    }
+
+    private static String keyOf(ISourceLocation module) {
+        return module.top().getURI().toString();
+    }
+
+    /**
+     * Uris and type names repeat a lot, so they are stored once.
+     */
+    private static class StringTable {
+        private final List<String> strings = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        int indexOf(String s) {
+            return indices.computeIfAbsent(s, k -> {
+                strings.add(k);
+                return strings.size() - 1;
+            });
+        }
+
+        int size() {
+            return strings.size();
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.eclipse.lsp4j.Diagnostic;
+import org.rascalmpl.library.Prelude;
+import org.rascalmpl.library.util.PathConfig;
+import org.rascalmpl.uri.URIResolverRegistry;
+import org.rascalmpl.util.locations.ColumnMaps;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.rascal.RascalLanguageServices;
+import org.rascalmpl.vscode.lsp.rascal.conversion.Diagnostics;
+import org.rascalmpl.vscode.lsp.util.RascalServices;
+import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler;
+import org.rascalmpl.vscode.lsp.util.concurrent.PriorityScheduler.Lane;
+import org.rascalmpl.vscode.lsp.util.locations.Locations;
+
+import io.usethesource.vallang.ISourceLocation;
+
+/**
+ * Type checks all Rascal modules of a workspace in one go.
+ *
+ * The modules are ordered by their imports and extends, such that a module is only checked after the modules it
+ * depends on, and the modules that do not depend on each other are checked in parallel on the compiler evaluators
+ * of {@link RascalLanguageServices}. The messages of every module are reported as soon as its check is done.
+ */
+class WorkspaceChecker {
+    private static final Logger logger = LogManager.getLogger(WorkspaceChecker.class);
+    private static final URIResolverRegistry reg = URIResolverRegistry.getInstance();
+
+    // only for modules that do not parse: it misses imports that share a line, or follow a comment or tag, and it
+    // matches in comments and strings
+    private static final Pattern IMPORT = Pattern.compile("^\\s*(?:import|extend)\\s+([\\\\A-Za-z_][\\\\A-Za-z0-9_:]*)\\s*;", Pattern.MULTILINE);
+
+    private final RascalLanguageServices rascal;
+    private final Function<ISourceLocation, PathConfig> lookupConfig;
+    private final BiConsumer<ISourceLocation, List<Diagnostic>> report;
+    private final ColumnMaps cm;
+    private final Executor exec;
+
+    WorkspaceChecker(RascalLanguageServices rascal, Function<ISourceLocation, PathConfig> lookupConfig,
+        BiConsumer<ISourceLocation, List<Diagnostic>> report, ColumnMaps cm, Executor exec) {
+        this.rascal = rascal;
+        this.lookupConfig = lookupConfig;
+        this.report = report;
+        this.cm = cm;
+        this.exec = exec;
+    }
+
+    /**
+     * @param projects the roots of the projects in the workspace
+     * @return a future of the number of modules that were checked
+     */
+    CompletableFuture<Integer> check(List<ISourceLocation> projects) {
+        return CompletableFuture.supplyAsync(() -> findModules(projects), PriorityScheduler.lane(exec, Lane.BACKGROUND))
+            .thenCompose(this::schedule);
+    }
+
+    private List<ISourceLocation> findModules(List<ISourceLocation> projects) {
+        var modules = new LinkedHashSet<ISourceLocation>();
+        for (var project : projects) {
+            try {
+                for (var src : lookupConfig.apply(project).getSrcs()) {
+                    collectModules((ISourceLocation) src, modules);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Could not find the modules of {}", project, e);
+            }
+        }
+        return new ArrayList<>(modules);
+    }
+
+    private static void collectModules(ISourceLocation folder, Set<ISourceLocation> modules) {
+        try {
+            for (var entry : reg.list(folder)) {
+                if (reg.isDirectory(entry)) {
+                    collectModules(entry, modules);
+                } else if (entry.getPath().endsWith(".rsc")) {
+                    modules.add(Locations.toClientLocation(entry));
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("Could not list {}", folder, e);
+        }
+    }
+
+    private CompletableFuture<Integer> schedule(List<ISourceLocation> modules) {
+        var graph = dependencies(modules);
+        var slots = new Slots(rascal.getCompilerEvaluatorCount(), exec);
+        var done = new ArrayList<CompletableFuture<Void>>(modules.size());
+        for (int i = 0; i < modules.size(); i++) {
+            done.add(null);
+        }
+        var all = new ArrayList<CompletableFuture<Void>>();
+        // the components come out in reverse topological order, so the futures of the dependencies exist already
+        for (var component : components(graph)) {
+            var dependencies = new LinkedHashSet<CompletableFuture<Void>>();
+            for (int m : component) {
+                for (int d : graph.get(m)) {
+                    if (!component.contains(d)) {
+                        dependencies.add(done.get(d));
+                    }
+                }
+            }
+            // checking one module of a cycle checks all of them, since the checker takes care of outdated imports
+            var checked = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                .handle((v, e) -> null) // a failed dependency should not stop us from checking its dependents
+                .thenCompose(v -> slots.acquire())
+                .thenCompose(slot -> check(modules.get(component.get(0)), slot)
+                    .whenComplete((v, e) -> slots.release(slot)));
+            for (int m : component) {
+                done.set(m, checked);
+            }
+            all.add(checked);
+        }
+        return CompletableFuture.allOf(all.toArray(new CompletableFuture[0]))
+            .handle((v, e) -> modules.size());
+    }
+
+    private CompletableFuture<Void> check(ISourceLocation module, int compiler) {
+        return rascal.checkModule(module, compiler)
+            .thenApply(m -> Diagnostics.translateMessages(m, Set.of("rsc"), cm))
+            .get()
+            .thenAccept(m -> m.forEach(report))
+            .exceptionally(e -> {
+                logger.error("Checking {} failed", module, e);
+                return null;
+            });
+    }
+
+    /**
+     * @return for every module, the indices of the modules it imports or extends
+     */
+    private List<Set<Integer>> dependencies(List<ISourceLocation> modules) {
+        var byName = new HashMap<String, List<Integer>>();
+        var imports = new ArrayList<Set<String>>(modules.size());
+        for (int i = 0; i < modules.size(); i++) {
+            var module = modules.get(i);
+            try {
+                byName.computeIfAbsent(lookupConfig.apply(module).getModuleName(module), k -> new ArrayList<>()).add(i);
+            } catch (IOException e) {
+                logger.debug("Could not find the name of {}", module, e);
+            }
+            imports.add(readImports(module));
+        }
+
+        var result = new ArrayList<Set<Integer>>(modules.size());
+        for (var imported : imports) {
+            var deps = new LinkedHashSet<Integer>();
+            for (var name : imported) {
+                deps.addAll(byName.getOrDefault(name, List.of()));
+            }
+            result.add(deps);
+        }
+        return result;
+    }
+
+    private static Set<String> readImports(ISourceLocation module) {
+        String contents;
+        try (var reader = reg.getCharacterReader(module)) {
+            contents = Prelude.consumeInputStream(reader);
+        } catch (IOException e) {
+            logger.debug("Could not read {}", module, e);
+            return Set.of();
+        }
+        try {
+            return imports(RascalServices.parseRascalModule(module, contents.toCharArray()));
+        } catch (RuntimeException e) {
+            // parse errors in the header, the checker will report those
+            logger.debug("Could not parse the header of {}", module, e);
+            return imports(contents);
+        }
+    }
+
+    /**
+     * @return the names of the modules that are imported or extended by the header of this module, without escapes
+     */
+    static Set<String> imports(ITree module) {
+        var result = new LinkedHashSet<String>();
+        var header = TreeAdapter.getArg(TreeAdapter.getStartTop(module), "header");
+        for (var imported : TreeAdapter.getListASTArgs(TreeAdapter.getArg(header, "imports"))) {
+            var kind = TreeAdapter.getConstructorName((ITree) imported);
+            if (!"default".equals(kind) && !"extend".equals(kind)) {
+                continue; // external imports and syntax definitions
+            }
+            var name = TreeAdapter.getArg(TreeAdapter.getArg((ITree) imported, "module"), "name");
+            var parts = new ArrayList<String>();
+            for (var part : TreeAdapter.getListASTArgs(TreeAdapter.getArg(name, "names"))) {
+                parts.add(TreeAdapter.yield((ITree) part).replace("\\", ""));
+            }
+            result.add(String.join("::", parts));
+        }
+        return result;
+    }
+
+    /**
+     * @return an approximation of the names of the modules that are imported or extended by this module, without escapes
+     */
+    static Set<String> imports(String module) {
+        var result = new LinkedHashSet<String>();
+        var matcher = IMPORT.matcher(module);
+        while (matcher.find()) {
+            result.add(matcher.group(1).replace("\\", ""));
+        }
+        return result;
+    }
+
+    /**
+     * Tarjan's algorithm for the strongly connected components, since Rascal modules can import each other.
+     *
+     * @param graph for every node, the nodes it has an edge to
+     * @return the components, such that every component comes after the components it has edges to
+     */
+    static List<List<Integer>> components(List<? extends Set<Integer>> graph) {
+        return new Components(graph).result;
+    }
+
+    private static final class Components {
+        private final List<? extends Set<Integer>> graph;
+        private final int[] index;
+        private final int[] lowLink;
+        private final boolean[] onStack;
+        private final Deque<Integer> stack = new ArrayDeque<>();
+        private final List<List<Integer>> result = new ArrayList<>();
+        private int counter = 0;
+
+        Components(List<? extends Set<Integer>> graph) {
+            this.graph = graph;
+            this.index = new int[graph.size()];
+            this.lowLink = new int[graph.size()];
+            this.onStack = new boolean[graph.size()];
+            Arrays.fill(index, -1);
+            for (int n = 0; n < graph.size(); n++) {
+                if (index[n] < 0) {
+                    visit(n);
+                }
+            }
+        }
+
+        private void visit(int n) {
+            index[n] = counter;
+            lowLink[n] = counter;
+            counter++;
+            stack.push(n);
+            onStack[n] = true;
+
+            for (int m : graph.get(n)) {
+                if (index[m] < 0) {
+                    visit(m);
+                    lowLink[n] = Math.min(lowLink[n], lowLink[m]);
+                } else if (onStack[m]) {
+                    lowLink[n] = Math.min(lowLink[n], index[m]);
+                }
+            }
+
+            if (lowLink[n] == index[n]) {
+                var component = new ArrayList<Integer>();
+                int m;
+                do {
+                    m = stack.pop();
+                    onStack[m] = false;
+                    component.add(m);
+                } while (m != n);
+                result.add(component);
+            }
+        }
+    }
+
+    /**
+     * Hands out the compiler evaluators, such that a check never waits for a busy evaluator on a thread.
+     */
+    private static final class Slots {
+        private final Deque<Integer> free = new ArrayDeque<>();
+        private final Deque<CompletableFuture<Integer>> waiting = new ArrayDeque<>();
+        private final Executor exec;
+
+        Slots(int size, Executor exec) {
+            this.exec = exec;
+            for (int i = 0; i < size; i++) {
+                free.add(i);
+            }
+        }
+
+        synchronized CompletableFuture<Integer> acquire() {
+            var slot = free.poll();
+            if (slot != null) {
+                return CompletableFutureUtils.completedFuture(slot, exec);
+            }
+            var result = new CompletableFuture<Integer>();
+            waiting.add(result);
+            return result;
+        }
+
+        void release(int slot) {
+            CompletableFuture<Integer> next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    free.push(slot);
+                    return;
+                }
+            }
+            next.completeAsync(() -> slot, exec);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A directory of files that keeps something across restarts of the server, with one file per key.
+ *
+ * Files are written to a temporary file first, and then moved in place, such that a concurrent read never sees half
+ * a file. Reads copy the whole file, instead of mapping it, since on Windows a mapped file cannot be replaced until
+ * the mapping is garbage collected.
+ *
+ * The directory is pruned once per store: files that were not written for {@link #MAX_AGE} are removed, and then the
+ * oldest files until at most `maxFiles` remain.
+ */
+public class DiskStore {
+    private static final Logger logger = LogManager.getLogger(DiskStore.class);
+    public static final Duration MAX_AGE = Duration.ofDays(30);
+
+    private final @Nullable Path directory;
+    private final String extension;
+    private final int maxFiles;
+    private final AtomicBoolean pruned = new AtomicBoolean(false);
+
+    /**
+     * @param directory the directory of the files, or null to store nothing
+     * @param extension of the files, which also tells them apart from the temporary files
+     */
+    public DiskStore(@Nullable Path directory, String extension, int maxFiles) {
+        this.directory = directory;
+        this.extension = extension;
+        this.maxFiles = maxFiles;
+    }
+
+    /**
+     * @return the directory configured with the system property, or else `name` in the cache directory of the user,
+     * or null if the property is empty
+     */
+    public static @Nullable Path directory(String property, String name) {
+        var configured = System.getProperty(property);
+        if (configured == null) {
+            return userCacheDirectory().resolve(name);
+        }
+        return configured.isEmpty() ? null : Path.of(configured);
+    }
+
+    private static Path userCacheDirectory() {
+        var xdg = System.getenv("XDG_CACHE_HOME");
+        if (xdg != null && !xdg.isEmpty()) {
+            return Path.of(xdg, "rascal-lsp");
+        }
+        var home = System.getProperty("user.home");
+        var os = System.getProperty("os.name", "").toLowerCase();
+        if (os.contains("win")) {
+            var local = System.getenv("LOCALAPPDATA");
+            return local != null && !local.isEmpty() ? Path.of(local, "rascal-lsp", "cache") : Path.of(home, "AppData", "Local", "rascal-lsp", "cache");
+        }
+        if (os.contains("mac")) {
+            return Path.of(home, "Library", "Caches", "rascal-lsp");
+        }
+        return Path.of(home, ".cache", "rascal-lsp");
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * @return the contents that were stored for `key`, or null if there are none
+     */
+    public byte @Nullable [] read(String key) throws IOException {
+        if (directory == null) {
+            return null;
+        }
+        try {
+            return Files.readAllBytes(pathOf(directory, key));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Contents {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Store `contents` for `key`, replacing what was stored before.
+     */
+    public void write(String key, Contents contents) throws IOException {
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        if (pruned.compareAndSet(false, true)) {
+            prune(directory);
+        }
+        var path = pathOf(directory, key);
+        var temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (var out = Files.newOutputStream(temp)) {
+                contents.writeTo(out);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private Path pathOf(Path directory, String key) {
+        return directory.resolve(Digests.hex(Digests.sha256(key)) + extension);
+    }
+
+    private void prune(Path directory) {
+        List<Path> files;
+        try (var list = Files.list(directory)) {
+            files = list.filter(Files::isRegularFile).collect(Collectors.toList());
+        } catch (IOException e) {
+            logger.debug("Could not list {}", directory, e);
+            return;
+        }
+        var oldest = FileTime.from(Instant.now().minus(MAX_AGE));
+        var kept = files.stream()
+            .filter(f -> !(lastModified(f).compareTo(oldest) < 0 && delete(f)))
+            .filter(f -> f.getFileName().toString().endsWith(extension))
+            .sorted(Comparator.comparing(DiskStore::lastModified))
+            .collect(Collectors.toList());
+        for (int i = 0; i < kept.size() - maxFiles; i++) {
+            delete(kept.get(i));
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static boolean delete(Path file) {
+        try {
+            return Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Could not remove {}", file, e);
+            return false;
+        }
+    }
+}
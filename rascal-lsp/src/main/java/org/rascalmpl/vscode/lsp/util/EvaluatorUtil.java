@@ -39,12 +39,18 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -90,93 +96,159 @@ import io.usethesource.vallang.io.StandardTextWriter;
 public class EvaluatorUtil {
     private static final Logger logger = LogManager.getLogger(EvaluatorUtil.class);
 
-    public static <T> InterruptibleFuture<@PolyNull T> runEvaluator(String task, CompletableFuture<Evaluator> eval, Function<Evaluator, @PolyNull T> call, @PolyNull T interruptedResult, Executor exec, boolean isParametric, LanguageClient client) {
-        AtomicBoolean interrupted = new AtomicBoolean(false);
-        AtomicReference<@Nullable Evaluator> runningEvaluator = new AtomicReference<>(null);
-        AtomicReference<InterruptibleFuture<@PolyNull T>> future = new AtomicReference<>();
+    /**
+     * Every evaluator runs one job at a time. The jobs of an evaluator wait in its queue, and are only handed to their
+     * executor when it is their turn, such that waiting jobs do not occupy the (bounded) threads of a lane.
+     */
+    private static final Map<Evaluator, JobQueue> evaluatorQueues = Collections.synchronizedMap(new WeakHashMap<>());
 
-        future.set(new InterruptibleFuture<>(eval.<@PolyNull T>thenApplyAsync(actualEval -> {
-            try {
-                InterruptibleFuture<@PolyNull T> self;
-                while ((self = future.get()) == null) {
-                    // yield until our value has been set
-                    Thread.yield();
-                }
-                var monitor = actualEval.getMonitor();
-                // unwrap until we find the RascalLSPMonitor doing the heavy lifting
-                if (monitor instanceof LSPIDEServices) {
-                    monitor = ((LSPIDEServices) monitor).getMonitor();
-                }
-                if (monitor instanceof RascalLSPMonitor) {
-                    ((RascalLSPMonitor) monitor).registerActiveFuture(task, self);
-                }
+    private static JobQueue evaluatorQueue(Evaluator eval) {
+        return evaluatorQueues.computeIfAbsent(eval, e -> new JobQueue());
+    }
 
-                actualEval.jobStart(task);
-                synchronized (actualEval) {
-                    boolean jobSuccess = false;
-                    boolean endedAll = false;
-                    try {
-                        runningEvaluator.set(actualEval);
-                        if (interrupted.get()) {
-                            return interruptedResult;
+    private static final class JobQueue {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private boolean busy = false;
+
+        /**
+         * Runs `job` on `exec`, after the jobs that were submitted before it are done.
+         * @param result completed with the exception if `exec` rejects the job
+         */
+        void submit(CompletableFuture<?> result, Runnable job, Executor exec) {
+            Runnable start = () -> {
+                try {
+                    exec.execute(() -> {
+                        try {
+                            job.run();
+                        } finally {
+                            next();
                         }
-                        var result = call.apply(actualEval);
-                        jobSuccess = true;
-                        return result;
-                    } catch (InterruptException e) {
-                        // Since the interrupt is not caught by try-catch in Rascal, any jobs started from Rascal with the same name as this task will be 'nested', and might lead to stale progress bars.
-                        // Here, we remove all (nested) jobs.
-                        actualEval.endAllJobs();
-                        endedAll = true;
-                        return interruptedResult;
-                    } finally {
-                        if (jobSuccess || !endedAll) {
-                            actualEval.jobEnd(task, jobSuccess);
-                        }
-                        if (monitor instanceof RascalLSPMonitor) {
-                            ((RascalLSPMonitor) monitor).unregisterActiveFuture(task);
-                        }
-                        runningEvaluator.set(null);
-                        actualEval.__setInterrupt(false);
-                    }
+                    });
+                } catch (RejectedExecutionException e) {
+                    result.completeExceptionally(e);
+                    next();
+                }
+            };
+            synchronized (this) {
+                if (busy) {
+                    waiting.add(start);
+                    return;
                 }
+                busy = true;
             }
-            catch (Throw e) {
-                logger.error("Internal error during {}\n{}: {}\n{}", task, e.getLocation(), e.getMessage(),
-                        e.getTrace());
-                if (!isParametric) {
-                    reportInternalError(e, task, client);
+            start.run();
+        }
+
+        private void next() {
+            Runnable start;
+            synchronized (this) {
+                start = waiting.poll();
+                if (start == null) {
+                    busy = false;
+                    return;
                 }
+            }
+            start.run();
+        }
+    }
 
-                throw new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, formatMessage(e), null));
+    public static <T> InterruptibleFuture<@PolyNull T> runEvaluator(String task, CompletableFuture<Evaluator> eval, Function<Evaluator, @PolyNull T> call, @PolyNull T interruptedResult, Executor exec, boolean isParametric, LanguageClient client) {
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        AtomicReference<@Nullable Evaluator> runningEvaluator = new AtomicReference<>(null);
+        CompletableFuture<@PolyNull T> result = new CompletableFuture<>();
+        InterruptibleFuture<@PolyNull T> self = new InterruptibleFuture<>(result, () -> {
+            interrupted.set(true);
+            Evaluator actualEval = runningEvaluator.get();
+            if (actualEval != null) {
+                actualEval.interrupt();
             }
-            catch (StaticError e) {
-                logger.error("Static Rascal error in {}\n{}: {}", task, e.getLocation(), e.getMessage());
-                if (!isParametric) {
-                    reportInternalError(e, task, client);
+        });
+
+        eval.whenComplete((actualEval, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+                return;
+            }
+            evaluatorQueue(actualEval).submit(result, () -> {
+                try {
+                    result.complete(runJob(task, actualEval, call, interruptedResult, self, interrupted, runningEvaluator, isParametric, client));
+                } catch (Throwable t) {
+                    result.completeExceptionally(new CompletionException(t));
                 }
-                throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InternalError, formatMessage(e), null));
+            }, exec);
+        });
+
+        return self;
+    }
+
+    private static <T> @PolyNull T runJob(String task, Evaluator actualEval, Function<Evaluator, @PolyNull T> call, @PolyNull T interruptedResult,
+            InterruptibleFuture<@PolyNull T> self, AtomicBoolean interrupted, AtomicReference<@Nullable Evaluator> runningEvaluator,
+            boolean isParametric, LanguageClient client) {
+        try {
+            var monitor = actualEval.getMonitor();
+            // unwrap until we find the RascalLSPMonitor doing the heavy lifting
+            if (monitor instanceof LSPIDEServices) {
+                monitor = ((LSPIDEServices) monitor).getMonitor();
             }
-            catch (ResponseErrorException e) {
-                logger.debug("{} threw an intentional error that should be forwarded to the lsp client without our involvement: {}", task, e.getMessage());
-                throw e;
+            if (monitor instanceof RascalLSPMonitor) {
+                ((RascalLSPMonitor) monitor).registerActiveFuture(task, self);
             }
-            catch (Throwable e) {
-                logger.error("{} failed", task, e);
-                if (!isParametric) {
-                    reportInternalError(e, task, client);
+
+            actualEval.jobStart(task);
+            boolean jobSuccess = false;
+            boolean endedAll = false;
+            try {
+                runningEvaluator.set(actualEval);
+                if (interrupted.get()) {
+                    return interruptedResult;
+                }
+                var result = call.apply(actualEval);
+                jobSuccess = true;
+                return result;
+            } catch (InterruptException e) {
+                // Since the interrupt is not caught by try-catch in Rascal, any jobs started from Rascal with the same name as this task will be 'nested', and might lead to stale progress bars.
+                // Here, we remove all (nested) jobs.
+                actualEval.endAllJobs();
+                endedAll = true;
+                return interruptedResult;
+            } finally {
+                if (jobSuccess || !endedAll) {
+                    actualEval.jobEnd(task, jobSuccess);
                 }
-                throw e;
+                if (monitor instanceof RascalLSPMonitor) {
+                    ((RascalLSPMonitor) monitor).unregisterActiveFuture(task);
+                }
+                runningEvaluator.set(null);
+                actualEval.__setInterrupt(false);
             }
-        }, exec), () -> {
-            interrupted.set(true);
-            Evaluator actualEval = runningEvaluator.get();
-            if (actualEval != null) {
-                actualEval.interrupt();
+        }
+        catch (Throw e) {
+            logger.error("Internal error during {}\n{}: {}\n{}", task, e.getLocation(), e.getMessage(),
+                    e.getTrace());
+            if (!isParametric) {
+                reportInternalError(e, task, client);
             }
-        }));
 
-        return future.get();
+            throw new ResponseErrorException(new ResponseError(ResponseErrorCode.RequestFailed, formatMessage(e), null));
+        }
+        catch (StaticError e) {
+            logger.error("Static Rascal error in {}\n{}: {}", task, e.getLocation(), e.getMessage());
+            if (!isParametric) {
+                reportInternalError(e, task, client);
+            }
+            throw new ResponseErrorException(new ResponseError(ResponseErrorCode.InternalError, formatMessage(e), null));
+        }
+        catch (ResponseErrorException e) {
+            logger.debug("{} threw an intentional error that should be forwarded to the lsp client without our involvement: {}", task, e.getMessage());
+            throw e;
+        }
+        catch (Throwable e) {
+            logger.error("{} failed", task, e);
+            if (!isParametric) {
+                reportInternalError(e, task, client);
+            }
+            throw e;
+        }
     }
 
     private static void extractReasonAndStackTrace(Throwable e, String task, StringWriter reason, StringWriter stackTrace) {
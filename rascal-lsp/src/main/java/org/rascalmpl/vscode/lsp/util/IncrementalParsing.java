@@ -0,0 +1,365 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.values.IRascalValueFactory;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.ProductionAdapter;
+import org.rascalmpl.values.parsetrees.SymbolAdapter;
+import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.util.concurrent.CompletableFutureUtils;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.IList;
+import io.usethesource.vallang.IListWriter;
+import io.usethesource.vallang.ISetWriter;
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.IValue;
+
+/**
+ * Reparses only the part of a parse tree that was affected by an edit.
+ *
+ * The changed region of the text is found by comparing the previous and the new text. Then the smallest
+ * (non-parameterized) syntax or lexical non-terminal whose yield strictly contains that region is parsed
+ * again, on its own, and spliced into the previous tree. Since the characters directly before and after
+ * that non-terminal did not change, follow and precede restrictions at its borders still hold.
+ *
+ * The priority, associativity and reject filters between the non-terminal and its parent are not applied by
+ * the smaller parse. So the new tree is only accepted if it has the same production as the tree it replaces,
+ * such that those filters decide the same as they did before. (Rejects on the non-terminal itself are part of
+ * its own definition, and are applied by the smaller parse.)
+ *
+ * The source locations of all trees after the edit shift, so those trees are relocated (but not parsed). This
+ * means the splice costs time linear in the rest of the file, even though only the smaller parse is
+ * repeated. Whenever the smaller parse fails, is ambiguous or has another production, {@link #reparse}
+ * gives up (with a null tree) and the caller should parse the whole text.
+ */
+public class IncrementalParsing {
+    private static final Logger logger = LogManager.getLogger(IncrementalParsing.class);
+    private static final IRascalValueFactory VF = IRascalValueFactory.getInstance();
+
+    /**
+     * Parses `input` as the non-terminal `symbol`, with locations relative to the start of `input`.
+     */
+    @FunctionalInterface
+    public interface NonTerminalParser {
+        CompletableFuture<ITree> parse(ISourceLocation loc, String input, IConstructor symbol);
+
+        /**
+         * @return whether this parser can parse non-terminals at all, if not, reparsing is not even attempted
+         */
+        default CompletableFuture<Boolean> supported() {
+            return CompletableFuture.completedFuture(true);
+        }
+    }
+
+    private final NonTerminalParser parser;
+    private final Executor exec;
+
+    public IncrementalParsing(NonTerminalParser parser, Executor exec) {
+        this.parser = parser;
+        this.exec = exec;
+    }
+
+    /**
+     * @param previous the tree of `previousText`, which should not contain parse errors
+     * @return the tree of `text`, or null if it could not be derived from `previous`
+     */
+    public CompletableFuture<@Nullable ITree> reparse(ISourceLocation file, ITree previous, String previousText, String text) {
+        int prefix = commonPrefix(previousText, text);
+        int suffix = commonSuffix(previousText, text, prefix);
+        if (prefix == previousText.length() && prefix == text.length()) {
+            return CompletableFutureUtils.<@Nullable ITree>completedFuture(previous, exec);
+        }
+        return parser.supported()
+            .exceptionally(e -> false)
+            .thenCompose(supported -> supported
+                ? reparseEnclosing(file, previous, previousText, text, prefix, suffix)
+                : CompletableFutureUtils.<@Nullable ITree>completedFuture(null, exec));
+    }
+
+    private CompletableFuture<@Nullable ITree> reparseEnclosing(ISourceLocation file, ITree previous, String previousText, String text, int prefix, int suffix) {
+        // Rascal locations count code points
+        int start = previousText.codePointCount(0, prefix);
+        int end = start + previousText.codePointCount(prefix, previousText.length() - suffix);
+        int inserted = text.codePointCount(prefix, text.length() - suffix);
+
+        var path = new ArrayList<ITree>();
+        var indices = new ArrayList<Integer>();
+        var target = findEnclosing(previous, start, end, path, indices);
+        if (target == null) {
+            return CompletableFutureUtils.<@Nullable ITree>completedFuture(null, exec);
+        }
+        var symbol = definedSymbol(target);
+        var production = TreeAdapter.getProduction(target);
+
+        var oldLoc = TreeAdapter.getLocation(target);
+        int from = text.offsetByCodePoints(0, oldLoc.getOffset());
+        int to = text.offsetByCodePoints(from, oldLoc.getLength() + inserted - (end - start));
+        CompletableFuture<ITree> reparsed;
+        try {
+            reparsed = parser.parse(file, text.substring(from, to), symbol);
+        } catch (RuntimeException e) {
+            reparsed = CompletableFuture.failedFuture(e);
+        }
+        return reparsed.<@Nullable ITree>handle((replacement, e) -> {
+            if (replacement == null) {
+                logger.trace("Reparsing {} of {} failed, falling back to parsing the whole file", symbol, file, e);
+                return null;
+            }
+            if (!TreeAdapter.isAppl(replacement) || !definedSymbol(replacement).equals(symbol) || !isClean(replacement)) {
+                logger.trace("Reparsing {} of {} resulted in parse errors or ambiguities", symbol, file);
+                return null;
+            }
+            if (!TreeAdapter.getProduction(replacement).equals(production)) {
+                // the filters of the parent might reject the new production, or might have to restructure the tree
+                logger.trace("Reparsing {} of {} resulted in another production", symbol, file);
+                return null;
+            }
+            return splice(replacement, oldLoc, path, indices);
+        });
+    }
+
+    /**
+     * Replaces the tree at `oldLoc` (at the end of `path`) by `replacement`, which still has to be moved there.
+     */
+    private static ITree splice(ITree replacement, ISourceLocation oldLoc, List<ITree> path, List<Integer> indices) {
+        replacement = relocate(replacement, new Move(oldLoc));
+        var shift = new Shift(oldLoc, TreeAdapter.getLocation(replacement));
+
+        // splice the new tree into its ancestors, from the bottom up
+        var result = replacement;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            var parent = path.get(i);
+            int index = indices.get(i);
+            var args = TreeAdapter.getArgs(parent);
+            IListWriter newArgs = VF.listWriter();
+            for (int a = 0; a < args.length(); a++) {
+                if (a < index) {
+                    newArgs.append(args.get(a));
+                } else if (a == index) {
+                    newArgs.append(result);
+                } else {
+                    newArgs.append(relocate((ITree) args.get(a), shift));
+                }
+            }
+            result = withArgs(parent, newArgs.done(), shift);
+        }
+        return result;
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i > 0 && Character.isHighSurrogate(a.charAt(i - 1))) {
+            i--; // do not split a code point
+        }
+        return i;
+    }
+
+    private static int commonSuffix(String a, String b, int prefix) {
+        int max = Math.min(a.length(), b.length()) - prefix;
+        int i = 0;
+        while (i < max && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i)) {
+            i++;
+        }
+        if (i > 0 && Character.isLowSurrogate(a.charAt(a.length() - i))) {
+            i--; // do not split a code point
+        }
+        return i;
+    }
+
+    /**
+     * Descends to the deepest non-terminal that strictly contains [start, end), and records the path to it.
+     */
+    private static @Nullable ITree findEnclosing(ITree root, int start, int end, List<ITree> path, List<Integer> indices) {
+        var current = root;
+        var descended = true;
+        while (descended && TreeAdapter.isAppl(current)) {
+            descended = false;
+            var args = TreeAdapter.getArgs(current);
+            for (int i = 0; i < args.length(); i++) {
+                var child = (ITree) args.get(i);
+                var loc = TreeAdapter.getLocation(child);
+                if (loc != null && loc.hasOffsetLength() && loc.getOffset() < start && end < loc.getOffset() + loc.getLength()) {
+                    path.add(current);
+                    indices.add(i);
+                    current = child;
+                    descended = true;
+                    break;
+                }
+            }
+        }
+
+        // the deepest node is not necessarily one we can parse on its own
+        while (!path.isEmpty() && !isReparseable(current)) {
+            current = path.remove(path.size() - 1);
+            indices.remove(indices.size() - 1);
+        }
+        return path.isEmpty() ? null : current;
+    }
+
+    private static boolean isReparseable(ITree tree) {
+        if (!TreeAdapter.isAppl(tree)) {
+            return false;
+        }
+        var loc = TreeAdapter.getLocation(tree);
+        if (loc == null || !loc.hasLineColumn()) {
+            return false;
+        }
+        var symbol = definedSymbol(tree);
+        return SymbolAdapter.isSort(symbol) || SymbolAdapter.isLex(symbol);
+    }
+
+    private static IConstructor definedSymbol(ITree tree) {
+        return SymbolAdapter.delabel(ProductionAdapter.getDefined(TreeAdapter.getProduction(tree)));
+    }
+
+    private static boolean isClean(ITree tree) {
+        return ParseErrors.find(tree, 1).isEmpty() && !hasAmbiguity(tree);
+    }
+
+    private static boolean hasAmbiguity(ITree tree) {
+        if (TreeAdapter.isAmb(tree)) {
+            return true;
+        }
+        if (TreeAdapter.isAppl(tree)) {
+            for (IValue child : TreeAdapter.getArgs(tree)) {
+                if (hasAmbiguity((ITree) child)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private interface Relocation {
+        ISourceLocation apply(ISourceLocation loc);
+    }
+
+    /**
+     * Moves the locations of a tree that was parsed on its own to the place of `target` in the file.
+     */
+    private static final class Move implements Relocation {
+        private final ISourceLocation target;
+
+        Move(ISourceLocation target) {
+            this.target = target;
+        }
+
+        @Override
+        public ISourceLocation apply(ISourceLocation loc) {
+            int firstLine = target.getBeginLine();
+            int firstColumn = target.getBeginColumn();
+            return VF.sourceLocation(target.top(),
+                loc.getOffset() + target.getOffset(), loc.getLength(),
+                loc.getBeginLine() + firstLine - 1, loc.getEndLine() + firstLine - 1,
+                loc.getBeginLine() == 1 ? loc.getBeginColumn() + firstColumn : loc.getBeginColumn(),
+                loc.getEndLine() == 1 ? loc.getEndColumn() + firstColumn : loc.getEndColumn());
+        }
+    }
+
+    /**
+     * Shifts the positions after the end of a replaced tree to after the end of its replacement.
+     * Positions before its end did not change.
+     */
+    private static final class Shift implements Relocation {
+        private final int oldEnd;
+        private final int oldEndLine;
+        private final int offsetDelta;
+        private final int lineDelta;
+        private final int columnDelta;
+
+        Shift(ISourceLocation replaced, ISourceLocation replacement) {
+            oldEnd = replaced.getOffset() + replaced.getLength();
+            oldEndLine = replaced.getEndLine();
+            offsetDelta = replacement.getOffset() + replacement.getLength() - oldEnd;
+            lineDelta = replacement.getEndLine() - oldEndLine;
+            columnDelta = replacement.getEndColumn() - replaced.getEndColumn();
+        }
+
+        @Override
+        public ISourceLocation apply(ISourceLocation loc) {
+            int begin = loc.getOffset();
+            int end = begin + loc.getLength();
+            boolean beginMoves = begin >= oldEnd;
+            boolean endMoves = end >= oldEnd;
+            if (!endMoves) {
+                return loc;
+            }
+            return VF.sourceLocation(loc.top(),
+                beginMoves ? begin + offsetDelta : begin,
+                loc.getLength() + (beginMoves ? 0 : offsetDelta),
+                beginMoves ? loc.getBeginLine() + lineDelta : loc.getBeginLine(),
+                loc.getEndLine() + lineDelta,
+                beginMoves ? column(loc.getBeginLine(), loc.getBeginColumn()) : loc.getBeginColumn(),
+                column(loc.getEndLine(), loc.getEndColumn()));
+        }
+
+        private int column(int line, int column) {
+            return line == oldEndLine ? column + columnDelta : column;
+        }
+    }
+
+    private static ITree relocate(ITree tree, Relocation relocation) {
+        if (TreeAdapter.isAppl(tree)) {
+            IListWriter args = VF.listWriter();
+            for (IValue child : TreeAdapter.getArgs(tree)) {
+                args.append(relocate((ITree) child, relocation));
+            }
+            return withArgs(tree, args.done(), relocation);
+        }
+        if (TreeAdapter.isAmb(tree)) {
+            ISetWriter alternatives = VF.setWriter();
+            for (IValue alternative : TreeAdapter.getAlternatives(tree)) {
+                alternatives.insert(relocate((ITree) alternative, relocation));
+            }
+            return VF.amb(alternatives.done());
+        }
+        // characters and cycles do not have a location
+        return tree;
+    }
+
+    private static ITree withArgs(ITree tree, IList args, Relocation relocation) {
+        ITree result = VF.appl(TreeAdapter.getProduction(tree), args);
+        var loc = TreeAdapter.getLocation(tree);
+        if (loc != null && loc.hasOffsetLength() && loc.hasLineColumn()) {
+            result = TreeAdapter.setLocation(result, relocation.apply(loc));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.TreeAdapter;
+
+import io.usethesource.vallang.IValue;
+
+/**
+ * Finds the error trees that error recovery left in a parse tree, in the order in which they occur
+ * in the source. Unlike {@link org.rascalmpl.library.util.ParseErrorRecovery#findAllParseErrors},
+ * the search stops as soon as enough errors have been found, such that a file full of errors does not
+ * cost a walk over the whole tree.
+ */
+public class ParseErrors {
+    private ParseErrors() {/* hidden */ }
+
+    /**
+     * @param max the maximum number of errors to find
+     * @return at most `max` error trees, in source order, without duplicates
+     */
+    public static List<ITree> find(ITree tree, int max) {
+        var search = new Search(max);
+        search.visit(tree);
+        return new ArrayList<>(search.found);
+    }
+
+    public static boolean isError(ITree tree) {
+        return TreeAdapter.isAppl(tree) && TreeAdapter.getProduction(tree).getName().equals("error");
+    }
+
+    private static class Search {
+        private final int max;
+        private final Set<ITree> found = new LinkedHashSet<>();
+        // ambiguity clusters are shared between alternatives, so we remember which ones we already searched
+        private final Set<ITree> visitedAmbs = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Search(int max) {
+            this.max = max;
+        }
+
+        private boolean done() {
+            return found.size() >= max;
+        }
+
+        void visit(ITree tree) {
+            if (done()) {
+                return;
+            }
+            if (TreeAdapter.isAmb(tree)) {
+                if (visitedAmbs.add(tree)) {
+                    for (IValue alt : TreeAdapter.getAlternatives(tree)) {
+                        visit((ITree) alt);
+                    }
+                }
+                return;
+            }
+            if (!TreeAdapter.isAppl(tree)) {
+                // characters and cycles do not contain errors
+                return;
+            }
+            if (isError(tree)) {
+                found.add(tree);
+            }
+            for (IValue child : TreeAdapter.getArgs(tree)) {
+                visit((ITree) child);
+                if (done()) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util;
+
+import java.util.ArrayList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * An immutable piece table over the contents of a text document.
+ *
+ * An edit produces a new table that shares the original text and the append-only buffer of
+ * inserted text with its predecessor, so applying an edit costs time in the number of pieces, not
+ * in the size of the document. The full text is only produced by {@link #toString()}, which caches
+ * its result.
+ *
+ * Lines are separated by `\r\n`, `\n` or `\r`, like LSP prescribes, and columns are counted in UTF-16
+ * code units, which is what LSP clients send us. Every piece counts the line breaks inside it, where a
+ * `\r` at its end counts as a break; when the next piece starts with `\n`, the two form a single
+ * `\r\n` break, which {@link #lineStart} corrects for.
+ */
+public final class PieceTable {
+    /** Edits on a table with more pieces than this first rebase the table on its full text. */
+    private static final int COMPACTION_THRESHOLD = 64;
+
+    private final String original;
+    /** Offsets in {@link #original} directly after each line break (so after the `\n` of a `\r\n`). */
+    private final int[] originalLineStarts;
+    /** Shared by all tables derived from the same original; only ever appended to, guarded by itself. */
+    private final StringBuilder added;
+    private final Piece[] pieces;
+    private final int length;
+    private volatile @Nullable String materialized;
+
+    public PieceTable(String content) {
+        this.original = content;
+        this.originalLineStarts = lineStarts(content);
+        this.added = new StringBuilder();
+        this.pieces = content.isEmpty()
+            ? new Piece[0]
+            : new Piece[] { new Piece(false, 0, content.length(), originalLineStarts.length) };
+        this.length = content.length();
+        this.materialized = content;
+    }
+
+    private PieceTable(PieceTable base, Piece[] pieces, int length) {
+        this.original = base.original;
+        this.originalLineStarts = base.originalLineStarts;
+        this.added = base.added;
+        this.pieces = pieces;
+        this.length = length;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Replace the text between two (zero-based) line/column positions.
+     * Positions beyond the end of their line or of the document are clamped, like LSP prescribes.
+     * @return a new table, this table is unchanged
+     */
+    public PieceTable replace(int startLine, int startColumn, int endLine, int endColumn, String text) {
+        var base = pieces.length > COMPACTION_THRESHOLD ? new PieceTable(toString()) : this;
+        int start = base.offsetOf(startLine, startColumn);
+        int end = Math.max(start, base.offsetOf(endLine, endColumn));
+        return base.replace(start, end - start, text);
+    }
+
+    /**
+     * Replace `removeLength` characters at `offset` by `text`.
+     * @return a new table, this table is unchanged
+     */
+    public PieceTable replace(int offset, int removeLength, String text) {
+        int end = offset + removeLength;
+        if (offset < 0 || removeLength < 0 || end > length) {
+            throw new IndexOutOfBoundsException(String.format("Cannot replace [%d, %d) in text of length %d", offset, end, length));
+        }
+
+        var result = new ArrayList<Piece>(pieces.length + 2);
+
+        // (parts of) pieces before the edit
+        int pos = 0;
+        for (var p : pieces) {
+            if (pos >= offset) {
+                break;
+            }
+            int keep = Math.min(p.length, offset - pos);
+            result.add(keep == p.length ? p : slice(p, 0, keep));
+            pos += p.length;
+        }
+
+        if (!text.isEmpty()) {
+            int addedStart;
+            synchronized (added) {
+                addedStart = added.length();
+                added.append(text);
+            }
+            result.add(new Piece(true, addedStart, text.length(), countLineBreaks(text, 0, text.length())));
+        }
+
+        // (parts of) pieces after the edit
+        pos = 0;
+        for (var p : pieces) {
+            int pieceEnd = pos + p.length;
+            if (pieceEnd > end) {
+                int skip = Math.max(0, end - pos);
+                result.add(skip == 0 ? p : slice(p, skip, p.length));
+            }
+            pos = pieceEnd;
+        }
+
+        return new PieceTable(this, result.toArray(new Piece[0]), length - removeLength + text.length());
+    }
+
+    /**
+     * Translate a (zero-based) line/column position to an offset in the text.
+     * Positions beyond the end of their line or of the document are clamped.
+     */
+    public int offsetOf(int line, int column) {
+        if (line < 0) {
+            return 0;
+        }
+        int lineStart = lineStart(line);
+        if (lineStart == -1) {
+            return length;
+        }
+        int nextLineStart = lineStart(line + 1);
+        int lineEnd = nextLineStart == -1 ? length : nextLineStart - separatorBefore(nextLineStart);
+        return Math.min(lineStart + Math.max(0, column), lineEnd);
+    }
+
+    /**
+     * @return the length of the line break that ends directly before `offset`
+     */
+    private int separatorBefore(int offset) {
+        return offset >= 2 && charAt(offset - 1) == '\n' && charAt(offset - 2) == '\r' ? 2 : 1;
+    }
+
+    private char charAt(int offset) {
+        int pos = 0;
+        for (var p : pieces) {
+            if (offset < pos + p.length) {
+                return charAt(p, offset - pos);
+            }
+            pos += p.length;
+        }
+        throw new IndexOutOfBoundsException(String.format("Offset %d in text of length %d", offset, length));
+    }
+
+    private char charAt(Piece p, int index) {
+        if (!p.added) {
+            return original.charAt(p.start + index);
+        }
+        synchronized (added) {
+            return added.charAt(p.start + index);
+        }
+    }
+
+    /**
+     * @return true if `p` ends with a `\r` that forms a `\r\n` with the start of `next`
+     */
+    private boolean joinsLineBreak(Piece p, @Nullable Piece next) {
+        return next != null && charAt(p, p.length - 1) == '\r' && charAt(next, 0) == '\n';
+    }
+
+    /**
+     * @return the offset at which `line` starts, or -1 if the text has fewer lines
+     */
+    private int lineStart(int line) {
+        if (line == 0) {
+            return 0;
+        }
+        int remaining = line;
+        int pos = 0;
+        // the leading `\n` of a piece completes the `\r\n` break that the previous piece already counted
+        int completed = 0;
+        for (int i = 0; i < pieces.length; i++) {
+            var p = pieces[i];
+            var next = i + 1 < pieces.length ? pieces[i + 1] : null;
+            int lineBreaks = p.lineBreaks - completed;
+            if (lineBreaks >= remaining) {
+                int offset = offsetAfterLineBreak(p, remaining + completed);
+                if (offset == p.length && joinsLineBreak(p, next)) {
+                    // the line starts after the `\n` at the start of the next piece
+                    offset++;
+                }
+                return pos + offset;
+            }
+            remaining -= lineBreaks;
+            pos += p.length;
+            completed = joinsLineBreak(p, next) ? 1 : 0;
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset inside `p` directly after its `n`th line break (starting at 1)
+     */
+    private int offsetAfterLineBreak(Piece p, int n) {
+        if (!p.added) {
+            int index = firstAtLeast(originalLineStarts, p.start + 1) + n - 1;
+            if (index < originalLineStarts.length && originalLineStarts[index] <= p.start + p.length) {
+                return originalLineStarts[index] - p.start;
+            }
+            // the `\r` at the end of the piece, of which the `\n` was cut off
+            return p.length;
+        }
+        synchronized (added) {
+            int seen = 0;
+            for (int i = p.start; i < p.start + p.length; i++) {
+                if (isLineBreakEnd(added, i, p.start + p.length) && ++seen == n) {
+                    return i + 1 - p.start;
+                }
+            }
+        }
+        throw new IllegalStateException("Piece has fewer line breaks than recorded");
+    }
+
+    private Piece slice(Piece p, int from, int to) {
+        int start = p.start + from;
+        int sliceLength = to - from;
+        int lineBreaks;
+        if (p.added) {
+            synchronized (added) {
+                lineBreaks = countLineBreaks(added, start, sliceLength);
+            }
+        }
+        else {
+            int end = start + sliceLength;
+            lineBreaks = firstAtLeast(originalLineStarts, end + 1) - firstAtLeast(originalLineStarts, start + 1);
+            if (original.charAt(end - 1) == '\r' && end < original.length() && original.charAt(end) == '\n') {
+                // the slice cuts a `\r\n` in two, so its `\r` is a break of its own
+                lineBreaks++;
+            }
+        }
+        return new Piece(p.added, start, sliceLength, lineBreaks);
+    }
+
+    /**
+     * Produces (and caches) the full text represented by this table.
+     */
+    @Override
+    public String toString() {
+        var result = materialized;
+        if (result == null) {
+            var builder = new StringBuilder(length);
+            synchronized (added) {
+                for (var p : pieces) {
+                    CharSequence source = p.added ? added : original;
+                    builder.append(source, p.start, p.start + p.length);
+                }
+            }
+            result = builder.toString();
+            materialized = result;
+        }
+        return result;
+    }
+
+    private static int[] lineStarts(String content) {
+        int[] result = new int[countLineBreaks(content, 0, content.length())];
+        int index = 0;
+        for (int i = 0; i < content.length(); i++) {
+            if (isLineBreakEnd(content, i, content.length())) {
+                result[index++] = i + 1;
+            }
+        }
+        return result;
+    }
+
+    private static int countLineBreaks(CharSequence s, int start, int length) {
+        int result = 0;
+        for (int i = start; i < start + length; i++) {
+            if (isLineBreakEnd(s, i, start + length)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return true if a line break ends at index `i` of `s`: a `\n`, or a `\r` that is not followed by a `\n` before `end`
+     */
+    private static boolean isLineBreakEnd(CharSequence s, int i, int end) {
+        char c = s.charAt(i);
+        return c == '\n' || (c == '\r' && (i + 1 == end || s.charAt(i + 1) != '\n'));
+    }
+
+    /**
+     * @return the first index in the sorted array `a` with a value at least `key`, or `a.length`
+     */
+    private static int firstAtLeast(int[] a, int key) {
+        int low = 0;
+        int high = a.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (a[mid] < key) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static final class Piece {
+        /** true if this piece points into the buffer of inserted text, false if it points into the original */
+        private final boolean added;
+        private final int start;
+        private final int length;
+        private final int lineBreaks;
+
+        private Piece(boolean added, int start, int length, int lineBreaks) {
+            this.added = added;
+            this.start = start;
+            this.length = length;
+            this.lineBreaks = lineBreaks;
+        }
+    }
+}
@@ -37,8 +37,10 @@ import org.rascalmpl.parser.uptr.action.NoActionExecutor;
 import org.rascalmpl.parser.uptr.recovery.ToTokenRecoverer;
 import org.rascalmpl.values.IRascalValueFactory;
 import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.SymbolAdapter;
 import org.rascalmpl.vscode.lsp.util.locations.Locations;
 
+import io.usethesource.vallang.IConstructor;
 import io.usethesource.vallang.ISourceLocation;
 
 public class RascalServices {
@@ -71,4 +73,19 @@ public class RascalServices {
         // to handle parse errors as they see fit.
         return (ITree) RECOVERY.disambiguateParseErrors(tree, VF.bool(true));
     }
+
+    /**
+     * Parse a part of a module as the (non-parameterized) non-terminal `symbol`, for incremental parsing.
+     * The result might contain recovered parse errors, which the caller should check for.
+     */
+    public static ITree parseRascalNonTerminal(IConstructor symbol, ISourceLocation loc, char[] input) {
+        RascalParser parser = new RascalParser();
+        URI uri = Locations.toUri(loc);
+        return parser.parse(
+            SymbolAdapter.getName(symbol), uri, input, MAX_AMB_DEPTH,
+            new NoActionExecutor(),
+            new DefaultNodeFlattener<>(),
+            new UPTRNodeFactory(true),
+            new ToTokenRecoverer(uri, parser, new StackNodeIdDispenser(parser), MAX_RECOVERY_ATTEMPTS, MAX_RECOVERY_TOKENS));
+    }
 }
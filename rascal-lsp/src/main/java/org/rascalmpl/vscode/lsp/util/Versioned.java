@@ -98,7 +98,8 @@ public class Versioned<T> {
      * meantime (in which case the current request is abandoned)
      * @param onFire the actual calculation
      * @param onDiscard in case a debounce happened, this value will be reported on the completable future
-     * @param exec executor to use for the futures
+     * @param exec executor to use for the futures, the delay itself does not
+     * hold on to a thread of `exec` (or of any other pool)
      *
      * @return a future that supplies the calculated result if the current
      * request was granted, or an debounceReplacementValue if the calcution was skipped due
@@ -28,6 +28,7 @@ package org.rascalmpl.vscode.lsp.util.concurrent;
 
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 
 
@@ -40,6 +41,8 @@ public class LazyUpdateableReference<T> {
     private final Function<T, T> updater;
     private final AtomicBoolean valid;
     private final AtomicReference<T> value;
+    // not `synchronized`, since the updater can block, and that would pin a virtual thread to its carrier
+    private final ReentrantLock lock = new ReentrantLock();
 
     public LazyUpdateableReference(T emptyValue, Function<T, T> updater) {
         this.updater = updater;
@@ -50,13 +53,16 @@ public class LazyUpdateableReference<T> {
     public T get() {
         T result = value.get();
         if (!valid.get()) {
-            synchronized(this) {
+            lock.lock();
+            try {
                 if (!valid.get()) {
                     // we've won the race, so we update th reference
                     result = updater.apply(value.get());
                     value.set(result);
                     valid.set(true);
                 }
+            } finally {
+                lock.unlock();
             }
         }
         return result;
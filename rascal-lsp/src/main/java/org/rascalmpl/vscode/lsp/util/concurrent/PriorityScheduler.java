@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.rascalmpl.util.NamedThreadPool;
+
+/**
+ * The worker pool of a language server, with separate lanes for the different kinds of work.
+ *
+ * Tasks submitted to the scheduler itself run on a shared, unbounded pool, like before. The heavy
+ * tasks (evaluator calls and parsing) are submitted to a {@link Lane} instead. Every lane has
+ * its own bounded number of threads, so a running workspace build can never occupy the threads
+ * that hover, completion or the parser of the file being edited need. Evaluator jobs only take a
+ * thread of their lane once their evaluator is free (see {@link org.rascalmpl.vscode.lsp.util.EvaluatorUtil}).
+ * The lanes only bound and separate the work: queued interactive work does not interrupt running
+ * background work, it just does not have to wait for it. Running background work is only interrupted
+ * when the server shuts down, see {@link #preemptible} and {@link #preemptBackground}.
+ *
+ * In virtual thread mode, the shared pool starts a virtual thread per task, and the lanes run
+ * their (still bounded number of) tasks on virtual threads, such that blocked requests do not
+ * hold on to platform threads.
+ */
+public class PriorityScheduler extends AbstractExecutorService {
+
+    public enum Lane {
+        /** requests the user is waiting for: hover, completion, semantic tokens, ... */
+        INTERACTIVE(Math.max(2, Runtime.getRuntime().availableProcessors()), Thread.NORM_PRIORITY),
+        /** parsing the contents of the editors */
+        EDIT(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), Thread.NORM_PRIORITY),
+        /** analyzers, builders and type checkers */
+        BACKGROUND(Math.max(2, Runtime.getRuntime().availableProcessors() / 2), Thread.MIN_PRIORITY);
+
+        private final int parallelism;
+        private final int threadPriority;
+
+        Lane(int parallelism, int threadPriority) {
+            this.parallelism = parallelism;
+            this.threadPriority = threadPriority;
+        }
+    }
+
+    private static final Logger logger = LogManager.getLogger(PriorityScheduler.class);
+
+    private final ExecutorService shared;
+    private final ThreadPoolExecutor[] lanes = new ThreadPoolExecutor[Lane.values().length];
+    private final Set<InterruptibleFuture<?>> runningBackground = ConcurrentHashMap.newKeySet();
+
+    public PriorityScheduler(String name, boolean virtualThreads) {
+        if (virtualThreads && !VirtualThreads.isSupported()) {
+            logger.warn("Virtual threads are not supported by this Java runtime, falling back to platform threads for {}", name);
+            virtualThreads = false;
+        }
+        this.shared = virtualThreads ? VirtualThreads.perTaskExecutor(name) : NamedThreadPool.cached(name);
+        for (var lane : Lane.values()) {
+            var laneName = name + "-" + lane.name().toLowerCase();
+            var pool = new ThreadPoolExecutor(lane.parallelism, lane.parallelism, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                virtualThreads ? VirtualThreads.factory(laneName) : threadFactory(laneName, lane.threadPriority));
+            pool.allowCoreThreadTimeOut(true);
+            lanes[lane.ordinal()] = pool;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String name, int priority) {
+        var count = new AtomicInteger(0);
+        return r -> {
+            var t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        };
+    }
+
+    public Executor lane(Lane lane) {
+        return lanes[lane.ordinal()];
+    }
+
+    /**
+     * The executor for a lane, if `exec` is a scheduler, otherwise `exec` itself.
+     */
+    public static Executor lane(Executor exec, Lane lane) {
+        if (exec instanceof PriorityScheduler) {
+            return ((PriorityScheduler) exec).lane(lane);
+        }
+        return exec;
+    }
+
+    /**
+     * Register running background work, such that it is interrupted by {@link #preemptBackground}.
+     */
+    public <T> InterruptibleFuture<T> preemptible(InterruptibleFuture<T> job) {
+        runningBackground.add(job);
+        job.get().whenComplete((r, e) -> runningBackground.remove(job));
+        return job;
+    }
+
+    public static <T> InterruptibleFuture<T> preemptible(Executor exec, InterruptibleFuture<T> job) {
+        if (exec instanceof PriorityScheduler) {
+            return ((PriorityScheduler) exec).preemptible(job);
+        }
+        return job;
+    }
+
+    /**
+     * Interrupt all running background work that was registered with {@link #preemptible}.
+     */
+    public void preemptBackground() {
+        runningBackground.forEach(InterruptibleFuture::interrupt);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        shared.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        shared.shutdown();
+        for (var lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        var result = new ArrayList<>(shared.shutdownNow());
+        for (var lane : lanes) {
+            result.addAll(lane.shutdownNow());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shared.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shared.isTerminated() && Arrays.stream(lanes).allMatch(ExecutorService::isTerminated);
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!shared.awaitTermination(timeout, unit)) {
+            return false;
+        }
+        for (var lane : lanes) {
+            if (!lane.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -28,7 +28,6 @@ package org.rascalmpl.vscode.lsp.util.concurrent;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -70,25 +69,19 @@ public class ReplaceableFuture<T> {
         AtomicReference<CompletableFuture<T>> current) {
         // we use this self pointer to be able to compare to ourself from within the future
         AtomicReference<@Nullable CompletableFuture<T>> self = new AtomicReference<>();
-        CompletableFuture<T> result = original.handle((r, t) -> {
+        CompletableFuture<T> result = original.<CompletableFuture<T>>handle((r, t) -> {
             CompletableFuture<T> activeFuture = current.get();
             CompletableFuture<T> actualSelf = self.get();
             if (actualSelf != null && activeFuture != actualSelf) {
-                // someone ran past us, so we have to join on that result
-                try {
-                    return activeFuture.get();
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    throw new CompletionException(e);
-                } catch (ExecutionException e) {
-                    throw new CompletionException(e.getCause());
-                }
+                // someone ran past us, so we have to join on that result (without blocking, as that result might
+                // only be started after whoever completes `original` is done)
+                return activeFuture;
             }
             if (t != null) {
-                throw new CompletionException(t);
+                return CompletableFuture.failedFuture(t instanceof CompletionException ? t : new CompletionException(t));
             }
-            return r;
-        });
+            return CompletableFuture.completedFuture(r);
+        }).thenCompose(f -> f);
         self.set(result);
         return result;
     }
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util.concurrent;
+
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Connects the cancellation of an LSP request to the computations it started.
+ *
+ * When the client sends `$/cancelRequest`, LSP4J cancels the future that the request handler
+ * returned. Cancelling a future does not stop the stages it depends on, so a handler wraps its
+ * result in {@link #bind}, and unwraps the interruptible computations in its chain with
+ * {@link #get} (instead of `InterruptibleFuture::get`). Cancelling the result then interrupts
+ * those computations, and computations that start after the cancellation are interrupted
+ * right away.
+ */
+public class RequestCancellation {
+    private final Set<InterruptibleFuture<?>> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled = false;
+
+    /**
+     * Interrupt `computation` when the request gets cancelled.
+     */
+    public <T> InterruptibleFuture<T> track(InterruptibleFuture<T> computation) {
+        running.add(computation);
+        computation.get().whenComplete((r, e) -> running.remove(computation));
+        if (cancelled) {
+            computation.interrupt();
+        }
+        return computation;
+    }
+
+    /**
+     * Track `computation` and return its result.
+     */
+    public <T> CompletableFuture<T> get(InterruptibleFuture<T> computation) {
+        return track(computation).get();
+    }
+
+    /**
+     * Cancel this request if `result` gets cancelled.
+     * @return `result`
+     */
+    public <T> CompletableFuture<T> bind(CompletableFuture<T> result) {
+        result.whenComplete((r, e) -> {
+            if (e instanceof CancellationException
+                || (e instanceof CompletionException && e.getCause() instanceof CancellationException)) {
+                cancel();
+            }
+        });
+        return result;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        running.forEach(InterruptibleFuture::interrupt);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
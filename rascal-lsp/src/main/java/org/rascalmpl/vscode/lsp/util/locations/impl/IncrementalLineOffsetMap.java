@@ -0,0 +1,355 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util.locations.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import org.apache.commons.lang3.tuple.Pair;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.rascalmpl.util.locations.LineColumnOffsetMap;
+import org.rascalmpl.vscode.lsp.util.IntList;
+
+/**
+ * Immutable map between Rascal columns (code points) and LSP columns (UTF-16 code units),
+ * that can be patched with the same ranged edits the client sends for a document.
+ *
+ * For every line it stores its length (in code points), its line break, and the columns at which
+ * the line contains a character outside of the BMP. The lines are the nodes of a persistent treap, ordered
+ * by line number, in which every node also knows the number of lines and code points of its subtree.
+ * So the start of a line is never stored, but summed on the way down, and a {@link #replace} only
+ * scans the inserted text (and the line breaks around it) and copies the O(log lines) nodes on the paths to the edited lines;
+ * the earlier map shares all other nodes with the new one.
+ *
+ * Lines are separated by `\r\n`, `\n` or `\r`, just like in {@link org.rascalmpl.vscode.lsp.util.PieceTable}.
+ */
+public final class IncrementalLineOffsetMap implements LineColumnOffsetMap {
+    private static final int[] NO_WIDE_CHARS = new int[0];
+    private static final IncrementalLineOffsetMap EMPTY = new IncrementalLineOffsetMap(Node.leaf(0, "", NO_WIDE_CHARS));
+
+    private final Node root;
+
+    private IncrementalLineOffsetMap(Node root) {
+        this.root = root;
+    }
+
+    public static IncrementalLineOffsetMap build(String contents) {
+        return EMPTY.replace(0, 0, 0, 0, contents);
+    }
+
+    /**
+     * Replace the text between two LSP positions (0-based lines, UTF-16 columns) with `text`.
+     * @return a new map, this map is not modified
+     */
+    public IncrementalLineOffsetMap replace(int startLine, int startColumn, int endLine, int endColumn, String text) {
+        startLine = clampLine(startLine);
+        endLine = Math.max(startLine, clampLine(endLine));
+        var first = root.line(startLine);
+        var last = root.line(endLine);
+        int startCp = Math.min(first.inverseColumn(startColumn, false), first.length);
+        int endCp = Math.min(last.inverseColumn(endColumn, false), last.length);
+        if (endLine == startLine) {
+            endCp = Math.max(startCp, endCp);
+        }
+
+        // a `\r` and a `\n` on either side of the edit can form a single `\r\n`, so the line separators
+        // directly before and after the edit are scanned again, together with the inserted text
+        int fromLine = startLine;
+        int prefixLength = startCp;
+        int[] prefixWides = wideBefore(first.wides, startCp);
+        var scanned = text;
+        if (startCp == 0 && startLine > 0) {
+            fromLine = startLine - 1;
+            var previous = root.line(fromLine);
+            prefixLength = previous.length;
+            prefixWides = previous.wides;
+            scanned = previous.separator + scanned;
+        }
+        int suffixLength = last.length - endCp;
+        boolean rescanSeparator = suffixLength == 0 && !last.separator.isEmpty();
+        if (rescanSeparator) {
+            scanned = scanned + last.separator;
+        }
+
+        var segmentLengths = new IntList();
+        var segmentWides = new ArrayList<int[]>();
+        var segmentSeparators = new ArrayList<String>();
+        var currentWides = new IntList();
+        int segmentLength = 0;
+        for (int i = 0; i < scanned.length(); i++) {
+            char c = scanned.charAt(i);
+            if (c == '\n' || c == '\r') {
+                var separator = c == '\n' ? "\n" : scanned.startsWith("\r\n", i) ? "\r\n" : "\r";
+                segmentWides.add(toArray(currentWides));
+                segmentLengths.addInt(segmentLength);
+                segmentSeparators.add(separator);
+                currentWides = new IntList();
+                segmentLength = 0;
+                i += separator.length() - 1;
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < scanned.length() && Character.isLowSurrogate(scanned.charAt(i + 1))) {
+                currentWides.addInt(segmentLength);
+                i++;
+            }
+            segmentLength++;
+        }
+        if (!rescanSeparator) {
+            // the last line keeps the end of the last edited line, and its separator
+            segmentWides.add(toArray(currentWides));
+            segmentLengths.addInt(segmentLength);
+            segmentSeparators.add(last.separator);
+        }
+        // else: the scanned text ends with the separator of the last edited line, which is followed by the next line
+
+        // the lines that replace the edited ones: the first keeps the start of the first edited line
+        int newLines = segmentLengths.size() - 1;
+        Node replacement = null;
+        for (int s = 0; s <= newLines; s++) {
+            int column = s == 0 ? prefixLength : 0;
+            int length = column + segmentLengths.getInt(s);
+            int[] wides = shift(segmentWides.get(s), column);
+            if (s == 0) {
+                wides = concat(prefixWides, wides);
+            }
+            if (s == newLines && !rescanSeparator) {
+                wides = concat(wides, shift(wideFrom(last.wides, endCp), length - endCp));
+                length += suffixLength;
+            }
+            replacement = merge(replacement, Node.leaf(length, segmentSeparators.get(s), wides));
+        }
+
+        var before = split(root, fromLine);
+        var after = split(before[1], endLine - fromLine + 1)[1];
+        return new IncrementalLineOffsetMap(merge(before[0], merge(replacement, after)));
+    }
+
+    @Override
+    public int translateColumn(int line, int column, boolean isEnd) {
+        if (line < 0 || line >= root.lines) {
+            return column;
+        }
+        int[] wides = root.line(line).wides;
+        int before = 0;
+        while (before < wides.length && wides[before] < column) {
+            before++;
+        }
+        return column + before;
+    }
+
+    @Override
+    public int translateInverseColumn(int line, int column, boolean isEnd) {
+        if (line < 0 || line >= root.lines) {
+            return column;
+        }
+        return root.line(line).inverseColumn(column, isEnd);
+    }
+
+    @Override
+    public Pair<Integer, Integer> calculateInverseOffsetLength(int beginLine, int beginColumn, int endLine, int endColumn) {
+        int offset = root.lineStart(clampLine(beginLine)) + translateInverseColumn(beginLine, beginColumn, false);
+        int end = root.lineStart(clampLine(endLine)) + translateInverseColumn(endLine, endColumn, true);
+        return Pair.of(offset, end - offset);
+    }
+
+    private int clampLine(int line) {
+        return Math.max(0, Math.min(line, root.lines - 1));
+    }
+
+    private static int lines(@Nullable Node n) {
+        return n == null ? 0 : n.lines;
+    }
+
+    private static int span(@Nullable Node n) {
+        return n == null ? 0 : n.span;
+    }
+
+    /**
+     * @return the first `count` lines of `n`, and the rest
+     */
+    private static @Nullable Node[] split(@Nullable Node n, int count) {
+        if (n == null) {
+            return new Node[2];
+        }
+        if (count <= lines(n.left)) {
+            var parts = split(n.left, count);
+            return new Node[] { parts[0], n.with(parts[1], n.right) };
+        }
+        var parts = split(n.right, count - lines(n.left) - 1);
+        return new Node[] { n.with(n.left, parts[0]), parts[1] };
+    }
+
+    /**
+     * @return the lines of `a` followed by the lines of `b`
+     */
+    private static @Nullable Node merge(@Nullable Node a, @Nullable Node b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            return a.with(a.left, merge(a.right, b));
+        }
+        return b.with(merge(a, b.left), b.right);
+    }
+
+    private static final class Node {
+        /** length of the line in code points, without its separator */
+        private final int length;
+        /** the line break after the line, empty for the last line */
+        private final String separator;
+        /** the (code point) columns of characters that take two UTF-16 code units, in ascending order */
+        private final int[] wides;
+        private final int priority;
+        private final @Nullable Node left;
+        private final @Nullable Node right;
+        /** number of lines in this subtree */
+        private final int lines;
+        /** number of code points in this subtree, including separators */
+        private final int span;
+
+        private Node(int length, String separator, int[] wides, int priority, @Nullable Node left, @Nullable Node right) {
+            this.length = length;
+            this.separator = separator;
+            this.wides = wides;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.lines = lines(left) + 1 + lines(right);
+            this.span = span(left) + length + separator.length() + span(right);
+        }
+
+        static Node leaf(int length, String separator, int[] wides) {
+            return new Node(length, separator, wides, ThreadLocalRandom.current().nextInt(), null, null);
+        }
+
+        Node with(@Nullable Node newLeft, @Nullable Node newRight) {
+            return new Node(length, separator, wides, priority, newLeft, newRight);
+        }
+
+        Node line(int line) {
+            var n = this;
+            while (true) {
+                int leftLines = lines(n.left);
+                if (line < leftLines) {
+                    n = n.left;
+                } else if (line == leftLines) {
+                    return n;
+                } else {
+                    line -= leftLines + 1;
+                    n = n.right;
+                }
+            }
+        }
+
+        /** offset (in code points) of the start of a line in this subtree */
+        int lineStart(int line) {
+            int result = 0;
+            var n = this;
+            while (true) {
+                int leftLines = lines(n.left);
+                if (line < leftLines) {
+                    n = n.left;
+                } else {
+                    result += span(n.left);
+                    if (line == leftLines) {
+                        return result;
+                    }
+                    result += n.length + n.separator.length();
+                    line -= leftLines + 1;
+                    n = n.right;
+                }
+            }
+        }
+
+        int inverseColumn(int column, boolean isEnd) {
+            for (int k = 0; k < wides.length; k++) {
+                int utf16 = wides[k] + k;
+                if (column == utf16 + 1) {
+                    // in the middle of a surrogate pair
+                    return isEnd ? wides[k] + 1 : wides[k];
+                }
+                if (column < utf16 + 1) {
+                    return column - k;
+                }
+            }
+            return column - wides.length;
+        }
+    }
+
+    private static int[] wideBefore(int[] wides, int column) {
+        int n = 0;
+        while (n < wides.length && wides[n] < column) {
+            n++;
+        }
+        return n == wides.length ? wides : Arrays.copyOf(wides, n);
+    }
+
+    private static int[] wideFrom(int[] wides, int column) {
+        int n = 0;
+        while (n < wides.length && wides[n] < column) {
+            n++;
+        }
+        return n == 0 ? wides : Arrays.copyOfRange(wides, n, wides.length);
+    }
+
+    private static int[] shift(int[] wides, int delta) {
+        if (delta == 0 || wides.length == 0) {
+            return wides;
+        }
+        int[] result = new int[wides.length];
+        for (int i = 0; i < wides.length; i++) {
+            result[i] = wides[i] + delta;
+        }
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static int[] toArray(IntList columns) {
+        if (columns.isEmpty()) {
+            return NO_WIDE_CHARS;
+        }
+        int[] result = new int[columns.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = columns.getInt(i);
+        }
+        return result;
+    }
+}
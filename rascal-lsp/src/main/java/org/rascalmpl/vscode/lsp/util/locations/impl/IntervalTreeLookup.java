@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.util.locations.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Function;
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.rascalmpl.vscode.lsp.util.locations.IRangeMap;
+
+/**
+ * Range map that answers lookups in logarithmic time per range that contains the lookup, so
+ * independent of how many ranges there are in total.
+ *
+ * Ranges are collected by {@link #put}; on the first lookup after a change they are indexed once
+ * (bulk-built into a sorted array plus an implicit interval tree), so it's best suited for maps
+ * that are filled first and queried afterwards, like the ones translated from summaries.
+ *
+ * Of all ranges containing the lookup, the narrowest one is returned: the one that spans the fewest
+ * lines, and among those, the one with the fewest characters between its start and end column.
+ * For nested ranges this is the innermost one. Of equally narrow ranges, the one that starts last wins.
+ */
+public class IntervalTreeLookup<T extends @NonNull Object> implements IRangeMap<T> {
+
+    private final Map<Range, T> data;
+    private volatile @Nullable Index<T> index = null;
+
+    public IntervalTreeLookup() {
+        this.data = new HashMap<>();
+    }
+
+    /**
+     * Bulk-build a lookup from an existing map of ranges.
+     */
+    public IntervalTreeLookup(Map<Range, T> ranges) {
+        this.data = new HashMap<>(ranges);
+    }
+
+    @Override
+    public synchronized void put(Range area, T value) {
+        data.put(area, value);
+        index = null;
+    }
+
+    public synchronized @Nullable T getExact(Range area) {
+        return data.get(area);
+    }
+
+    public synchronized T computeIfAbsent(Range exact, Function<Range, T> compute) {
+        var result = data.get(exact);
+        if (result == null) {
+            result = compute.apply(exact);
+            put(exact, result);
+        }
+        return result;
+    }
+
+    @Override
+    public @Nullable T lookup(Range from) {
+        return index().lookup(encode(from.getStart()), encode(from.getEnd()));
+    }
+
+    @Override
+    public @Nullable T lookup(Position at) {
+        long pos = encode(at);
+        return index().lookup(pos, pos);
+    }
+
+    private Index<T> index() {
+        var result = index;
+        if (result == null) {
+            synchronized (this) {
+                result = index;
+                if (result == null) {
+                    result = new Index<>(data);
+                    index = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Positions as a single, ordered number: line in the high bits, character in the low bits */
+    private static long encode(Position p) {
+        return ((long) p.getLine() << 32) | (p.getCharacter() & 0xFFFF_FFFFL);
+    }
+
+    /**
+     * The ranges sorted by start (ascending) and then by end (descending), with a segment tree
+     * on top that stores the maximum end of every subtree. The ranges containing `[start, end]`
+     * are the entries that start at or before `start` and end at or after `end`, which we visit
+     * from right to left, until they start too early to be narrower than the best one so far.
+     */
+    private static final class Index<T> {
+        private final long[] starts;
+        private final long[] ends;
+        private final Object[] values;
+        /** implicit binary tree: node `i` has children `2i` and `2i+1`, the leaves start at `capacity` */
+        private final long[] maxEnds;
+        private final int capacity;
+
+        Index(Map<Range, T> data) {
+            var entries = new ArrayList<Entry<Range, T>>(data.entrySet());
+            entries.sort((a, b) -> {
+                int result = Long.compare(encode(a.getKey().getStart()), encode(b.getKey().getStart()));
+                if (result != 0) {
+                    return result;
+                }
+                return Long.compare(encode(b.getKey().getEnd()), encode(a.getKey().getEnd()));
+            });
+
+            int size = entries.size();
+            starts = new long[size];
+            ends = new long[size];
+            values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                var e = entries.get(i);
+                starts[i] = encode(e.getKey().getStart());
+                ends[i] = encode(e.getKey().getEnd());
+                values[i] = e.getValue();
+            }
+
+            int c = 1;
+            while (c < size) {
+                c <<= 1;
+            }
+            capacity = c;
+            maxEnds = new long[2 * capacity];
+            for (int i = 0; i < capacity; i++) {
+                maxEnds[capacity + i] = i < size ? ends[i] : Long.MIN_VALUE;
+            }
+            for (int i = capacity - 1; i > 0; i--) {
+                maxEnds[i] = Math.max(maxEnds[2 * i], maxEnds[2 * i + 1]);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Nullable T lookup(long start, long end) {
+            int best = -1;
+            int limit = countStartingAtOrBefore(start);
+            while (true) {
+                int found = rightmost(1, 0, capacity, limit, end);
+                if (found == -1) {
+                    break;
+                }
+                if (best != -1 && line(end) - line(starts[found]) > lineSpan(best)) {
+                    // this one, and all remaining ones (which start even earlier), span more lines than `best`
+                    break;
+                }
+                if (best == -1 || narrower(found, best)) {
+                    best = found;
+                }
+                limit = found;
+            }
+            return best == -1 ? null : (T) values[best];
+        }
+
+        private boolean narrower(int a, int b) {
+            int result = Integer.compare(lineSpan(a), lineSpan(b));
+            if (result == 0) {
+                result = Long.compare(column(ends[a]) - column(starts[a]), column(ends[b]) - column(starts[b]));
+            }
+            return result < 0;
+        }
+
+        private int lineSpan(int i) {
+            return line(ends[i]) - line(starts[i]);
+        }
+
+        private static int line(long position) {
+            return (int) (position >>> 32);
+        }
+
+        private static long column(long position) {
+            return position & 0xFFFF_FFFFL;
+        }
+
+        private int countStartingAtOrBefore(long position) {
+            int low = 0;
+            int high = starts.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= position) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * @return the largest index below `limit` in the subtree `node` (covering `[low, high)`)
+         * with an end of at least `end`, or -1 if there is none
+         */
+        private int rightmost(int node, int low, int high, int limit, long end) {
+            if (low >= limit || maxEnds[node] < end) {
+                return -1;
+            }
+            if (high - low == 1) {
+                return low;
+            }
+            int mid = (low + high) >>> 1;
+            int result = rightmost(2 * node + 1, mid, high, limit, end);
+            return result != -1 ? result : rightmost(2 * node, low, mid, limit, end);
+        }
+    }
+}
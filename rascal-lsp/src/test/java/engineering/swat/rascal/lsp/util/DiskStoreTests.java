@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import org.junit.After;
+import org.junit.Test;
+import org.rascalmpl.vscode.lsp.util.DiskStore;
+
+public class DiskStoreTests {
+    private final Path directory;
+
+    public DiskStoreTests() throws IOException {
+        directory = Files.createTempDirectory("store");
+    }
+
+    @After
+    public void removeDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void write(DiskStore store, String key) throws IOException {
+        store.write(key, out -> out.write(bytes(key)));
+    }
+
+    /**
+     * Set the modification time of all files in the directory.
+     */
+    private void age(Instant when) throws IOException {
+        try (var files = Files.list(directory)) {
+            for (var f : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(f, FileTime.from(when));
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        var store = new DiskStore(directory, ".test", 10);
+        write(store, "a");
+        assertArrayEquals(bytes("a"), store.read("a"));
+        assertNull(store.read("b"));
+    }
+
+    @Test
+    public void disabled() throws IOException {
+        var store = new DiskStore(null, ".test", 10);
+        assertFalse(store.isEnabled());
+        write(store, "a");
+        assertNull(store.read("a"));
+    }
+
+    @Test
+    public void prunesOldFiles() throws IOException {
+        write(new DiskStore(directory, ".test", 10), "old");
+        age(Instant.now().minus(DiskStore.MAX_AGE).minusSeconds(60));
+
+        var store = new DiskStore(directory, ".test", 10);
+        write(store, "new");
+        assertNull(store.read("old"));
+        assertNotNull(store.read("new"));
+    }
+
+    @Test
+    public void prunesOldestBeyondMaximum() throws IOException {
+        var first = new DiskStore(directory, ".test", 10);
+        write(first, "a");
+        age(Instant.now().minusSeconds(120));
+        write(first, "b");
+        write(first, "c");
+
+        var store = new DiskStore(directory, ".test", 2);
+        write(store, "d");
+        assertNull(store.read("a"));
+        assertNotNull(store.read("b"));
+        assertNotNull(store.read("c"));
+        assertNotNull(store.read("d"));
+    }
+}
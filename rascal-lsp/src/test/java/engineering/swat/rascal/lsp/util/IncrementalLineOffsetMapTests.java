@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Test;
+import org.rascalmpl.vscode.lsp.util.locations.impl.IncrementalLineOffsetMap;
+
+public class IncrementalLineOffsetMapTests {
+    private static final String[] FRAGMENTS = { "a", "bc", "\n", "x\ny", "🌉", "q😀\n😀", "", "\r", "\r\n", "z\r" };
+
+    private static String[] lines(String contents) {
+        return contents.split("\r\n|\r|\n", -1);
+    }
+
+    /** @return the length of the line break at `index`, 0 at the end of the contents */
+    private static int separatorLength(String contents, int index) {
+        if (contents.startsWith("\r\n", index)) {
+            return 2;
+        }
+        return index < contents.length() ? 1 : 0;
+    }
+
+    private static void assertSameAsRebuilt(String contents, IncrementalLineOffsetMap patched) {
+        var lines = lines(contents);
+        int lineStart = 0;
+        int index = 0;
+        for (int l = 0; l < lines.length; l++) {
+            var line = lines[l];
+            int codePoints = line.codePointCount(0, line.length());
+            for (int cp = 0; cp <= codePoints; cp++) {
+                int utf16 = line.offsetByCodePoints(0, cp);
+                assertEquals(utf16, patched.translateColumn(l, cp, false));
+                assertEquals(cp, patched.translateInverseColumn(l, utf16, false));
+                assertEquals(Pair.of(lineStart + cp, 0), patched.calculateInverseOffsetLength(l, utf16, l, utf16));
+            }
+            int separator = separatorLength(contents, index + line.length());
+            index += line.length() + separator;
+            lineStart += codePoints + separator;
+        }
+    }
+
+    @Test
+    public void buildMatchesContents() {
+        var contents = "a🌉b\n\n🌉🌉x\ny";
+        assertSameAsRebuilt(contents, IncrementalLineOffsetMap.build(contents));
+    }
+
+    @Test
+    public void middleOfSurrogatePair() {
+        var map = IncrementalLineOffsetMap.build("a🌉b");
+        assertEquals(1, map.translateInverseColumn(0, 2, false));
+        assertEquals(2, map.translateInverseColumn(0, 2, true));
+        assertEquals(4, map.translateColumn(0, 3, true));
+    }
+
+    @Test
+    public void multiLineReplace() {
+        var map = IncrementalLineOffsetMap.build("ab🌉\ncd\ne🌉f")
+            .replace(0, 1, 2, 1, "😀\nz");
+        assertSameAsRebuilt("a😀\nz🌉f", map);
+        assertEquals(Pair.of(2, 3), map.calculateInverseOffsetLength(0, 3, 1, 3));
+    }
+
+    @Test
+    public void replaceKeepsEarlierMap() {
+        var contents = "ab🌉\ncd\ne🌉f";
+        var map = IncrementalLineOffsetMap.build(contents);
+        map.replace(1, 0, 2, 1, "😀\n\n");
+        assertSameAsRebuilt(contents, map);
+    }
+
+    @Test
+    public void carriageReturnsAreLineBreaks() {
+        var contents = "a\r\n🌉\rc\nd";
+        var map = IncrementalLineOffsetMap.build(contents);
+        assertSameAsRebuilt(contents, map);
+        assertEquals(Pair.of(4, 0), map.calculateInverseOffsetLength(1, 2, 1, 2));
+    }
+
+    @Test
+    public void carriageReturnAndNewlineFromDifferentEdits() {
+        var map = IncrementalLineOffsetMap.build("ab\rcd")
+            .replace(1, 0, 1, 0, "\n");
+        assertSameAsRebuilt("ab\r\ncd", map);
+        map = IncrementalLineOffsetMap.build("a\rX\nb").replace(1, 0, 1, 1, "");
+        assertSameAsRebuilt("a\r\nb", map);
+    }
+
+    @Test
+    public void randomEdits() {
+        var r = new Random();
+        for (int round = 0; round < 20; round++) {
+            var contents = new StringBuilder("start🌉\nof\nthe 😀 file");
+            var map = IncrementalLineOffsetMap.build(contents.toString());
+            for (int edit = 0; edit < 100; edit++) {
+                var lines = lines(contents.toString());
+                int startLine = r.nextInt(lines.length);
+                int endLine = startLine + r.nextInt(Math.min(3, lines.length - startLine));
+                int startColumn = randomColumn(r, lines[startLine]);
+                int endColumn = randomColumn(r, lines[endLine]);
+                if (startLine == endLine && endColumn < startColumn) {
+                    int tmp = startColumn;
+                    startColumn = endColumn;
+                    endColumn = tmp;
+                }
+                var text = FRAGMENTS[r.nextInt(FRAGMENTS.length)] + FRAGMENTS[r.nextInt(FRAGMENTS.length)];
+
+                contents.replace(offset(contents.toString(), lines, startLine, startColumn), offset(contents.toString(), lines, endLine, endColumn), text);
+                map = map.replace(startLine, startColumn, endLine, endColumn, text);
+                assertSameAsRebuilt(contents.toString(), map);
+            }
+        }
+    }
+
+    private static int randomColumn(Random r, String line) {
+        return line.offsetByCodePoints(0, r.nextInt(line.codePointCount(0, line.length()) + 1));
+    }
+
+    private static int offset(String contents, String[] lines, int line, int column) {
+        int result = 0;
+        for (int l = 0; l < line; l++) {
+            result += lines[l].length();
+            result += separatorLength(contents, result);
+        }
+        return result + column;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.CompletableFuture;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.values.parsetrees.TreeAdapter;
+import org.rascalmpl.vscode.lsp.util.IncrementalParsing;
+import org.rascalmpl.vscode.lsp.util.RascalServices;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class IncrementalParsingTests {
+    private static final ISourceLocation FILE = URIUtil.correctLocation("memory", "", "/Incremental.rsc");
+    private static final String MODULE =
+        "module Incremental\n" +
+        "\n" +
+        "int twice(int x) {\n" +
+        "    return x + x;\n" +
+        "}\n" +
+        "\n" +
+        "str greeting = \"hello\";\n";
+
+    private final IncrementalParsing incremental = new IncrementalParsing(
+        (loc, input, symbol) -> CompletableFuture.completedFuture(RascalServices.parseRascalNonTerminal(symbol, loc, input.toCharArray())),
+        Runnable::run);
+
+    private static ITree parse(String contents) {
+        return RascalServices.parseRascalModule(FILE, contents.toCharArray());
+    }
+
+    private void assertReparses(String after) {
+        var actual = incremental.reparse(FILE, parse(MODULE), MODULE, after).join();
+        assertNotNull(actual);
+        assertTreesEqual(parse(after), actual);
+    }
+
+    private static void assertTreesEqual(ITree expected, ITree actual) {
+        assertEquals(TreeAdapter.getLocation(expected), TreeAdapter.getLocation(actual));
+        if (TreeAdapter.isAppl(expected)) {
+            assertEquals(TreeAdapter.getProduction(expected), TreeAdapter.getProduction(actual));
+            var expectedArgs = TreeAdapter.getArgs(expected);
+            var actualArgs = TreeAdapter.getArgs(actual);
+            assertEquals(expectedArgs.length(), actualArgs.length());
+            for (int i = 0; i < expectedArgs.length(); i++) {
+                assertTreesEqual((ITree) expectedArgs.get(i), (ITree) actualArgs.get(i));
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void editInsideExpression() {
+        assertReparses(MODULE.replace("x + x", "x * x + 1"));
+    }
+
+    @Test
+    public void editAddingLines() {
+        assertReparses(MODULE.replace("    return x + x;\n", "    int y = x;\n    return y\n        + x;\n"));
+    }
+
+    @Test
+    public void editRemovingLines() {
+        assertReparses(MODULE.replace("{\n    return x + x;\n}", "{ return x + x; }"));
+    }
+
+    @Test
+    public void editInsideString() {
+        assertReparses(MODULE.replace("\"hello\"", "\"héllo 𝄞\""));
+    }
+
+    @Test
+    public void unchangedContents() {
+        var previous = parse(MODULE);
+        assertEquals(previous, incremental.reparse(FILE, previous, MODULE, MODULE).join());
+    }
+
+    @Test
+    public void otherProductionFallsBack() {
+        // `(x)` on its own parses as `(x) + (x)`, but below `*` that would ignore the priority of `*` over `+`
+        var before = MODULE.replace("x + x", "x * (x)");
+        var after = before.replace("(x)", "(x) + (x)");
+        assertNull(incremental.reparse(FILE, parse(before), before, after).join());
+    }
+
+    @Test
+    public void parseErrorsFallBack() {
+        assertNull(incremental.reparse(FILE, parse(MODULE), MODULE, MODULE.replace("x + x", "x + ")).join());
+    }
+}
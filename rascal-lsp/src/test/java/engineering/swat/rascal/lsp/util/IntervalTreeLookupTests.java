@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.Test;
+import org.rascalmpl.vscode.lsp.util.locations.impl.IntervalTreeLookup;
+
+public class IntervalTreeLookupTests {
+
+    private Range cursor(int line, int column) {
+        return range(line, column, line, column);
+    }
+
+    private Range range(int startLine, int startColumn, int endLine, int endColumn) {
+        return new Range(new Position(startLine, startColumn), new Position(endLine, endColumn));
+    }
+
+    private static boolean before(Position a, Position b) {
+        return a.getLine() < b.getLine() || (a.getLine() == b.getLine() && a.getCharacter() < b.getCharacter());
+    }
+
+    private static boolean contains(Range outer, Range inner) {
+        return !before(inner.getStart(), outer.getStart()) && !before(outer.getEnd(), inner.getEnd());
+    }
+
+    private static int lineSpan(Range r) {
+        return r.getEnd().getLine() - r.getStart().getLine();
+    }
+
+    private static int columnSpan(Range r) {
+        return r.getEnd().getCharacter() - r.getStart().getCharacter();
+    }
+
+    /** the reference semantics: fewest lines first, then fewest columns, then latest start */
+    private static @Nullable String bruteForce(Map<Range, String> ranges, Range lookup) {
+        Range best = null;
+        for (var r : ranges.keySet()) {
+            if (contains(r, lookup) && (best == null
+                || lineSpan(r) < lineSpan(best)
+                || (lineSpan(r) == lineSpan(best) && columnSpan(r) < columnSpan(best))
+                || (lineSpan(r) == lineSpan(best) && columnSpan(r) == columnSpan(best) && before(best.getStart(), r.getStart())))) {
+                best = r;
+            }
+        }
+        return best == null ? null : ranges.get(best);
+    }
+
+    @Test
+    public void testEmpty() {
+        var target = new IntervalTreeLookup<String>();
+        assertNull(target.lookup(cursor(0, 0)));
+    }
+
+    @Test
+    public void testOverlappingRanges() {
+        var target = new IntervalTreeLookup<String>();
+        target.put(range(0, 1, 4, 5), "big1");
+        target.put(range(1, 1, 1, 5), "small1");
+        target.put(range(4, 1, 4, 4), "small2");
+        assertSame("big1", target.lookup(cursor(0, 12)));
+        assertSame("big1", target.lookup(cursor(1, 12)));
+        assertSame("small1", target.lookup(cursor(1, 4)));
+        assertSame("small2", target.lookup(cursor(4, 4)));
+        assertSame("big1", target.lookup(cursor(4, 5)));
+        assertNull(target.lookup(cursor(4, 6)));
+        assertNull(target.lookup(cursor(0, 0)));
+    }
+
+    @Test
+    public void testSingleLineTree() {
+        var target = new IntervalTreeLookup<String>();
+        target.put(range(0, 1, 0, 10), "composite expression");
+        target.put(range(0, 1, 0, 4), "first half");
+        target.put(range(0, 1, 0, 2), "first quarter");
+        target.put(range(0, 2, 0, 4), "second quarter");
+        target.put(range(0, 6, 0, 10), "second half");
+        target.put(range(0, 6, 0, 8), "third quarter");
+        target.put(range(0, 8, 0, 10), "fourth quarter");
+        assertSame("composite expression", target.lookup(cursor(0, 5)));
+        assertSame("first half", target.lookup(range(0, 1, 0, 3)));
+        assertSame("first quarter", target.lookup(cursor(0, 1)));
+        assertSame("second quarter", target.lookup(cursor(0, 4)));
+        assertSame("third quarter", target.lookup(cursor(0, 6)));
+        assertSame("fourth quarter", target.lookup(cursor(0, 10)));
+    }
+
+    @Test
+    public void testPartiallyOverlappingRanges() {
+        var target = new IntervalTreeLookup<String>();
+        target.put(range(0, 0, 0, 4), "short");
+        target.put(range(0, 2, 0, 9), "long");
+        target.put(range(2, 5, 3, 2), "two lines");
+        target.put(range(3, 0, 5, 0), "three lines");
+        assertSame("short", target.lookup(cursor(0, 3)));
+        assertSame("long", target.lookup(cursor(0, 5)));
+        assertSame("two lines", target.lookup(cursor(3, 1)));
+        assertSame("three lines", target.lookup(cursor(3, 3)));
+    }
+
+    @Test
+    public void testPutAfterLookup() {
+        var target = new IntervalTreeLookup<String>();
+        target.put(range(0, 1, 2, 10), "outer");
+        assertSame("outer", target.lookup(cursor(1, 5)));
+        target.put(range(1, 1, 1, 8), "inner");
+        assertSame("inner", target.lookup(cursor(1, 5)));
+    }
+
+    @Test
+    public void randomRanges() {
+        Map<Range, String> ranges = new HashMap<>();
+        Random r = new Random();
+        for (int i = 0; i < 1000; i++) {
+            int startLine = r.nextInt(10);
+            int startColumn = r.nextInt(10);
+            int endLine = startLine + r.nextInt(3);
+            int endColumn = endLine == startLine ? startColumn + r.nextInt(3) : r.nextInt(10);
+            ranges.put(range(startLine, startColumn, endLine, endColumn), "" + i);
+        }
+        var target = new IntervalTreeLookup<>(ranges);
+        for (var e : ranges.entrySet()) {
+            assertSame("Entry " + e + " should be found", e.getValue(), target.lookup(e.getKey()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            var lookup = cursor(r.nextInt(13), r.nextInt(12));
+            assertSame("Lookup of " + lookup, bruteForce(ranges, lookup), target.lookup(lookup));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+import org.rascalmpl.vscode.lsp.util.PieceTable;
+
+public class PieceTableTests {
+
+    @Test
+    public void testInsertInMiddle() {
+        var table = new PieceTable("hello\nworld\n").replace(1, 0, 1, 0, "big ");
+        assertEquals("hello\nbig world\n", table.toString());
+    }
+
+    @Test
+    public void testDeleteAcrossLines() {
+        var table = new PieceTable("first\nsecond\nthird").replace(0, 3, 2, 2, "");
+        assertEquals("firird", table.toString());
+    }
+
+    @Test
+    public void testReplaceAtEnd() {
+        var table = new PieceTable("a\nb").replace(1, 1, 1, 1, "\nc");
+        assertEquals("a\nb\nc", table.toString());
+        assertEquals(5, table.length());
+    }
+
+    @Test
+    public void testColumnsBeyondLineAreClamped() {
+        var table = new PieceTable("ab\ncd").replace(0, 10, 0, 10, "!");
+        assertEquals("ab!\ncd", table.toString());
+    }
+
+    @Test
+    public void testPositionsAfterEarlierEdits() {
+        var table = new PieceTable("x\ny\nz")
+            .replace(0, 1, 0, 1, "\n\n")
+            .replace(3, 1, 3, 1, "1")
+            .replace(4, 0, 4, 1, "Z");
+        assertEquals("x\n\n\ny1\nZ", table.toString());
+    }
+
+    @Test
+    public void testCarriageReturnsAreLineBreaks() {
+        var table = new PieceTable("a\r\nb\rc\nd").replace(1, 1, 2, 0, "!");
+        assertEquals("a\r\nb!c\nd", table.toString());
+        table = table.replace(0, 5, 0, 5, "?").replace(2, 0, 2, 0, "_");
+        assertEquals("a?\r\nb!c\n_d", table.toString());
+    }
+
+    @Test
+    public void testCarriageReturnAndNewlineFromDifferentEdits() {
+        var table = new PieceTable("ab\rcd")
+            .replace(1, 0, 1, 0, "\n")
+            .replace(1, 1, 1, 1, "X");
+        assertEquals("ab\r\ncXd", table.toString());
+        table = table.replace(0, 1, 0, 2, "\r").replace(1, 0, 1, 0, "\n").replace(2, 0, 2, 0, "Y");
+        assertEquals("a\r\n\r\nYcXd", table.toString());
+    }
+
+    @Test
+    public void testOldVersionsAreUnchanged() {
+        var first = new PieceTable("abc");
+        var second = first.replace(0, 1, 0, 2, "XYZ");
+        var third = second.replace(0, 0, 0, 1, "");
+        assertEquals("abc", first.toString());
+        assertEquals("aXYZc", second.toString());
+        assertEquals("XYZc", third.toString());
+    }
+
+    @Test
+    public void testRandomEditsMatchStringEdits() {
+        var random = new Random(42);
+        var alphabet = "ab\nc\r\nxyz\n";
+        var expected = "";
+        var table = new PieceTable(expected);
+        for (int i = 0; i < 1000; i++) {
+            int startLine = random.nextInt(10);
+            int startColumn = random.nextInt(8);
+            int endLine = startLine + random.nextInt(3);
+            int endColumn = random.nextInt(8);
+            var text = new StringBuilder();
+            for (int c = random.nextInt(6); c > 0; c--) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            int start = offset(expected, startLine, startColumn);
+            int end = Math.max(start, offset(expected, endLine, endColumn));
+            expected = expected.substring(0, start) + text + expected.substring(end);
+            table = table.replace(startLine, startColumn, endLine, endColumn, text.toString());
+
+            assertEquals(expected.length(), table.length());
+            if (i % 10 == 0) {
+                assertEquals(expected, table.toString());
+            }
+        }
+        assertEquals(expected, table.toString());
+    }
+
+    private static int offset(String text, int line, int column) {
+        int lineStart = 0;
+        for (int l = 0; l < line; l++) {
+            int lineEnd = lineEnd(text, lineStart);
+            if (lineEnd == text.length()) {
+                return text.length();
+            }
+            lineStart = lineEnd + (text.startsWith("\r\n", lineEnd) ? 2 : 1);
+        }
+        return Math.min(lineStart + column, lineEnd(text, lineStart));
+    }
+
+    private static int lineEnd(String text, int lineStart) {
+        int i = lineStart;
+        while (i < text.length() && text.charAt(i) != '\n' && text.charAt(i) != '\r') {
+            i++;
+        }
+        return i;
+    }
+}
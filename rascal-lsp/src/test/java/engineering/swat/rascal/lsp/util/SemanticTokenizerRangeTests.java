@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokenizer;
+import org.rascalmpl.vscode.lsp.util.RascalServices;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class SemanticTokenizerRangeTests {
+    private static final ISourceLocation FILE = URIUtil.correctLocation("memory", "", "/Ranges.rsc");
+    private static final String MODULE =
+        "module Ranges\n" +
+        "\n" +
+        "/* a comment\n" +
+        "   spanning lines */\n" +
+        "int x = 1;\n" +
+        "\n" +
+        "str s = \"a string\n" +
+        "        \'spanning lines\";\n" +
+        "\n" +
+        "int f(int y) = y + x;\n";
+    private static final int LINES = (int) MODULE.chars().filter(c -> c == '\n').count();
+
+    private final SemanticTokenizer tokenizer = new SemanticTokenizer(true);
+    private final ITree tree = RascalServices.parseRascalModule(FILE, MODULE.toCharArray());
+
+    /**
+     * The tokens with absolute positions: line, start, length and type.
+     */
+    private static List<List<Integer>> absolute(List<Integer> data) {
+        var result = new ArrayList<List<Integer>>();
+        int line = 0;
+        int start = 0;
+        for (int i = 0; i < data.size(); i += 5) {
+            start = data.get(i) == 0 ? start + data.get(i + 1) : data.get(i + 1);
+            line += data.get(i);
+            result.add(List.of(line, start, data.get(i + 2), data.get(i + 3)));
+        }
+        return result;
+    }
+
+    private List<List<Integer>> full() {
+        return absolute(tokenizer.semanticTokensFull(tree, false).getData());
+    }
+
+    private List<List<Integer>> range(Range range) {
+        return absolute(tokenizer.semanticTokensRange(tree, false, range).getData());
+    }
+
+    private static List<List<Integer>> slice(List<List<Integer>> tokens, int firstLine, int lastLine) {
+        return tokens.stream()
+            .filter(t -> firstLine <= t.get(0) && t.get(0) <= lastLine)
+            .collect(Collectors.toList());
+    }
+
+    private static Range lines(int firstLine, int lastLine) {
+        return new Range(new Position(firstLine, 0), new Position(lastLine, 0));
+    }
+
+    @Test
+    public void everyRangeIsSliceOfFull() {
+        var full = full();
+        for (int first = 0; first < LINES; first++) {
+            for (int last = first; last < LINES; last++) {
+                assertEquals("lines " + first + " to " + last, slice(full, first, last), range(lines(first, last)));
+            }
+        }
+    }
+
+    @Test
+    public void tokensSpanningLines() {
+        // the comment and the string both continue on the next line
+        var full = full();
+        assertEquals(slice(full, 3, 3), range(lines(3, 3)));
+        assertEquals(slice(full, 7, 7), range(lines(7, 7)));
+        assertFalse(range(lines(3, 3)).isEmpty());
+        assertFalse(range(lines(7, 7)).isEmpty());
+    }
+
+    @Test
+    public void rangeStartingMidToken() {
+        // starts inside "spanning", and ends inside "string"
+        var actual = range(new Range(new Position(3, 6), new Position(6, 12)));
+        assertEquals(slice(full(), 3, 6), actual);
+        assertEquals(List.of(3, 0), actual.get(0).subList(0, 2));
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package engineering.swat.rascal.lsp.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.lsp4j.SemanticTokens;
+import org.eclipse.lsp4j.SemanticTokensDelta;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.vscode.lsp.rascal.conversion.SemanticTokensCache;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class SemanticTokensCacheTests {
+    private static final ISourceLocation DOC = URIUtil.correctLocation("memory", "", "/Tokens.rsc");
+    private static final List<Integer> TOKENS = List.of(
+        0, 0, 6, 1, 0,
+        0, 7, 5, 2, 0,
+        2, 0, 3, 1, 0,
+        0, 4, 1, 3, 0);
+
+    private final SemanticTokensCache cache = new SemanticTokensCache();
+
+    private static List<Integer> apply(List<Integer> old, SemanticTokensDelta delta) {
+        var result = new ArrayList<>(old);
+        // edits are relative to the old data, so apply them from the back
+        var edits = new ArrayList<>(delta.getEdits());
+        edits.sort((l, r) -> Integer.compare(r.getStart(), l.getStart()));
+        for (var edit : edits) {
+            var range = result.subList(edit.getStart(), edit.getStart() + edit.getDeleteCount());
+            range.clear();
+            if (edit.getData() != null) {
+                range.addAll(edit.getData());
+            }
+        }
+        return result;
+    }
+
+    private SemanticTokensDelta assertDelta(List<Integer> after) {
+        var previous = cache.full(DOC, new SemanticTokens(TOKENS));
+        var result = cache.delta(DOC, previous.getResultId(), new SemanticTokens(after));
+        assertTrue(result.isRight());
+        var delta = result.getRight();
+        assertEquals(after, apply(TOKENS, delta));
+        assertNotEquals(previous.getResultId(), delta.getResultId());
+        return delta;
+    }
+
+    private static List<Integer> replace(List<Integer> data, int index, int value) {
+        var result = new ArrayList<>(data);
+        result.set(index, value);
+        return result;
+    }
+
+    @Test
+    public void unchangedTokensHaveNoEdits() {
+        assertEquals(0, assertDelta(TOKENS).getEdits().size());
+    }
+
+    @Test
+    public void editOfPrefix() {
+        var delta = assertDelta(replace(TOKENS, 2, 8));
+        assertEquals(1, delta.getEdits().size());
+        assertEquals(2, delta.getEdits().get(0).getStart());
+        assertEquals(1, delta.getEdits().get(0).getDeleteCount());
+    }
+
+    @Test
+    public void editOfSuffix() {
+        var delta = assertDelta(replace(TOKENS, TOKENS.size() - 2, 4));
+        assertEquals(1, delta.getEdits().size());
+        assertEquals(TOKENS.size() - 2, delta.getEdits().get(0).getStart());
+        assertEquals(1, delta.getEdits().get(0).getDeleteCount());
+    }
+
+    @Test
+    public void insertedToken() {
+        var after = new ArrayList<>(TOKENS);
+        after.addAll(10, List.of(1, 0, 2, 4, 0));
+        var delta = assertDelta(after);
+        assertEquals(1, delta.getEdits().size());
+        assertEquals(0, delta.getEdits().get(0).getDeleteCount());
+    }
+
+    @Test
+    public void removedTokens() {
+        assertDelta(TOKENS.subList(0, 5));
+        assertDelta(TOKENS.subList(15, 20));
+        assertDelta(List.of());
+    }
+
+    @Test
+    public void unknownResultIdFallsBackToFull() {
+        var first = cache.full(DOC, new SemanticTokens(TOKENS));
+        cache.full(DOC, new SemanticTokens(TOKENS));
+        for (var id : List.of("unknown", first.getResultId())) {
+            var result = cache.delta(DOC, id, new SemanticTokens(TOKENS));
+            assertTrue(result.isLeft());
+            assertEquals(TOKENS, result.getLeft().getData());
+        }
+    }
+
+    @Test
+    public void clearForgetsPreviousResult() {
+        var previous = cache.full(DOC, new SemanticTokens(TOKENS));
+        assertEquals(TOKENS.size(), cache.sizeHint(DOC));
+        cache.clear(DOC);
+        assertEquals(0, cache.sizeHint(DOC));
+        assertTrue(cache.delta(DOC, previous.getResultId(), new SemanticTokens(TOKENS)).isLeft());
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.eclipse.lsp4j.Diagnostic;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class ClosedFileDiagnosticsTest {
+    private static ISourceLocation file(String name) {
+        return URIUtil.correctLocation("memory", "", "/" + name);
+    }
+
+    private static List<Diagnostic> diagnostics(String... messages) {
+        var range = new Range(new Position(0, 0), new Position(0, 1));
+        return Stream.of(messages).map(m -> new Diagnostic(range, m)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void reopenReturnsDiagnosticsOnce() {
+        var closed = new ClosedFileDiagnostics();
+        closed.close(file("a"), diagnostics("error"));
+        assertEquals(diagnostics("error"), closed.reopen(file("a")));
+        assertEquals(List.of(), closed.reopen(file("a")));
+    }
+
+    @Test
+    public void closingWithoutDiagnosticsForgetsEarlierOnes() {
+        var closed = new ClosedFileDiagnostics();
+        closed.close(file("a"), diagnostics("error"));
+        closed.close(file("a"), List.of());
+        assertFalse(closed.remove(file("a")));
+    }
+
+    @Test
+    public void removeTellsWhetherThereWereDiagnostics() {
+        var closed = new ClosedFileDiagnostics();
+        closed.close(file("a"), diagnostics("error"));
+        assertTrue(closed.remove(file("a")));
+        assertFalse(closed.remove(file("a")));
+    }
+
+    @Test
+    public void evictsBeyondMaximumAndCountsEvictions() {
+        // every file weighs its number of diagnostics plus one, so only one of these fits
+        var closed = new ClosedFileDiagnostics(4);
+        closed.close(file("a"), diagnostics("error", "warning"));
+        closed.close(file("b"), diagnostics("error", "warning"));
+        assertEquals(1, closed.getEvictions());
+        assertEquals(1, closed.size());
+    }
+}
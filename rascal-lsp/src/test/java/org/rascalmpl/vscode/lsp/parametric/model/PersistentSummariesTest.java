@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.parametric.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import org.junit.After;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.values.IRascalValueFactory;
+import org.rascalmpl.values.parsetrees.ITree;
+import org.rascalmpl.vscode.lsp.util.RascalServices;
+
+import io.usethesource.vallang.IConstructor;
+import io.usethesource.vallang.ISourceLocation;
+import io.usethesource.vallang.type.TypeFactory;
+import io.usethesource.vallang.type.TypeStore;
+
+public class PersistentSummariesTest {
+    private static final IRascalValueFactory VF = IRascalValueFactory.getInstance();
+    private static final ISourceLocation FILE = URIUtil.correctLocation("memory", "", "/Summarized.rsc");
+
+    private final Path directory;
+    private final PersistentSummaries summaries;
+
+    public PersistentSummariesTest() throws IOException {
+        directory = Files.createTempDirectory("summaries");
+        summaries = new PersistentSummaries("test", "contributions", directory);
+    }
+
+    @After
+    public void removeDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static ITree parse(String contents) {
+        return RascalServices.parseRascalModule(FILE, contents.toCharArray());
+    }
+
+    private static IConstructor summary(int value) {
+        var tf = TypeFactory.getInstance();
+        var store = new TypeStore();
+        var adt = tf.abstractDataType(store, "Summary");
+        var cons = tf.constructor(store, adt, "summary", tf.integerType(), "value");
+        return VF.constructor(cons, VF.integer(value));
+    }
+
+    @Test
+    public void roundTrip() {
+        var tree = parse("module Summarized\n");
+        summaries.save("analyzer", FILE, tree, summary(1));
+        assertEquals(summary(1), summaries.load("analyzer", FILE, tree));
+    }
+
+    @Test
+    public void replacesEarlierSummary() {
+        var tree = parse("module Summarized\n");
+        summaries.save("analyzer", FILE, tree, summary(1));
+        summaries.save("analyzer", FILE, tree, summary(2));
+        assertEquals(summary(2), summaries.load("analyzer", FILE, tree));
+    }
+
+    @Test
+    public void otherContentsAreStale() {
+        summaries.save("analyzer", FILE, parse("module Summarized\n"), summary(1));
+        assertNull(summaries.load("analyzer", FILE, parse("module Summarized\n\nint x = 1;\n")));
+    }
+
+    @Test
+    public void otherKindsAndLanguagesAreSeparate() {
+        var tree = parse("module Summarized\n");
+        summaries.save("analyzer", FILE, tree, summary(1));
+        assertNull(summaries.load("builder", FILE, tree));
+        assertNull(new PersistentSummaries("other", "contributions", directory).load("analyzer", FILE, tree));
+    }
+
+    @Test
+    public void otherContributionsAreSeparate() {
+        var tree = parse("module Summarized\n");
+        summaries.save("analyzer", FILE, tree, summary(1));
+        assertNull(new PersistentSummaries("test", "changed contributions", directory).load("analyzer", FILE, tree));
+    }
+}
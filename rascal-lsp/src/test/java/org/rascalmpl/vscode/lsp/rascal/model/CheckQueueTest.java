@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.eclipse.lsp4j.Diagnostic;
+import org.junit.After;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class CheckQueueTest {
+    private static final ISourceLocation A = URIUtil.correctLocation("memory", "", "/A.rsc");
+    private static final ISourceLocation B = URIUtil.correctLocation("memory", "", "/B.rsc");
+
+    private static class Check {
+        final Set<ISourceLocation> files;
+        final CompletableFuture<Map<ISourceLocation, List<Diagnostic>>> result = new CompletableFuture<>();
+
+        Check(Set<ISourceLocation> files) {
+            this.files = files;
+        }
+    }
+
+    private final ExecutorService exec = Executors.newCachedThreadPool();
+    private final LinkedBlockingQueue<Check> checks = new LinkedBlockingQueue<>();
+    private final Map<ISourceLocation, Integer> reports = new ConcurrentHashMap<>();
+    private final CheckQueue queue = new CheckQueue(files -> {
+            var c = new Check(files);
+            checks.add(c);
+            return c.result;
+        },
+        (f, msgs) -> reports.merge(f, 1, Integer::sum),
+        exec, 0);
+
+    @After
+    public void shutdown() {
+        exec.shutdownNow();
+    }
+
+    private Check nextCheck() throws InterruptedException {
+        var c = checks.poll(10, TimeUnit.SECONDS);
+        assertNotNull("check did not start", c);
+        return c;
+    }
+
+    @Test
+    public void savesDuringASlowCheckAreCoalescedIntoTheNextCheck() throws Exception {
+        var first = queue.enqueue(A);
+        var running = nextCheck();
+        assertEquals(Set.of(A), running.files);
+
+        // saved twice while the first check is still running
+        var second = queue.enqueue(A);
+        assertSame(second, queue.enqueue(B));
+
+        // whoever waits on the first check, might also wait on the next one
+        var waiter = first.thenRunAsync(second::join, exec);
+
+        running.result.complete(Map.of(A, List.of()));
+        var next = nextCheck();
+        assertEquals(Set.of(A, B), next.files);
+
+        next.result.complete(Map.of(A, List.of(), B, List.of()));
+        waiter.get(10, TimeUnit.SECONDS);
+        assertEquals(Set.of(A, B), second.get(10, TimeUnit.SECONDS).keySet());
+        assertEquals(Integer.valueOf(2), reports.get(A));
+        assertEquals(Integer.valueOf(1), reports.get(B));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import org.junit.After;
+import org.junit.Test;
+import org.rascalmpl.library.util.PathConfig;
+import org.rascalmpl.uri.URIUtil;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class PathConfigSnapshotsTest {
+    private final Path directory;
+    private final Path project;
+    private final PathConfigSnapshots snapshots;
+
+    public PathConfigSnapshotsTest() throws IOException {
+        directory = Files.createTempDirectory("path-configs");
+        project = Files.createTempDirectory("project");
+        Files.createDirectories(project.resolve("META-INF"));
+        writeManifest("Project-Name: project\n");
+        snapshots = new PathConfigSnapshots(directory);
+    }
+
+    @After
+    public void removeDirectories() throws IOException {
+        for (var dir : new Path[] { directory, project }) {
+            try (var files = Files.walk(dir)) {
+                files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+
+    private void writeManifest(String contents) throws IOException {
+        Files.writeString(project.resolve("META-INF").resolve("RASCAL.MF"), contents, StandardCharsets.UTF_8);
+    }
+
+    private ISourceLocation root() {
+        return URIUtil.createFileLocation(project.toAbsolutePath().toString());
+    }
+
+    private PathConfig pathConfig() {
+        return new PathConfig().addSourceLoc(URIUtil.getChildLocation(root(), "src/main/rascal"));
+    }
+
+    @Test
+    public void roundTrip() {
+        snapshots.save(root(), pathConfig());
+        var loaded = snapshots.load(root());
+        assertNotNull(loaded);
+        assertEquals(pathConfig().asConstructor(), loaded.asConstructor());
+    }
+
+    @Test
+    public void changedManifestIsStale() throws IOException {
+        snapshots.save(root(), pathConfig());
+        writeManifest("Project-Name: project\nRequire-Libraries: |lib://other|\n");
+        assertNull(snapshots.load(root()));
+    }
+
+    @Test
+    public void addedPomIsStale() throws IOException {
+        snapshots.save(root(), pathConfig());
+        Files.writeString(project.resolve("pom.xml"), "<project/>\n", StandardCharsets.UTF_8);
+        assertNull(snapshots.load(root()));
+    }
+}
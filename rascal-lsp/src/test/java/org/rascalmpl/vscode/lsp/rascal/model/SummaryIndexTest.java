@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.lsp4j.Location;
+import org.eclipse.lsp4j.Position;
+import org.eclipse.lsp4j.Range;
+import org.junit.After;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.vscode.lsp.util.Digests;
+
+import io.usethesource.vallang.ISourceLocation;
+
+public class SummaryIndexTest {
+    private static final ISourceLocation MODULE = URIUtil.correctLocation("memory", "", "/Indexed.rsc");
+    private static final ISourceLocation OTHER = URIUtil.correctLocation("memory", "", "/Other.rsc");
+    private static final byte[] SOURCE = Digests.sha256("module Indexed");
+
+    private final Path directory;
+    private final SummaryIndex index;
+
+    public SummaryIndexTest() throws IOException {
+        directory = Files.createTempDirectory("summary-index");
+        index = new SummaryIndex(directory);
+    }
+
+    @After
+    public void removeDirectory() throws IOException {
+        try (var files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static Range range(int line, int start, int end) {
+        return new Range(new Position(line, start), new Position(line, end));
+    }
+
+    private static SummaryBridge summary() {
+        var use = range(3, 4, 7);
+        var definition = new Location("memory:///Indexed.rsc", range(1, 4, 7));
+        var library = new Location("memory:///Library.rsc", range(10, 0, 12));
+        return new SummaryBridge(
+            Map.of(use, List.of(definition, library)),
+            Map.of(use, "int", range(1, 4, 7), "str"));
+    }
+
+    @Test
+    public void roundTrip() {
+        var stored = summary();
+        index.save(MODULE, 42, SOURCE, stored);
+        var loaded = index.load(MODULE, 42, SOURCE);
+        assertNotNull(loaded);
+        assertEquals(stored.getDefinitionEntries(), loaded.getDefinitionEntries());
+        assertEquals(stored.getTypeNameEntries(), loaded.getTypeNameEntries());
+    }
+
+    @Test
+    public void otherTplIsStale() {
+        index.save(MODULE, 42, SOURCE, summary());
+        assertNull(index.load(MODULE, 43, SOURCE));
+    }
+
+    @Test
+    public void otherSourceIsStale() {
+        index.save(MODULE, 42, SOURCE, summary());
+        assertNull(index.load(MODULE, 42, Digests.sha256("module Indexed\nint x = 1;")));
+    }
+
+    @Test
+    public void otherModulesAreSeparate() {
+        index.save(MODULE, 42, SOURCE, summary());
+        assertNull(index.load(OTHER, 42, SOURCE));
+    }
+
+    @Test
+    public void disabledIndexStoresNothing() {
+        var disabled = new SummaryIndex(null);
+        disabled.save(MODULE, 42, SOURCE, summary());
+        assertNull(disabled.load(MODULE, 42, SOURCE));
+    }
+}
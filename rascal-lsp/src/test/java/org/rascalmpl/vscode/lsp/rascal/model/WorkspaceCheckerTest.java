@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018-2025, NWO-I CWI and Swat.engineering
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * 1. Redistributions of source code must retain the above copyright notice,
+ * this list of conditions and the following disclaimer.
+ *
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ * this list of conditions and the following disclaimer in the documentation
+ * and/or other materials provided with the distribution.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.rascalmpl.vscode.lsp.rascal.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+import org.rascalmpl.uri.URIUtil;
+import org.rascalmpl.vscode.lsp.util.RascalServices;
+
+public class WorkspaceCheckerTest {
+
+    @Test
+    public void importsAndExtends() {
+        var module = String.join("\n",
+            "module a::B",
+            "",
+            "import IO;",
+            "  extend lang::\\syntax::Grammar ;",
+            "import util::Maybe;",
+            "",
+            "void main() { println(\"import Nope;\"); }");
+        assertEquals(List.of("IO", "lang::syntax::Grammar", "util::Maybe"), new ArrayList<>(WorkspaceChecker.imports(module)));
+    }
+
+    @Test
+    public void importsOfTheParsedHeader() {
+        var module = String.join("\n",
+            "@doc{a module}",
+            "module a::B",
+            "",
+            "import IO; extend lang::\\syntax::Grammar;",
+            "// a comment",
+            "import /* another one */ util::Maybe;",
+            "import ParseTree;",
+            "syntax X = \"x\";",
+            "",
+            "void main() { println(\"import Nope;\"); }");
+        var tree = RascalServices.parseRascalModule(URIUtil.correctLocation("memory", "", "/a/B.rsc"), module.toCharArray());
+        assertEquals(List.of("IO", "lang::syntax::Grammar", "util::Maybe", "ParseTree"), new ArrayList<>(WorkspaceChecker.imports(tree)));
+    }
+
+    @Test
+    public void componentsComeAfterTheirDependencies() {
+        // 0 -> 1 -> 2 -> 1, 3 -> 0, 4
+        var graph = List.of(Set.of(1), Set.of(2), Set.of(1), Set.of(0), Set.<Integer>of());
+        var components = WorkspaceChecker.components(graph);
+
+        assertEquals(4, components.size());
+        var order = new int[graph.size()];
+        for (int c = 0; c < components.size(); c++) {
+            for (int n : components.get(c)) {
+                order[n] = c;
+            }
+        }
+        assertEquals(order[1], order[2]);
+        assertTrue(order[1] < order[0]);
+        assertTrue(order[0] < order[3]);
+    }
+}